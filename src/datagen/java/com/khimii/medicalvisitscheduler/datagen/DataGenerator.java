@@ -0,0 +1,427 @@
+package com.khimii.medicalvisitscheduler.datagen;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills a migrated database with synthetic doctors, patients and visits for testing at scale.
+ * <p>
+ * The data is fully determined by {@code --seed} and the volumes: every row is drawn from a random
+ * generator seeded from its table and ID, so the output does not depend on the number of threads.
+ * Doctors work in real time zones, weighted roughly by population, and differ in how many visits they
+ * have and how full their days are. Each doctor's visits fill working days (Monday to Friday, eight
+ * hours from a per-doctor start with a lunch break, in local time, stored in UTC) one after another,
+ * so they never overlap, with durations between 15 and 60 minutes. Patients are chosen with a power-law
+ * skew, so a few patients have many visits and most have few. Once the visits are loaded, the
+ * latest-visit and unique-patient read models are rebuilt the way the migrations do.
+ * <p>
+ * Options, all optional: {@code --url}, {@code --user}, {@code --password}, {@code --doctors},
+ * {@code --patients}, {@code --visits}, {@code --seed}, {@code --from} (first day of visits),
+ * {@code --mode} ({@code load-data} or {@code insert}), {@code --batch-size} (rows per statement and
+ * commit), {@code --threads} and {@code --truncate} (replace existing data instead of refusing to run).
+ */
+public class DataGenerator {
+
+    private static final long DOCTOR_STREAM = 1;
+    private static final long PATIENT_STREAM = 2;
+    private static final long VISIT_STREAM = 3;
+    private static final long MAX_PATIENTS = 3_000_000_000L; // keeps rank * stride within a long
+
+    private static final WeightedChoice<String> TIMEZONES = new WeightedChoice<>(Map.ofEntries(
+            Map.entry("America/New_York", 14.0), Map.entry("America/Chicago", 9.0),
+            Map.entry("America/Denver", 4.0), Map.entry("America/Los_Angeles", 11.0),
+            Map.entry("America/Sao_Paulo", 6.0), Map.entry("America/Mexico_City", 4.0),
+            Map.entry("Europe/London", 7.0), Map.entry("Europe/Berlin", 8.0), Map.entry("Europe/Paris", 6.0),
+            Map.entry("Europe/Madrid", 4.0), Map.entry("Europe/Warsaw", 3.0), Map.entry("Europe/Kyiv", 3.0),
+            Map.entry("Asia/Kolkata", 5.0), Map.entry("Asia/Tokyo", 5.0), Map.entry("Asia/Singapore", 2.0),
+            Map.entry("Australia/Sydney", 3.0), Map.entry("Australia/Adelaide", 1.0),
+            Map.entry("Pacific/Auckland", 1.0), Map.entry("Africa/Johannesburg", 2.0), Map.entry("UTC", 2.0)));
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Olivia", "Liam", "Emma", "Noah", "Sophia",
+            "Lucas", "Mia", "Oliver", "Amelia", "Elijah", "Ava", "Mateo", "Isabella", "Leo", "Charlotte", "Ethan",
+            "Harper", "Aiden", "Ella", "Daniel", "Anna", "Maria", "David", "Sofia", "Ivan", "Yuki", "Aarav", "Zoe"};
+    private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Garcia", "Miller",
+            "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore",
+            "Muller", "Schmidt", "Kowalski", "Nowak", "Shevchenko", "Sato", "Suzuki", "Patel", "Sharma", "Silva",
+            "Santos", "Dubois", "Rossi", "Nguyen"};
+    private static final WeightedChoice<String> FIRST_NAME = WeightedChoice.zipf(FIRST_NAMES);
+    private static final WeightedChoice<String> LAST_NAME = WeightedChoice.zipf(LAST_NAMES);
+    private static final WeightedChoice<Integer> VISIT_MINUTES = new WeightedChoice<>(Map.of(
+            15, 25.0, 20, 20.0, 30, 35.0, 45, 10.0, 60, 10.0));
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int doctors;
+    private final long patients;
+    private final long visits;
+    private final long seed;
+    private final LocalDate from;
+    private final boolean loadData;
+    private final int batchSize;
+    private final int threads;
+    private final boolean truncate;
+    private final long patientStride;
+
+    DataGenerator(Map<String, String> options) {
+        this.url = options.getOrDefault("url",
+                "jdbc:mysql://localhost:3307/health_tracking?rewriteBatchedStatements=true&allowLoadLocalInfile=true");
+        this.user = options.getOrDefault("user", "appuser");
+        this.password = options.getOrDefault("password", "root");
+        this.doctors = Integer.parseInt(options.getOrDefault("doctors", "100"));
+        this.patients = Long.parseLong(options.getOrDefault("patients", "10000"));
+        this.visits = Long.parseLong(options.getOrDefault("visits", "200000"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.from = LocalDate.parse(options.getOrDefault("from", "2024-01-01"));
+        this.batchSize = Integer.parseInt(options.getOrDefault("batch-size", "5000"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        this.truncate = Boolean.parseBoolean(options.getOrDefault("truncate", "false"));
+        String mode = options.getOrDefault("mode", "load-data");
+        if (!mode.equals("load-data") && !mode.equals("insert")) {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", expected load-data or insert");
+        }
+        this.loadData = mode.equals("load-data");
+        if (patients < 1 || patients > MAX_PATIENTS) {
+            throw new IllegalArgumentException("Patients must be between 1 and " + MAX_PATIENTS + ", got " + patients);
+        }
+        this.patientStride = strideCoprimeTo(patients);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "true");
+        }
+        new DataGenerator(options).run();
+    }
+
+    void run() throws Exception {
+        System.out.printf("Generating %d doctors, %d patients and %d visits with seed %d into %s%n",
+                doctors, patients, visits, seed, url);
+        try (Connection connection = connect()) {
+            prepareTables(connection);
+        }
+
+        List<DoctorProfile> profiles = doctorProfiles();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            timed("doctors", () -> {
+                try (Connection connection = connect();
+                     TableWriter writer = open(connection, "doctors", List.of("id", "first_name", "last_name", "timezone"))) {
+                    for (DoctorProfile profile : profiles) {
+                        writer.write(profile.id(), profile.firstName(), profile.lastName(), profile.zone().getId());
+                    }
+                    return writer.rows();
+                }
+            });
+            timed("patients", () -> runInParallel(executor, patients, (first, last) -> writePatients(first, last)));
+            timed("visits", () -> runInParallel(executor, profiles.size(),
+                    (first, last) -> writeVisits(profiles.subList((int) first - 1, (int) last))));
+        } finally {
+            executor.shutdown();
+        }
+        timed("read models", () -> {
+            try (Connection connection = connect()) {
+                return rebuildReadModels(connection);
+            }
+        });
+    }
+
+    /**
+     * Draws the per-doctor settings and splits the visits between doctors in proportion to a log-normal weight.
+     */
+    private List<DoctorProfile> doctorProfiles() {
+        SplittableRandom[] randoms = new SplittableRandom[doctors];
+        double[] weights = new double[doctors];
+        double total = 0;
+        for (int i = 0; i < doctors; i++) {
+            randoms[i] = random(DOCTOR_STREAM, i + 1);
+            weights[i] = Math.exp(0.75 * randoms[i].nextGaussian());
+            total += weights[i];
+        }
+        long[] quotas = new long[doctors];
+        long assigned = 0;
+        for (int i = 0; i < doctors; i++) {
+            quotas[i] = (long) (visits * weights[i] / total);
+            assigned += quotas[i];
+        }
+        for (int i = 0; assigned < visits; i = (i + 1) % doctors, assigned++) {
+            quotas[i]++;
+        }
+
+        List<DoctorProfile> profiles = new ArrayList<>(doctors);
+        long firstVisitId = 1;
+        for (int i = 0; i < doctors; i++) {
+            SplittableRandom random = randoms[i];
+            profiles.add(new DoctorProfile(i + 1L, FIRST_NAME.pick(random), LAST_NAME.pick(random),
+                    ZoneId.of(TIMEZONES.pick(random)), LocalTime.of(7, 0).plusMinutes(30L * random.nextInt(7)),
+                    0.55 + 0.4 * random.nextDouble(), firstVisitId, quotas[i]));
+            firstVisitId += quotas[i];
+        }
+        return profiles;
+    }
+
+    private long writePatients(long firstId, long lastId) throws SQLException {
+        try (Connection connection = connect();
+             TableWriter writer = open(connection, "patients", List.of("id", "first_name", "last_name"))) {
+            for (long id = firstId; id <= lastId; id++) {
+                SplittableRandom random = random(PATIENT_STREAM, id);
+                writer.write(id, FIRST_NAME.pick(random), LAST_NAME.pick(random));
+            }
+            return writer.rows();
+        }
+    }
+
+    private long writeVisits(List<DoctorProfile> profiles) throws SQLException {
+        try (Connection connection = connect();
+             TableWriter writer = open(connection, "visits",
+                     List.of("id", "start_date_time", "end_date_time", "patient_id", "doctor_id", "version"))) {
+            for (DoctorProfile profile : profiles) {
+                writeVisits(writer, profile);
+            }
+            return writer.rows();
+        }
+    }
+
+    private void writeVisits(TableWriter writer, DoctorProfile profile) throws SQLException {
+        SplittableRandom random = random(VISIT_STREAM, profile.id());
+        long id = profile.firstVisitId();
+        long lastId = id + profile.visits();
+        for (LocalDate day = from; id < lastId; day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            LocalDateTime start = day.atTime(profile.dayStart());
+            LocalDateTime lunchStart = start.plusHours(4);
+            LocalDateTime lunchEnd = lunchStart.plusHours(1);
+            LocalDateTime dayEnd = start.plusHours(9);
+            int offsetSeconds = profile.zone().getRules().getOffset(start).getTotalSeconds();
+            while (id < lastId) {
+                if (random.nextDouble() > profile.occupancy()) {
+                    start = start.plusMinutes(15); // leave a slot free
+                }
+                LocalDateTime end = start.plusMinutes(VISIT_MINUTES.pick(random));
+                if (start.isBefore(lunchEnd) && end.isAfter(lunchStart)) {
+                    start = lunchEnd;
+                    continue;
+                }
+                if (end.isAfter(dayEnd)) {
+                    break;
+                }
+                writer.write(id++, start.minusSeconds(offsetSeconds), end.minusSeconds(offsetSeconds),
+                        patientId(random), profile.id(), 0);
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Picks a patient with a power-law skew towards low ranks, then scatters the ranks over the IDs with
+     * a multiplicative permutation so that frequent patients are not neighbours.
+     */
+    private long patientId(SplittableRandom random) {
+        long rank = (long) (patients * Math.pow(random.nextDouble(), 3));
+        return rank * patientStride % patients + 1;
+    }
+
+    private long rebuildReadModels(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            long rows = statement.executeUpdate("""
+                    INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+                    SELECT patient_id, doctor_id, start_date_time, end_date_time
+                    FROM (
+                             SELECT v.patient_id, v.doctor_id, v.start_date_time, v.end_date_time,
+                                    ROW_NUMBER() OVER (PARTITION BY v.patient_id ORDER BY v.start_date_time DESC, v.id DESC) AS rn
+                             FROM visits v
+                         ) ranked
+                    WHERE rn = 1
+                    """);
+            rows += statement.executeUpdate("""
+                    INSERT INTO doctor_patients (doctor_id, patient_id)
+                    SELECT DISTINCT doctor_id, patient_id
+                    FROM visits
+                    """);
+            rows += statement.executeUpdate("""
+                    INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+                    SELECT doctor_id, COUNT(*)
+                    FROM doctor_patients
+                    GROUP BY doctor_id
+                    """);
+            // MySQL moves AUTO_INCREMENT past the generated visit IDs by itself, H2 has to be told
+            if (!isMySql(connection)) {
+                statement.execute("ALTER TABLE visits ALTER COLUMN id RESTART WITH " + (visits + 1));
+            }
+            connection.commit();
+            return rows;
+        }
+    }
+
+    private void prepareTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM doctors")) {
+            resultSet.next();
+            if (resultSet.getLong(1) > 0 && !truncate) {
+                throw new IllegalStateException("Tables already contain data, pass --truncate to replace it");
+            }
+        }
+        if (!truncate) {
+            return;
+        }
+        boolean mysql = isMySql(connection);
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("patient_last_visit", "doctor_patient_stats", "doctor_patients", "visits",
+                    "patients", "doctors")) {
+                statement.execute((mysql ? "TRUNCATE TABLE " : "DELETE FROM ") + table);
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        if (isMySql(connection)) {
+            // Rows are generated consistent and without overlaps, so the checks only slow the load down
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET foreign_key_checks = 0");
+                statement.execute("SET unique_checks = 0");
+            }
+        }
+        return connection;
+    }
+
+    private TableWriter open(Connection connection, String table, List<String> columns) throws SQLException {
+        return loadData
+                ? TableWriter.loadData(connection, table, columns, batchSize)
+                : TableWriter.batchInsert(connection, table, columns, batchSize);
+    }
+
+    /**
+     * Splits IDs 1 to {@code count} into contiguous ranges, several per thread, and writes them concurrently.
+     *
+     * @return The number of rows written.
+     */
+    private long runInParallel(ExecutorService executor, long count, RangeTask task) throws Exception {
+        long ranges = Math.min(count, threads * 4L);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (long range = 0; range < ranges; range++) {
+            long first = count * range / ranges + 1;
+            long last = count * (range + 1) / ranges;
+            futures.add(executor.submit(() -> task.write(first, last)));
+        }
+        long rows = 0;
+        for (Future<Long> future : futures) {
+            rows += future.get();
+        }
+        return rows;
+    }
+
+    private SplittableRandom random(long stream, long id) {
+        return new SplittableRandom(mix(seed + stream * 0x9E3779B97F4A7C15L + id * 0xBF58476D1CE4E5B9L));
+    }
+
+    private static void timed(String name, TableTask task) throws Exception {
+        long start = System.nanoTime();
+        long rows = task.write();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-12s %12d rows in %8.1f s  %10.0f rows/s%n", name, rows, seconds, rows / seconds);
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equals("MySQL");
+    }
+
+    /**
+     * Finalizer of SplitMix64, turning nearby inputs into unrelated seeds.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long strideCoprimeTo(long patients) {
+        long stride = Math.max(1, 2_654_435_761L % patients);
+        while (gcd(stride, patients) != 1) {
+            stride++;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private record DoctorProfile(long id, String firstName, String lastName, ZoneId zone, LocalTime dayStart,
+                                 double occupancy, long firstVisitId, long visits) {
+    }
+
+    @FunctionalInterface
+    private interface TableTask {
+        long write() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface RangeTask {
+        long write(long first, long last) throws Exception;
+    }
+
+    /**
+     * Picks values with fixed relative weights.
+     */
+    private static final class WeightedChoice<T> {
+        private final List<T> values = new ArrayList<>();
+        private final double[] cumulative;
+
+        WeightedChoice(Map<T, Double> weights) {
+            this.cumulative = new double[weights.size()];
+            // Map.of has no stable order, so sort the values to keep the choice deterministic
+            List<Map.Entry<T, Double>> entries = new ArrayList<>(weights.entrySet());
+            entries.sort(Map.Entry.comparingByKey((a, b) -> a.toString().compareTo(b.toString())));
+            double total = 0;
+            for (Map.Entry<T, Double> entry : entries) {
+                values.add(entry.getKey());
+                total += entry.getValue();
+                cumulative[values.size() - 1] = total;
+            }
+        }
+
+        static WeightedChoice<String> zipf(String[] values) {
+            Map<String, Double> weights = new HashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                weights.put(values[i], 1.0 / (i + 1));
+            }
+            return new WeightedChoice<>(weights);
+        }
+
+        T pick(SplittableRandom random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] <= target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return values.get(low);
+        }
+    }
+}
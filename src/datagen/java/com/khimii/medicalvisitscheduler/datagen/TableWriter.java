@@ -0,0 +1,161 @@
+package com.khimii.medicalvisitscheduler.datagen;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes generated rows of one table in chunks of {@code batchSize} rows, committing after each chunk.
+ * <p>
+ * {@link #batchInsert} adds the rows to a JDBC batch, which Connector/J rewrites into multi-row
+ * {@code INSERT}s when the URL sets {@code rewriteBatchedStatements=true}. {@link #loadData} renders the
+ * rows as tab-separated text in memory and streams each chunk to {@code LOAD DATA LOCAL INFILE}, which
+ * needs {@code allowLoadLocalInfile=true} on the URL and {@code local_infile=ON} on the server.
+ */
+abstract class TableWriter implements AutoCloseable {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    protected final Connection connection;
+    protected final String table;
+    protected final List<String> columns;
+    protected final int batchSize;
+    protected int pending;
+    private long rows;
+
+    TableWriter(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+        this.connection = connection;
+        this.table = table;
+        this.columns = columns;
+        this.batchSize = batchSize;
+        connection.setAutoCommit(false);
+    }
+
+    static TableWriter batchInsert(Connection connection, String table, List<String> columns, int batchSize)
+            throws SQLException {
+        return new BatchInsertWriter(connection, table, columns, batchSize);
+    }
+
+    static TableWriter loadData(Connection connection, String table, List<String> columns, int batchSize)
+            throws SQLException {
+        return new LoadDataWriter(connection, table, columns, batchSize);
+    }
+
+    /**
+     * Adds a row, writing the current chunk once it is full.
+     *
+     * @param values The column values in the order of the columns; numbers, strings or {@link LocalDateTime}s.
+     */
+    void write(Object... values) throws SQLException {
+        append(values);
+        rows++;
+        if (++pending == batchSize) {
+            flush();
+        }
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (pending > 0) {
+            flush();
+        }
+    }
+
+    protected abstract void append(Object[] values) throws SQLException;
+
+    protected abstract void flush() throws SQLException;
+
+    private static final class BatchInsertWriter extends TableWriter {
+        private final PreparedStatement statement;
+
+        BatchInsertWriter(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+            super(connection, table, columns, batchSize);
+            this.statement = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns)
+                    + ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")");
+        }
+
+        @Override
+        protected void append(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+        }
+
+        @Override
+        protected void flush() throws SQLException {
+            statement.executeBatch();
+            connection.commit();
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                super.close();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    private static final class LoadDataWriter extends TableWriter {
+        private final StringBuilder chunk = new StringBuilder(1 << 20);
+        private final String sql;
+
+        LoadDataWriter(Connection connection, String table, List<String> columns, int batchSize) throws SQLException {
+            super(connection, table, columns, batchSize);
+            this.sql = "LOAD DATA LOCAL INFILE 'generated' INTO TABLE " + table
+                    + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' ("
+                    + String.join(", ", columns) + ")";
+        }
+
+        @Override
+        protected void append(Object[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    chunk.append('\t');
+                }
+                // Generated values never contain tabs, newlines or backslashes, so nothing needs escaping
+                chunk.append(values[i] instanceof LocalDateTime dateTime ? DATE_TIME.format(dateTime) : values[i]);
+            }
+            chunk.append('\n');
+        }
+
+        @Override
+        protected void flush() throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                setLocalInfileStream(statement, new ByteArrayInputStream(chunk.toString().getBytes(StandardCharsets.UTF_8)));
+                statement.execute(sql);
+            }
+            connection.commit();
+            chunk.setLength(0);
+            pending = 0;
+        }
+
+        /**
+         * Makes the next {@code LOAD DATA LOCAL INFILE} of the statement read from the stream instead of a file.
+         * Connector/J is only a runtime dependency, so its extension method is looked up reflectively.
+         */
+        private static void setLocalInfileStream(Statement statement, InputStream stream) throws SQLException {
+            try {
+                Class<?> type = Class.forName("com.mysql.cj.jdbc.JdbcStatement");
+                type.getMethod("setLocalInfileInputStream", InputStream.class).invoke(statement.unwrap(type), stream);
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("Streaming LOAD DATA needs MySQL Connector/J, use --mode=insert instead", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.service.VisitService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares booking an import of visits one request at a time against a single batch booking.
+ * Every invocation books a fresh, non-overlapping set of slots, so no request is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBookingBenchmark {
+
+    private static final int DOCTORS = 10;
+    private static final int PATIENTS = 100;
+    private static final int VISIT_MINUTES = 30;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Param({"100", "1000"})
+    private int visits;
+
+    private ConfigurableApplicationContext context;
+    private VisitService visitService;
+    private long nextSlot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("batch_booking_" + visits);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (long patientId = 1; patientId <= PATIENTS; patientId++) {
+            BenchmarkContext.insertPatient(jdbcTemplate, patientId);
+        }
+        for (long doctorId = 1; doctorId <= DOCTORS; doctorId++) {
+            BenchmarkContext.insertDoctorWithVisits(jdbcTemplate, doctorId, 1L, 0, FIRST_START, VISIT_MINUTES);
+        }
+        visitService = context.getBean(VisitService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleRequests() {
+        List<VisitRequest> requests = nextRequests();
+        requests.forEach(visitService::createVisit);
+        return requests.size();
+    }
+
+    @Benchmark
+    public VisitBatchResponse batchRequest() {
+        return visitService.createVisits(nextRequests());
+    }
+
+    /**
+     * Spreads the next {@code visits} slots round-robin over the doctors and patients.
+     */
+    private List<VisitRequest> nextRequests() {
+        List<VisitRequest> requests = new ArrayList<>(visits);
+        for (int i = 0; i < visits; i++) {
+            long slot = nextSlot++;
+            LocalDateTime start = FIRST_START.plusMinutes(slot / DOCTORS * VISIT_MINUTES);
+            VisitRequest request = new VisitRequest();
+            request.setDoctorId(slot % DOCTORS + 1);
+            request.setPatientId(slot % PATIENTS + 1);
+            request.setStart(start);
+            request.setEnd(start.plusMinutes(VISIT_MINUTES));
+            requests.add(request);
+        }
+        return requests;
+    }
+}
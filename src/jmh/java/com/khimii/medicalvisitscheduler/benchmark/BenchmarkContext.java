@@ -0,0 +1,187 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.MedicalVisitSchedulerApplication;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application without a web server for benchmarks.
+ * <p>
+ * The database is an in-memory H2 by default. Running with {@code -Dbenchmark.database=mysql}, e.g. through
+ * {@code -jvmArgsAppend -Dbenchmark.database=mysql} in the JMH options, starts a MySQL 8 container per fork
+ * instead, which is what the database-bound numbers should be compared on. The MySQL schema is built by the
+ * Flyway migrations, with the indexes production has, and validated against the entity model; the H2 schema is
+ * created from the entity model, since the migrations use MySQL-only statements.
+ */
+public final class BenchmarkContext {
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final String INSERT_VISIT = """
+            INSERT INTO visits (start_date_time, end_date_time, patient_id, doctor_id, version)
+            VALUES (?, ?, ?, ?, 0)
+            """;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application context with empty tables.
+     *
+     * @param name A database name unique to the benchmark, so forks do not share state.
+     * @return The running application context.
+     */
+    public static ConfigurableApplicationContext start(String name) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                // the benchmarks repeat the same requests, which would otherwise measure the patient list cache
+                "--scheduler.patient-list-cache.enabled=false"));
+        if ("mysql".equals(System.getProperty("benchmark.database"))) {
+            MySQLContainer<?> mysql = MySqlHolder.CONTAINER;
+            String url = "jdbc:mysql://" + mysql.getHost() + ":" + mysql.getMappedPort(MySQLContainer.MYSQL_PORT)
+                    + "/" + name + "?createDatabaseIfNotExist=true&rewriteBatchedStatements=true";
+            migrate(url, mysql.getUsername(), mysql.getPassword());
+            args.addAll(List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver",
+                    "--spring.datasource.username=" + mysql.getUsername(),
+                    "--spring.datasource.password=" + mysql.getPassword(),
+                    "--spring.jpa.hibernate.ddl-auto=validate",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect"));
+        } else {
+            args.addAll(List.of(
+                    "--spring.flyway.enabled=false",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop",
+                    "--spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"));
+        }
+        return new SpringApplicationBuilder(MedicalVisitSchedulerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Migrates the database before the application starts, so that it finds the schema up to date and its
+     * caches and indexes do not load the sample doctors, patients and visits of the first migration, which are deleted.
+     */
+    private static void migrate(String url, String username, String password) {
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        // Visits and the read models are removed by the ON DELETE CASCADE foreign keys
+        jdbcTemplate.update("DELETE FROM doctors");
+        jdbcTemplate.update("DELETE FROM patients");
+    }
+
+    /**
+     * Inserts a doctor with evenly spaced visits of the given length.
+     *
+     * @param jdbcTemplate  The JDBC template of the benchmark context.
+     * @param doctorId      The ID to give the doctor.
+     * @param patientId     The ID of an existing patient to book the visits for.
+     * @param visits        The number of visits to create.
+     * @param firstStart    The start time of the first visit, in UTC.
+     * @param visitMinutes  The length of each visit; visits are separated by the same gap.
+     */
+    public static void insertDoctorWithVisits(JdbcTemplate jdbcTemplate, long doctorId, long patientId, int visits,
+                                              LocalDateTime firstStart, int visitMinutes) {
+        jdbcTemplate.update("INSERT INTO doctors (id, first_name, last_name, timezone) VALUES (?, ?, ?, ?)",
+                doctorId, "Doctor", "No" + doctorId, "UTC");
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < visits; i++) {
+            LocalDateTime start = firstStart.plusMinutes(2L * i * visitMinutes);
+            batch.add(new Object[]{Timestamp.valueOf(start),
+                    Timestamp.valueOf(start.plusMinutes(visitMinutes)), patientId, doctorId});
+            if (batch.size() == BATCH_SIZE || i == visits - 1) {
+                jdbcTemplate.batchUpdate(INSERT_VISIT, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts a patient.
+     *
+     * @param jdbcTemplate The JDBC template of the benchmark context.
+     * @param patientId    The ID to give the patient.
+     */
+    public static void insertPatient(JdbcTemplate jdbcTemplate, long patientId) {
+        jdbcTemplate.update("INSERT INTO patients (id, first_name, last_name) VALUES (?, ?, ?)",
+                patientId, "Patient", "No" + patientId);
+    }
+
+    /**
+     * Inserts doctors and patients where each patient has one completed visit with one of the doctors,
+     * together with their rows in the latest-visit read model and the doctors' counters.
+     *
+     * @param jdbcTemplate The JDBC template of the benchmark context.
+     * @param doctors      The number of doctors to create, with IDs starting at 1.
+     * @param patients     The number of patients to create, with IDs starting at 1.
+     * @param firstStart   The start time of the first visit, in UTC; each next visit starts 30 minutes later.
+     */
+    public static void insertPatientsWithLastVisits(JdbcTemplate jdbcTemplate, int doctors, int patients,
+                                                    LocalDateTime firstStart) {
+        for (long doctorId = 1; doctorId <= doctors; doctorId++) {
+            jdbcTemplate.update("INSERT INTO doctors (id, first_name, last_name, timezone) VALUES (?, ?, ?, ?)",
+                    doctorId, "Doctor", "No" + doctorId, "UTC");
+        }
+        List<Object[]> patientBatch = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> visitBatch = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> lastVisitBatch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= patients; i++) {
+            LocalDateTime start = firstStart.plusMinutes(30L * i);
+            Timestamp startTimestamp = Timestamp.valueOf(start);
+            Timestamp endTimestamp = Timestamp.valueOf(start.plusMinutes(20));
+            long doctorId = i % doctors + 1;
+            patientBatch.add(new Object[]{(long) i, "Patient", "No" + i});
+            visitBatch.add(new Object[]{startTimestamp, endTimestamp, (long) i, doctorId});
+            lastVisitBatch.add(new Object[]{startTimestamp, endTimestamp, (long) i, doctorId});
+            if (patientBatch.size() == BATCH_SIZE || i == patients) {
+                jdbcTemplate.batchUpdate("INSERT INTO patients (id, first_name, last_name) VALUES (?, ?, ?)",
+                        patientBatch);
+                jdbcTemplate.batchUpdate(INSERT_VISIT, visitBatch);
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO patient_last_visit (start_date_time, end_date_time, patient_id, doctor_id)
+                        VALUES (?, ?, ?, ?)
+                        """, lastVisitBatch);
+                patientBatch.clear();
+                visitBatch.clear();
+                lastVisitBatch.clear();
+            }
+        }
+        jdbcTemplate.update("INSERT INTO doctor_patients (doctor_id, patient_id) SELECT doctor_id, patient_id FROM visits");
+        jdbcTemplate.update("""
+                INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+                SELECT doctor_id, COUNT(*) FROM doctor_patients GROUP BY doctor_id
+                """);
+    }
+
+    /**
+     * Starts the MySQL container on first use, once per forked JVM.
+     */
+    private static final class MySqlHolder {
+        private static final MySQLContainer<?> CONTAINER = new MySQLContainer<>("mysql:8.0")
+                .withUsername("root")
+                .withPassword("root");
+
+        static {
+            CONTAINER.start();
+        }
+    }
+}
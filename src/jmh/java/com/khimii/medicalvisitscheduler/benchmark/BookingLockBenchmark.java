@@ -0,0 +1,60 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.service.DoctorBookingLocks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures booking throughput under the per-doctor booking locks, with the conflict check and insert
+ * replaced by work inside the lock: either CPU work ({@code cpu}) or waiting for about 100 µs as for a
+ * database round trip ({@code io}).
+ * <p>
+ * With one stripe every booking waits for every other, as a single global lock would; with the default
+ * number of stripes, bookings of different doctors run in parallel and throughput grows with threads,
+ * up to the number of cores for CPU work. Compare thread counts with {@code -t}, e.g.
+ * {@code -Djmh.args="BookingLock -t 4"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingLockBenchmark {
+
+    @Param({"1", "1024"})
+    private int stripes;
+
+    @Param({"1000"})
+    private int doctors;
+
+    @Param({"cpu", "io"})
+    private String work;
+
+    private DoctorBookingLocks locks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getBooking().setLockStripes(stripes);
+        locks = new DoctorBookingLocks(null, properties);
+    }
+
+    @Benchmark
+    public Object book() {
+        return locks.callWithLocks(List.of(ThreadLocalRandom.current().nextLong(1, doctors + 1)), () -> {
+            if (work.equals("cpu")) {
+                Blackhole.consumeCPU(2000);
+            } else {
+                LockSupport.parkNanos(100_000);
+            }
+            return null;
+        });
+    }
+}
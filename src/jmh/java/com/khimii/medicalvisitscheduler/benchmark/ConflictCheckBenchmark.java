@@ -0,0 +1,76 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import com.khimii.medicalvisitscheduler.service.DoctorScheduleIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory schedule index against the JPQL conflict query
+ * for a doctor with a growing number of upcoming visits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflictCheckBenchmark {
+
+    private static final long DOCTOR_ID = 1L;
+    private static final long PATIENT_ID = 1L;
+    private static final int VISIT_MINUTES = 30;
+    // the index holds visits from the current UTC day on, earlier ranges are checked in the database
+    private static final LocalDateTime FIRST_START = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+
+    @Param({"10000", "100000", "1000000"})
+    private int visitsPerDoctor;
+
+    private ConfigurableApplicationContext context;
+    private VisitRepository visitRepository;
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("conflict_check_" + visitsPerDoctor);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkContext.insertPatient(jdbcTemplate, PATIENT_ID);
+        BenchmarkContext.insertDoctorWithVisits(jdbcTemplate, DOCTOR_ID, PATIENT_ID, visitsPerDoctor,
+                FIRST_START, VISIT_MINUTES);
+        visitRepository = context.getBean(VisitRepository.class);
+        doctorScheduleIndex = context.getBean(DoctorScheduleIndex.class);
+        doctorScheduleIndex.hasConflict(DOCTOR_ID, FIRST_START, FIRST_START); // load the index outside measurement
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean indexedCheck() {
+        LocalDateTime start = randomStart();
+        return doctorScheduleIndex.hasConflict(DOCTOR_ID, start, start.plusMinutes(VISIT_MINUTES));
+    }
+
+    @Benchmark
+    public boolean jpqlCheck() {
+        LocalDateTime start = randomStart();
+        return visitRepository.existsConflictingVisit(DOCTOR_ID, start, start.plusMinutes(VISIT_MINUTES));
+    }
+
+    /**
+     * Picks a start among the doctor's visits; half of the candidates fall into a gap between visits.
+     */
+    private LocalDateTime randomStart() {
+        long slot = ThreadLocalRandom.current().nextLong(2L * visitsPerDoctor);
+        return FIRST_START.plusMinutes(slot * VISIT_MINUTES);
+    }
+}
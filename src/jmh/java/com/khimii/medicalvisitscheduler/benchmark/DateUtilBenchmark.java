@@ -0,0 +1,83 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.util.DateUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cached zone-table conversions of {@link DateUtil} with the previous implementation,
+ * which resolved the zone by name and went through {@code ZonedDateTime} on every call.
+ * <p>
+ * Run with {@code -prof gc} to see the allocated bytes per conversion ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateUtilBenchmark {
+
+    private static final int TIMES = 1024;
+
+    @Param({"UTC", "America/New_York", "Australia/Sydney"})
+    private String timezone;
+
+    private final LocalDateTime[] times = new LocalDateTime[TIMES];
+    private final long[] epochSeconds = new long[TIMES];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 8, 0);
+        for (int i = 0; i < TIMES; i++) {
+            times[i] = start.plusMinutes(517L * i); // spread over about a year, crossing DST changes
+            epochSeconds[i] = times[i].toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime previousToUtc() {
+        return times[nextIndex()].atZone(ZoneId.of(timezone))
+                .withZoneSameInstant(ZoneId.of("UTC"))
+                .toLocalDateTime();
+    }
+
+    @Benchmark
+    public LocalDateTime cachedToUtc() {
+        return DateUtil.convertToUtcTime(times[nextIndex()], timezone);
+    }
+
+    @Benchmark
+    public long epochToUtc() {
+        return DateUtil.toUtcEpochSecond(epochSeconds[nextIndex()], timezone);
+    }
+
+    @Benchmark
+    public String previousToDoctorTimezone() {
+        return times[nextIndex()].atZone(ZoneId.of("UTC"))
+                .withZoneSameInstant(ZoneId.of(timezone))
+                .toLocalDateTime()
+                .toString();
+    }
+
+    @Benchmark
+    public LocalDateTime cachedToDoctorTimezone() {
+        return DateUtil.convertUtcToLocalTime(times[nextIndex()], timezone);
+    }
+
+    @Benchmark
+    public void epochToDoctorTimezone(Blackhole blackhole) {
+        blackhole.consume(DateUtil.toLocalEpochSecond(epochSeconds[nextIndex()], timezone));
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (TIMES - 1);
+        return next;
+    }
+}
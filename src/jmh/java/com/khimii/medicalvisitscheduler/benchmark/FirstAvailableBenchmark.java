@@ -0,0 +1,105 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import com.khimii.medicalvisitscheduler.service.DoctorCalendarIndex;
+import com.khimii.medicalvisitscheduler.service.FirstAvailableSearch;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Measures the first-available search over loaded calendars of many doctors, against searching every
+ * doctor one after another and sorting all their slots.
+ * <p>
+ * Every half hour of the next month is booked with a probability of 97%, so each doctor's free slots
+ * are scattered and the earliest ones of the whole set are spread over many doctors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirstAvailableBenchmark {
+
+    private static final LocalDateTime FROM = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+    private static final LocalDateTime TO = FROM.plusDays(31);
+    private static final long DURATION_SECONDS = 30 * 60;
+
+    @Param({"50", "500"})
+    private int doctors;
+
+    @Param({"10"})
+    private int limit;
+
+    private List<Long> doctorIds;
+    private DoctorCalendarIndex doctorCalendarIndex;
+    private FirstAvailableSearch firstAvailableSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SchedulerProperties properties = new SchedulerProperties();
+        doctorCalendarIndex = new DoctorCalendarIndex(visitRepository(), properties);
+        firstAvailableSearch = new FirstAvailableSearch(doctorCalendarIndex, properties);
+        doctorIds = LongStream.rangeClosed(1, doctors).boxed().toList();
+        firstAvailableSearch.findFirstSlots(doctorIds, FROM, TO, DURATION_SECONDS, limit); // loads the calendars
+    }
+
+    @Benchmark
+    public List<FirstAvailableSearch.DoctorSlot> forkJoinSearch() {
+        return firstAvailableSearch.findFirstSlots(doctorIds, FROM, TO, DURATION_SECONDS, limit);
+    }
+
+    @Benchmark
+    public List<FirstAvailableSearch.DoctorSlot> sequentialSearch() {
+        List<FirstAvailableSearch.DoctorSlot> slots = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            for (long start : doctorCalendarIndex.findSlotStarts(doctorId, FROM, TO, DURATION_SECONDS, limit,
+                    () -> Long.MAX_VALUE)) {
+                slots.add(new FirstAvailableSearch.DoctorSlot(doctorId, start));
+            }
+        }
+        slots.sort(Comparator.comparingLong(FirstAvailableSearch.DoctorSlot::startEpoch)
+                .thenComparing(FirstAvailableSearch.DoctorSlot::doctorId));
+        return slots.subList(0, Math.min(limit, slots.size()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        firstAvailableSearch.shutdown();
+    }
+
+    /**
+     * Serves generated visits for {@link VisitRepository#findIntervalsByDoctorIdEndingAfter}; no other method is called.
+     */
+    private static VisitRepository visitRepository() {
+        return (VisitRepository) Proxy.newProxyInstance(VisitRepository.class.getClassLoader(),
+                new Class<?>[]{VisitRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findIntervalsByDoctorIdEndingAfter")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    SplittableRandom random = new SplittableRandom((Long) args[0]);
+                    List<VisitInterval> visits = new ArrayList<>();
+                    for (int day = 0; day < 31; day++) {
+                        for (int half = 0; half < 48; half++) {
+                            if (random.nextInt(100) >= 3) {
+                                LocalDateTime start = FROM.plusDays(day).plusMinutes(30L * half);
+                                visits.add(new VisitInterval(start, start.plusMinutes(30)));
+                            }
+                        }
+                    }
+                    return visits;
+                });
+    }
+}
@@ -0,0 +1,80 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.service.PatientService;
+import com.khimii.medicalvisitscheduler.util.PatientCursor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares OFFSET pagination with keyset (cursor) pagination of the patient list from page 1 to page 10,000.
+ * Keyset latency is expected to stay flat while OFFSET grows with the page number.
+ * <p>
+ * On the in-memory H2 database the planner may drive the join from {@code doctors} and sort afterwards,
+ * which hides most of the difference; the numbers that matter are the ones measured on MySQL,
+ * where the {@code (start_date_time, patient_id)} index serves both the order and the seek.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientPaginationBenchmark {
+
+    private static final int DOCTORS = 200;
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES = 10_000;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("patient_pagination_" + page);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        BenchmarkContext.insertPatientsWithLastVisits(jdbcTemplate, DOCTORS, PAGE_SIZE * PAGES, FIRST_START);
+        patientService = context.getBean(PatientService.class);
+        cursor = page == 1 ? null : cursorBeforePage(jdbcTemplate);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<RenderedPatientList> offset() {
+        return patientService.getPatients(page - 1, PAGE_SIZE, null, null);
+    }
+
+    @Benchmark
+    public Optional<RenderedPatientList> keyset() {
+        return patientService.getPatientsAfter(cursor, PAGE_SIZE, null, null, false);
+    }
+
+    /**
+     * Builds the cursor a client would hold after reading {@code page - 1} keyset pages.
+     */
+    private String cursorBeforePage(JdbcTemplate jdbcTemplate) {
+        Map<String, Object> lastRow = jdbcTemplate.queryForMap("""
+                SELECT start_date_time, patient_id FROM patient_last_visit
+                ORDER BY start_date_time DESC, patient_id DESC
+                LIMIT 1 OFFSET ?
+                """, (page - 1) * PAGE_SIZE - 1);
+        LocalDateTime lastVisitStart = ((Timestamp) lastRow.get("start_date_time")).toLocalDateTime();
+        return new PatientCursor(lastVisitStart, ((Number) lastRow.get("patient_id")).longValue()).encode();
+    }
+}
@@ -0,0 +1,135 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
+import com.khimii.medicalvisitscheduler.service.PatientJsonRenderer;
+import com.khimii.medicalvisitscheduler.service.PatientListCache;
+import com.khimii.medicalvisitscheduler.service.PatientNameSearch;
+import com.khimii.medicalvisitscheduler.service.PatientService;
+import com.khimii.medicalvisitscheduler.service.SchedulerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Measures the in-memory part of serving a patient list page: rendering the rows read by
+ * {@link PatientService#getPatients} as JSON, and writing the {@link RenderedPatientList}.
+ * <p>
+ * {@code renderPage} lists the same patients every time, so their pre-rendered JSON is reused, as on
+ * frequently requested pages. {@code renderChangedPage} changes the doctor totals on every call, so every
+ * patient is mapped and serialized by Jackson again, as the first time a page is shown; it also creates
+ * the rows.
+ * <p>
+ * The repository is replaced by a stub returning a prepared page, so no database work is measured;
+ * {@link PatientPaginationBenchmark} covers the queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientResponseBenchmark {
+
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2020, 1, 1, 9, 0);
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private PatientService patientService;
+    private PatientService changingPatientService;
+    private RenderedPatientList response;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private long totalPatients;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("patient_response_" + pageSize);
+        List<PatientVisitResponse> rows = rows(42);
+        patientService = patientService(() -> rows);
+        changingPatientService = patientService(() -> rows(++totalPatients));
+        response = patientService.getPatients(0, pageSize, null, null).orElseThrow();
+    }
+
+    private List<PatientVisitResponse> rows(long doctorTotalPatients) {
+        List<PatientVisitResponse> rows = new ArrayList<>(pageSize);
+        for (long i = 1; i <= pageSize; i++) {
+            LocalDateTime start = FIRST_START.plusHours(i);
+            rows.add(new PatientVisitResponse(i, "Patient", "No" + i, start, start.plusMinutes(30),
+                    i % 10 + 1, "Doctor", "No" + (i % 10 + 1), doctorTotalPatients));
+        }
+        return rows;
+    }
+
+    private PatientService patientService(Supplier<List<PatientVisitResponse>> rows) {
+        PatientLastVisitRepository repository = (PatientLastVisitRepository) Proxy.newProxyInstance(
+                PatientLastVisitRepository.class.getClassLoader(), new Class<?>[]{PatientLastVisitRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findPatientsWithLastVisits")) {
+                        return new PageImpl<>(rows.get(), PageRequest.of(0, pageSize), 10_000);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new PatientService(repository, context.getBean(PatientNameSearch.class),
+                context.getBean(PatientListCache.class), context.getBean(PatientJsonRenderer.class),
+                new SchedulerMetrics(new SimpleMeterRegistry()), new NoTransactionManager());
+    }
+
+    /**
+     * Runs the page without a transaction, as the stub repository needs none.
+     */
+    private static class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<RenderedPatientList> renderPage() {
+        return patientService.getPatients(0, pageSize, null, null);
+    }
+
+    @Benchmark
+    public Optional<RenderedPatientList> renderChangedPage() {
+        return changingPatientService.getPatients(0, pageSize, null, null);
+    }
+
+    @Benchmark
+    public int writePage() throws IOException {
+        output.reset();
+        response.writeTo(output);
+        return output.size();
+    }
+}
@@ -0,0 +1,83 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
+import com.khimii.medicalvisitscheduler.service.PatientNameSearch;
+import com.khimii.medicalvisitscheduler.service.PatientService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching the patient list by name with {@code LIKE '%search%'} alone and with the candidates
+ * of the in-memory trigram index, for a term matching a single patient.
+ * <p>
+ * The index lookup itself does not depend on the number of patients. The {@code LIKE} query reads every
+ * patient; the indexed query reads the candidate rows by primary key on MySQL, while H2 still walks the
+ * primary key and only skips the name comparisons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientSearchBenchmark {
+
+    private static final int DOCTORS = 200;
+    private static final int PAGE_SIZE = 10;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Param({"10000", "100000", "500000"})
+    private int patients;
+
+    private ConfigurableApplicationContext context;
+    private PatientLastVisitRepository patientLastVisitRepository;
+    private PatientNameSearch patientNameSearch;
+    private PatientService patientService;
+    private String term;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        context = BenchmarkContext.start("patient_search_" + patients);
+        BenchmarkContext.insertPatientsWithLastVisits(context.getBean(JdbcTemplate.class), DOCTORS, patients,
+                FIRST_START);
+        patientLastVisitRepository = context.getBean(PatientLastVisitRepository.class);
+        patientNameSearch = context.getBean(PatientNameSearch.class);
+        patientService = context.getBean(PatientService.class);
+        // last names are "No" followed by the patient ID, so this matches exactly one patient
+        term = "No" + (patients / 2 + 1);
+        while (patientNameSearch.find(term).getIndexedUpTo() < patients) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<PatientVisitResponse> like() {
+        return patientLastVisitRepository.findPatientsWithLastVisits(term, List.of(), 0, null,
+                PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Optional<RenderedPatientList> indexed() {
+        return patientService.getPatients(0, PAGE_SIZE, term, null);
+    }
+
+    @Benchmark
+    public PatientNameSearch.Match indexLookup() {
+        return patientNameSearch.find(term);
+    }
+}
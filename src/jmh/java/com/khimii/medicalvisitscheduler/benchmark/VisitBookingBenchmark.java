@@ -0,0 +1,70 @@
+package com.khimii.medicalvisitscheduler.benchmark;
+
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.service.VisitService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single {@link VisitService#createVisit} end to end: locks, conflict check, insert and
+ * read-model updates in one transaction, for doctors with a growing visit history.
+ * Every invocation books the next free slot after the history, round-robin over the doctors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitBookingBenchmark {
+
+    private static final int DOCTORS = 10;
+    private static final int PATIENTS = 100;
+    private static final int VISIT_MINUTES = 30;
+    private static final LocalDateTime FIRST_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Param({"0", "10000"})
+    private int visitsPerDoctor;
+
+    private ConfigurableApplicationContext context;
+    private VisitService visitService;
+    private LocalDateTime firstFreeStart;
+    private long nextSlot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("visit_booking_" + visitsPerDoctor);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (long patientId = 1; patientId <= PATIENTS; patientId++) {
+            BenchmarkContext.insertPatient(jdbcTemplate, patientId);
+        }
+        for (long doctorId = 1; doctorId <= DOCTORS; doctorId++) {
+            BenchmarkContext.insertDoctorWithVisits(jdbcTemplate, doctorId, 1L, visitsPerDoctor, FIRST_START, VISIT_MINUTES);
+        }
+        visitService = context.getBean(VisitService.class);
+        // insertDoctorWithVisits leaves a gap after each visit, so the history ends before this
+        firstFreeStart = FIRST_START.plusMinutes(2L * visitsPerDoctor * VISIT_MINUTES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public VisitRequest createVisit() {
+        long slot = nextSlot++;
+        LocalDateTime start = firstFreeStart.plusMinutes(slot / DOCTORS * VISIT_MINUTES);
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(slot % DOCTORS + 1);
+        request.setPatientId(slot % PATIENTS + 1);
+        request.setStart(start);
+        request.setEnd(start.plusMinutes(VISIT_MINUTES));
+        visitService.createVisit(request);
+        return request;
+    }
+}
@@ -0,0 +1,141 @@
+package com.khimii.medicalvisitscheduler.loadtest;
+
+import com.khimii.medicalvisitscheduler.MedicalVisitSchedulerApplication;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application inside the load test JVM, on a random port and an in-memory H2 database in
+ * MySQL mode standing in for MySQL, or a MySQL 8 container.
+ * <p>
+ * On MySQL the schema is built by the Flyway migrations and validated against the entity model, as in
+ * production; on H2 it is created from the entity model, since the migrations use MySQL-only statements.
+ * Every patient gets one completed visit so that the patient list has something to return. The numbers
+ * are useful for comparing changes to the application, not as absolute capacity figures: the database
+ * and the load generator share the machine.
+ */
+final class EmbeddedApplication {
+
+    private static final String[] FIRST_NAMES = {"Alice", "Bob", "Carol", "Daniel", "Emily", "Frank", "Grace",
+            "Henry", "Irene", "Jack", "Karen", "Liam", "Maria", "Noah", "Olivia", "Peter"};
+    private static final int BATCH_SIZE = 1_000;
+
+    private EmbeddedApplication() {
+    }
+
+    /**
+     * Starts the application and fills the database.
+     *
+     * @param doctors  The number of doctors to create, with IDs starting at 1.
+     * @param patients The number of patients to create, with IDs starting at 1.
+     * @param mysql    Whether to run on a MySQL container instead of H2.
+     * @param args     Additional application arguments, e.g. {@code --spring.profiles.active=virtual-threads}.
+     * @return The running application context; its port is in {@code local.server.port}.
+     */
+    static ConfigurableApplicationContext start(int doctors, int patients, boolean mysql, List<String> args) {
+        List<String> allArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--scheduler.export.fetch-size=1000",
+                "--logging.level.root=WARN"));
+        if (mysql) {
+            MySQLContainer<?> container = MySqlHolder.CONTAINER;
+            String url = container.getJdbcUrl() + "?rewriteBatchedStatements=true";
+            migrate(url, container.getUsername(), container.getPassword());
+            allArgs.addAll(List.of(
+                    "--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=com.mysql.cj.jdbc.Driver",
+                    "--spring.datasource.username=" + container.getUsername(),
+                    "--spring.datasource.password=" + container.getPassword(),
+                    "--spring.jpa.hibernate.ddl-auto=validate",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect"));
+        } else {
+            allArgs.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                    "--spring.flyway.enabled=false",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop"));
+        }
+        allArgs.addAll(args);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MedicalVisitSchedulerApplication.class)
+                .run(allArgs.toArray(String[]::new));
+        seed(context.getBean(JdbcTemplate.class), doctors, patients);
+        return context;
+    }
+
+    /**
+     * Migrates the database before the application starts, so that it finds the schema up to date and its
+     * caches and indexes do not load the sample doctors, patients and visits of the first migration, which are deleted.
+     */
+    private static void migrate(String url, String username, String password) {
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        // Visits and the read models are removed by the ON DELETE CASCADE foreign keys
+        jdbcTemplate.update("DELETE FROM doctors");
+        jdbcTemplate.update("DELETE FROM patients");
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int doctors, int patients) {
+        for (long doctorId = 1; doctorId <= doctors; doctorId++) {
+            jdbcTemplate.update("INSERT INTO doctors (id, first_name, last_name, timezone) VALUES (?, ?, ?, ?)",
+                    doctorId, "Doctor", "No" + doctorId, "UTC");
+        }
+        LocalDateTime firstStart = LocalDateTime.of(2020, 1, 1, 8, 0);
+        List<Object[]> patientBatch = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> visitBatch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= patients; i++) {
+            Timestamp start = Timestamp.valueOf(firstStart.plusMinutes(30L * i));
+            Timestamp end = Timestamp.valueOf(firstStart.plusMinutes(30L * i + 20));
+            patientBatch.add(new Object[]{(long) i, FIRST_NAMES[i % FIRST_NAMES.length], "No" + i});
+            visitBatch.add(new Object[]{start, end, (long) i, (long) (i % doctors + 1)});
+            if (patientBatch.size() == BATCH_SIZE || i == patients) {
+                jdbcTemplate.batchUpdate("INSERT INTO patients (id, first_name, last_name) VALUES (?, ?, ?)", patientBatch);
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO visits (start_date_time, end_date_time, patient_id, doctor_id, version)
+                        VALUES (?, ?, ?, ?, 0)
+                        """, visitBatch);
+                patientBatch.clear();
+                visitBatch.clear();
+            }
+        }
+        jdbcTemplate.update("""
+                INSERT INTO patient_last_visit (patient_id, start_date_time, end_date_time, doctor_id)
+                SELECT patient_id, start_date_time, end_date_time, doctor_id FROM visits
+                """);
+        jdbcTemplate.update("INSERT INTO doctor_patients (doctor_id, patient_id) SELECT doctor_id, patient_id FROM visits");
+        jdbcTemplate.update("""
+                INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+                SELECT doctor_id, COUNT(*) FROM doctor_patients GROUP BY doctor_id
+                """);
+    }
+
+    /**
+     * Starts the MySQL container on first use.
+     */
+    private static final class MySqlHolder {
+        private static final MySQLContainer<?> CONTAINER = new MySQLContainer<>("mysql:8.0")
+                .withDatabaseName("loadtest")
+                .withUsername("root")
+                .withPassword("root");
+
+        static {
+            CONTAINER.start();
+        }
+    }
+}
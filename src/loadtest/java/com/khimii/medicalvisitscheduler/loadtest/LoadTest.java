@@ -0,0 +1,423 @@
+package com.khimii.medicalvisitscheduler.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load test of the booking and patient list endpoints.
+ * <p>
+ * With {@code --rate} the test is open-model: requests are started at a constant arrival rate whether or
+ * not earlier ones have completed, as real clients do. Each request has an intended start time on that
+ * schedule, and besides the service time (from sending to the response) its response time is recorded
+ * from the intended start. When the application falls behind, requests queue up in the generator and
+ * the response times include that wait, so the percentiles are corrected for coordinated omission.
+ * Without {@code --rate} a fixed number of clients send requests back to back (closed model), which
+ * only yields service times.
+ * <p>
+ * Latencies are recorded into HdrHistogram recorders after a warm-up. Throughput and percentiles are
+ * printed per endpoint, appended to {@code target/loadtest-results.csv}, and the response time
+ * distributions are written to {@code target/loadtest/<label>-<endpoint>.hgrm}. With {@code --baseline}
+ * the corrected p99 and p99.9 are compared with the last run of that label, and the test exits with
+ * status 1 if one of them got worse by more than {@code --tolerance} percent.
+ * <p>
+ * Options, all optional: {@code --url}, {@code --rate} (requests per second), {@code --max-in-flight},
+ * {@code --clients}, {@code --warmup}, {@code --duration} (seconds), {@code --visit-ratio} (share of
+ * booking requests), {@code --doctors}, {@code --patients}, {@code --first-slot} (local start of the first
+ * booked visit), {@code --label}, {@code --baseline}, {@code --tolerance} and {@code --embedded}, which
+ * starts the application in-process against H2 instead of using {@code --url}, or against a MySQL
+ * container with {@code --database=mysql}; further {@code --app.<property>=<value>} options are passed
+ * to it as {@code --<property>=<value>}.
+ * Bookings use consecutive 30-minute slots, so repeated runs against the same database need a new
+ * {@code --first-slot}.
+ */
+public class LoadTest {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Path RESULTS = Path.of("target", "loadtest-results.csv");
+    private static final Path DISTRIBUTIONS = Path.of("target", "loadtest");
+    private static final String RESULTS_HEADER = "label,model,endpoint,clients,rate,requests,throughput,errors,"
+            + "p50_ms,p99_ms,p999_ms,corrected_p50_ms,corrected_p99_ms,corrected_p999_ms";
+    private static final String[] SEARCH_TERMS = {"a", "e", "an", "ar", "el", "li", "ri", "en"};
+
+    private final Map<String, String> options;
+    private final String url;
+    private final int doctors;
+    private final int patients;
+    private final LocalDateTime firstSlot;
+    private final double visitRatio;
+    private final HttpClient client;
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    private final Endpoint visits = new Endpoint("visits", "POST /api/v1/visits");
+    private final Endpoint patientList = new Endpoint("patients", "GET /api/v1/patients");
+
+    private volatile boolean running = true;
+
+    LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.url = options.getOrDefault("url", "http://localhost:8080");
+        this.doctors = Integer.parseInt(options.getOrDefault("doctors", "5"));
+        this.patients = Integer.parseInt(options.getOrDefault("patients", "10"));
+        this.firstSlot = LocalDateTime.parse(options.getOrDefault("first-slot", "2050-01-01T00:00"));
+        this.visitRatio = Double.parseDouble(options.getOrDefault("visit-ratio", "0.5"));
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            if (pair[0].startsWith("app.")) {
+                applicationArgs.add("--" + arg.replaceFirst("^--", "").substring("app.".length()));
+            } else {
+                options.put(pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+        }
+
+        boolean passed;
+        if (Boolean.parseBoolean(options.getOrDefault("embedded", "false"))) {
+            options.putIfAbsent("doctors", "50");
+            options.putIfAbsent("patients", "1000");
+            try (ConfigurableApplicationContext application = EmbeddedApplication.start(
+                    Integer.parseInt(options.get("doctors")), Integer.parseInt(options.get("patients")),
+                    "mysql".equals(options.get("database")), applicationArgs)) {
+                options.put("url", "http://localhost:" + application.getEnvironment().getProperty("local.server.port"));
+                passed = new LoadTest(options).run();
+            }
+        } else {
+            passed = new LoadTest(options).run();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Runs the test and reports its results.
+     *
+     * @return False if a regression against the baseline was found.
+     */
+    boolean run() throws InterruptedException, IOException {
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        String label = options.getOrDefault("label", "run");
+
+        Run run;
+        if (options.containsKey("rate")) {
+            double rate = Double.parseDouble(options.get("rate"));
+            int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "1000"));
+            System.out.printf("%s: %.0f requests/s against %s, at most %d in flight, %d s warm-up, %d s measurement%n",
+                    label, rate, url, maxInFlight, warmup, duration);
+            run = new Run(label, "open", maxInFlight, rate, duration);
+            openModel(rate, maxInFlight, warmup, duration);
+        } else {
+            int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+            System.out.printf("%s: %d clients against %s, %d s warm-up, %d s measurement%n",
+                    label, clients, url, warmup, duration);
+            run = new Run(label, "closed", clients, 0, duration);
+            closedModel(clients, warmup, duration);
+        }
+
+        Map<String, Result> baseline = options.containsKey("baseline") ? readResults(options.get("baseline")) : Map.of();
+        List<Result> results = List.of(report(run, visits), report(run, patientList));
+        return !options.containsKey("baseline")
+                || compare(results, baseline, Double.parseDouble(options.getOrDefault("tolerance", "10")));
+    }
+
+    private void closedModel(int clients, int warmup, int duration) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.submit(this::clientLoop);
+        }
+        TimeUnit.SECONDS.sleep(warmup);
+        visits.reset();
+        patientList.reset();
+        TimeUnit.SECONDS.sleep(duration);
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void clientLoop() {
+        while (running) {
+            boolean booking = ThreadLocalRandom.current().nextDouble() < visitRatio;
+            Endpoint endpoint = booking ? visits : patientList;
+            HttpRequest request = booking ? bookingRequest() : patientListRequest();
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                success = response.statusCode() / 100 == 2;
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            endpoint.record(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Starts requests on a fixed schedule from this thread and completes them asynchronously. When
+     * {@code maxInFlight} requests are outstanding the schedule is not skipped: later requests are sent
+     * as soon as a slot frees up, and the time they waited counts towards their response time.
+     */
+    private void openModel(double rate, int maxInFlight, int warmup, int duration) throws InterruptedException {
+        double intervalNanos = 1e9 / rate;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long begin = System.nanoTime();
+        long measurementStart = begin + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measurementStart + TimeUnit.SECONDS.toNanos(duration);
+        boolean measuring = false;
+        for (long i = 0; ; i++) {
+            long intended = begin + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            if (!measuring && intended >= measurementStart) {
+                visits.reset();
+                patientList.reset();
+                measuring = true;
+            }
+            long delay = intended - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            inFlight.acquire();
+
+            boolean booking = ThreadLocalRandom.current().nextDouble() < visitRatio;
+            Endpoint endpoint = booking ? visits : patientList;
+            HttpRequest request = booking ? bookingRequest() : patientListRequest();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long completed = System.nanoTime();
+                endpoint.record(completed - sent, completed - intended, error == null && response.statusCode() / 100 == 2);
+                inFlight.release();
+            });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+            System.out.println("Some requests did not complete within a minute after the end of the test");
+        }
+    }
+
+    private HttpRequest bookingRequest() {
+        long slot = nextSlot.getAndIncrement();
+        LocalDateTime start = firstSlot.plusMinutes(slot / doctors * 30);
+        String body = String.format("{\"doctorId\":%d,\"patientId\":%d,\"start\":\"%s\",\"end\":\"%s\"}",
+                slot % doctors + 1, ThreadLocalRandom.current().nextInt(patients) + 1, start, start.plusMinutes(30));
+        return HttpRequest.newBuilder(URI.create(url + "/api/v1/visits"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Builds a patient list request: mostly one of the first pages, which users look at most, and
+     * otherwise a name search or a filter by two doctors.
+     */
+    private HttpRequest patientListRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double kind = random.nextDouble();
+        String query;
+        if (kind < 0.6) {
+            query = "page=" + random.nextInt(random.nextInt(10) + 1) + "&size=20";
+        } else if (kind < 0.8) {
+            String search = SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)];
+            query = "size=20&search=" + URLEncoder.encode(search, StandardCharsets.UTF_8);
+        } else {
+            query = "size=20&doctorIds=" + (random.nextInt(doctors) + 1) + "," + (random.nextInt(doctors) + 1);
+        }
+        return HttpRequest.newBuilder(URI.create(url + "/api/v1/patients?" + query)).GET().build();
+    }
+
+    private Result report(Run run, Endpoint endpoint) throws IOException {
+        Histogram histogram = endpoint.recorder.getIntervalHistogram();
+        Histogram corrected = run.isOpen() ? endpoint.correctedRecorder.getIntervalHistogram() : null;
+        long requests = histogram.getTotalCount();
+        Result result = new Result(endpoint.name, requests, (double) requests / run.duration, endpoint.errors.get(),
+                millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+                corrected == null ? Double.NaN : millis(corrected, 50),
+                corrected == null ? Double.NaN : millis(corrected, 99),
+                corrected == null ? Double.NaN : millis(corrected, 99.9));
+        System.out.printf("%-22s %8d requests %9.1f req/s  errors %6d  p50 %7.2f ms  p99 %7.2f ms  p99.9 %7.2f ms  max %7.2f ms%n",
+                endpoint.name, requests, result.throughput, result.errors,
+                result.p50, result.p99, result.p999, histogram.getMaxValue() / 1e6);
+        if (corrected != null) {
+            System.out.printf("%-22s %8s corrected for coordinated omission         p50 %7.2f ms  p99 %7.2f ms  p99.9 %7.2f ms  max %7.2f ms%n",
+                    "", "", result.correctedP50, result.correctedP99, result.correctedP999, corrected.getMaxValue() / 1e6);
+        }
+
+        Files.createDirectories(RESULTS.getParent());
+        if (!Files.exists(RESULTS)) {
+            Files.writeString(RESULTS, RESULTS_HEADER + "\n");
+        } else if (!RESULTS_HEADER.equals(Files.readAllLines(RESULTS).get(0))) {
+            throw new IllegalStateException(RESULTS + " was written by an older version of the load test, move it away");
+        }
+        Files.writeString(RESULTS, String.format("%s,%s,%s,%d,%.1f,%d,%.1f,%d,%.2f,%.2f,%.2f,%s,%s,%s%n",
+                run.label, run.model, endpoint.name, run.clients, run.rate, requests, result.throughput, result.errors,
+                result.p50, result.p99, result.p999, format(result.correctedP50), format(result.correctedP99),
+                format(result.correctedP999)), StandardOpenOption.APPEND);
+
+        Files.createDirectories(DISTRIBUTIONS);
+        try (PrintStream out = new PrintStream(DISTRIBUTIONS.resolve(run.label + "-" + endpoint.key + ".hgrm").toFile())) {
+            (corrected != null ? corrected : histogram).outputPercentileDistribution(out, 1e6);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the results of the last run with the given label, keyed by endpoint.
+     */
+    private static Map<String, Result> readResults(String label) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        if (!Files.exists(RESULTS)) {
+            return results;
+        }
+        List<String> lines = Files.readAllLines(RESULTS);
+        List<String> columns = Arrays.asList(lines.get(0).split(","));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.split(",", -1);
+            if (values.length != columns.size() || !label.equals(values[columns.indexOf("label")])) {
+                continue;
+            }
+            String endpoint = values[columns.indexOf("endpoint")];
+            results.put(endpoint, new Result(endpoint,
+                    Long.parseLong(values[columns.indexOf("requests")]),
+                    Double.parseDouble(values[columns.indexOf("throughput")]),
+                    Long.parseLong(values[columns.indexOf("errors")]),
+                    parse(values[columns.indexOf("p50_ms")]),
+                    parse(values[columns.indexOf("p99_ms")]),
+                    parse(values[columns.indexOf("p999_ms")]),
+                    parse(values[columns.indexOf("corrected_p50_ms")]),
+                    parse(values[columns.indexOf("corrected_p99_ms")]),
+                    parse(values[columns.indexOf("corrected_p999_ms")])));
+        }
+        return results;
+    }
+
+    /**
+     * Prints the change of the tail latencies against the baseline. Corrected percentiles are compared
+     * when both runs have them, which is the case for open-model runs.
+     *
+     * @return False if a p99 or p99.9 got worse by more than the tolerance.
+     */
+    private boolean compare(List<Result> results, Map<String, Result> baseline, double tolerancePercent) {
+        if (baseline.isEmpty()) {
+            System.out.printf("No results for baseline %s in %s%n", options.get("baseline"), RESULTS);
+            return true;
+        }
+        boolean passed = true;
+        System.out.printf("Compared with %s (tolerance %.0f%%):%n", options.get("baseline"), tolerancePercent);
+        for (Result result : results) {
+            Result base = baseline.get(result.endpoint);
+            if (base == null) {
+                continue;
+            }
+            boolean corrected = !Double.isNaN(result.correctedP99) && !Double.isNaN(base.correctedP99);
+            passed &= compare(result.endpoint, corrected ? "corrected p99" : "p99",
+                    corrected ? base.correctedP99 : base.p99, corrected ? result.correctedP99 : result.p99, tolerancePercent);
+            passed &= compare(result.endpoint, corrected ? "corrected p99.9" : "p99.9",
+                    corrected ? base.correctedP999 : base.p999, corrected ? result.correctedP999 : result.p999, tolerancePercent);
+            System.out.printf("%-22s %-16s %9.1f -> %9.1f req/s%n", result.endpoint, "throughput",
+                    base.throughput, result.throughput);
+        }
+        return passed;
+    }
+
+    private static boolean compare(String endpoint, String metric, double baseline, double current, double tolerancePercent) {
+        double change = baseline > 0 ? (current - baseline) / baseline * 100 : 0;
+        boolean regressed = change > tolerancePercent;
+        System.out.printf("%-22s %-16s %9.2f -> %9.2f ms  %+7.1f%%%s%n",
+                endpoint, metric, baseline, current, change, regressed ? "  REGRESSION" : "");
+        return !regressed;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static String format(double millis) {
+        return Double.isNaN(millis) ? "" : String.format("%.2f", millis);
+    }
+
+    private static double parse(String millis) {
+        return millis.isEmpty() ? Double.NaN : Double.parseDouble(millis);
+    }
+
+    private record Run(String label, String model, int clients, double rate, int duration) {
+        boolean isOpen() {
+            return "open".equals(model);
+        }
+    }
+
+    private record Result(String endpoint, long requests, double throughput, long errors,
+                          double p50, double p99, double p999,
+                          double correctedP50, double correctedP99, double correctedP999) {
+    }
+
+    private static final class Endpoint {
+        private final String key;
+        private final String name;
+        private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final Recorder correctedRecorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        Endpoint(String key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+
+        void record(long latencyNanos, boolean success) {
+            recorder.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * Records a request of the open model.
+         *
+         * @param serviceNanos  The time from sending the request to its response.
+         * @param responseNanos The time from the intended start of the request to its response.
+         * @param success       Whether the response had a 2xx status.
+         */
+        void record(long serviceNanos, long responseNanos, boolean success) {
+            correctedRecorder.recordValue(Math.min(responseNanos, MAX_LATENCY_NANOS));
+            record(serviceNanos, success);
+        }
+
+        void reset() {
+            recorder.reset();
+            correctedRecorder.reset();
+            errors.set(0);
+        }
+    }
+}
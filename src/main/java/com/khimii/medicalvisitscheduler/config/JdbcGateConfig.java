@@ -0,0 +1,56 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application data source into a {@link ConcurrencyLimitedDataSource}
+ * when {@code scheduler.jdbc-gate.enabled} is set.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "scheduler.jdbc-gate", name = "enabled", havingValue = "true")
+public class JdbcGateConfig {
+
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    static BeanPostProcessor jdbcGateBeanPostProcessor(ObjectProvider<SchedulerProperties> schedulerProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || isWrapperOfPools(bean)) {
+                    return bean;
+                }
+                SchedulerProperties.JdbcGate settings = schedulerProperties.getObject().getJdbcGate();
+                int permits = settings.getPermits() > 0 ? settings.getPermits() : poolSize(dataSource);
+                log.info("Limiting data source '{}' to {} concurrent connections", beanName, permits);
+                return new ConcurrencyLimitedDataSource(dataSource, permits, settings.getAcquireTimeout());
+            }
+        };
+    }
+
+    /**
+     * Whether the data source wraps or routes to other data sources, which are limited themselves.
+     */
+    private static boolean isWrapperOfPools(Object dataSource) {
+        return dataSource instanceof DelegatingDataSource || dataSource instanceof AbstractRoutingDataSource;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            int maximumPoolSize = hikariDataSource.getMaximumPoolSize();
+            return maximumPoolSize > 0 ? maximumPoolSize : HIKARI_DEFAULT_POOL_SIZE; // not validated until the pool starts
+        }
+        throw new IllegalStateException("scheduler.jdbc-gate.permits must be set for a non-Hikari data source");
+    }
+}
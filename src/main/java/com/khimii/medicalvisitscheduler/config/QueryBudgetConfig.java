@@ -0,0 +1,27 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the {@link QueryCounter} with Hibernate and the {@link QueryBudgetFilter} checking each request,
+ * unless {@code scheduler.query-budget.enabled} is turned off.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "scheduler.query-budget", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryBudgetConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    @Bean
+    QueryBudgetFilter queryBudgetFilter(SchedulerProperties schedulerProperties, MeterRegistry meterRegistry) {
+        return new QueryBudgetFilter(schedulerProperties.getQueryBudget(), meterRegistry);
+    }
+}
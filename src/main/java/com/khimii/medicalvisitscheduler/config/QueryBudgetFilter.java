@@ -0,0 +1,73 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements of each request with a {@link QueryCounter} and compares them with the
+ * budget of its endpoint, so that an N+1 query pattern shows up before it reaches production.
+ * <p>
+ * The count of every request is recorded in the {@code scheduler.request.statements} summary, tagged
+ * with the endpoint's URI pattern. A request over budget increments
+ * {@code scheduler.request.query.budget.exceeded} and logs a warning, or fails when
+ * {@code scheduler.query-budget.fail-on-exceeded} is set, as it is in tests. Only statements issued on
+ * the request thread are counted; bookings stored by the pipeline workers are not.
+ */
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final String UNMAPPED = "UNKNOWN";
+
+    private final SchedulerProperties.QueryBudget settings;
+    private final MeterRegistry meterRegistry;
+
+    public QueryBudgetFilter(SchedulerProperties.QueryBudget settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int statements;
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            filterChain.doFilter(request, response);
+            statements = scope.getStatements();
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : UNMAPPED;
+        DistributionSummary.builder("scheduler.request.statements")
+                .description("SQL statements prepared by Hibernate while serving a request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statements);
+
+        int budget = settings.budgetOf(request.getMethod(), uri);
+        if (budget <= 0 || statements <= budget) {
+            return;
+        }
+        Counter.builder("scheduler.request.query.budget.exceeded")
+                .description("Requests that prepared more SQL statements than the budget of their endpoint")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .increment();
+        String message = request.getMethod() + " " + uri + " prepared " + statements
+                + " SQL statements, more than its budget of " + budget;
+        if (settings.isFailOnExceeded()) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+}
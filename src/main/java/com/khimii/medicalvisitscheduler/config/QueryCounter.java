@@ -0,0 +1,66 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a {@link Scope} is open.
+ * <p>
+ * Registered as the session factory's statement inspector, it sees every statement Hibernate sends,
+ * including native queries and flushed inserts and updates, and returns them unchanged. Statements
+ * prepared while no scope is open, and statements run through {@code JdbcTemplate}, are not counted.
+ * Scopes nest: a statement counts towards every scope open on the thread.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statements++;
+        }
+        return sql;
+    }
+
+    /**
+     * Starts counting the statements of the current thread until the returned scope is closed.
+     */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private int statements;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * @return The number of statements prepared since the scope was opened.
+         */
+        public int getStatements() {
+            return statements;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            if (CURRENT.get() != this) {
+                throw new IllegalStateException("Query counter scopes must be closed in reverse order of opening");
+            }
+            closed = true;
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
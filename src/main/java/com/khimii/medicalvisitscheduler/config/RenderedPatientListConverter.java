@@ -0,0 +1,48 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link RenderedPatientList} to the response as it is, with its length, instead of letting Jackson
+ * serialize it. Spring Boot puts converter beans ahead of its default ones.
+ */
+@Component
+public class RenderedPatientListConverter extends AbstractHttpMessageConverter<RenderedPatientList> {
+
+    public RenderedPatientListConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return RenderedPatientList.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected RenderedPatientList readInternal(Class<? extends RenderedPatientList> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Rendered patient lists are only written", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(RenderedPatientList list, MediaType contentType) {
+        return list.getContentLength();
+    }
+
+    @Override
+    protected void writeInternal(RenderedPatientList list, HttpOutputMessage outputMessage) throws IOException {
+        list.writeTo(outputMessage.getBody());
+    }
+}
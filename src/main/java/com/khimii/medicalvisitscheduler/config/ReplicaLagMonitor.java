@@ -0,0 +1,111 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the replication lag of a MySQL replica and decides whether reads may be sent to it.
+ * <p>
+ * The replica is usable while {@code SHOW REPLICA STATUS} reports a {@code Seconds_Behind_Source} of at
+ * most the allowed lag. A replica that cannot be reached, does not replicate, or whose replication
+ * threads are stopped is unusable, and so is a replica that has not been checked yet. The check needs
+ * the {@code REPLICATION CLIENT} privilege.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private final DataSource replica;
+    private final long maxLagSeconds;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService executor;
+
+    private volatile boolean available;
+    private volatile boolean checked;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, Duration checkInterval) {
+        this.replica = replica;
+        this.maxLagSeconds = maxLag.toSeconds();
+        this.checkInterval = checkInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts checking the replica every check interval.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::refresh, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks the replica now.
+     */
+    public void refresh() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(checkInterval.toSeconds(), 1));
+            try (ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!status.next()) {
+                    update(Double.NaN, "the server does not replicate from a source");
+                    return;
+                }
+                long secondsBehind = status.getLong("Seconds_Behind_Source");
+                if (status.wasNull()) {
+                    update(Double.NaN, "replication is stopped");
+                } else if (secondsBehind > maxLagSeconds) {
+                    update(secondsBehind, "it is " + secondsBehind + " s behind the source");
+                } else {
+                    update(secondsBehind, null);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            update(Double.NaN, "its status could not be read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Whether reads may be sent to the replica.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return The last reported replication lag in seconds, or NaN if it is unknown.
+     */
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void update(double lagSeconds, String unavailableReason) {
+        this.lagSeconds = lagSeconds;
+        boolean nowAvailable = unavailableReason == null;
+        if (!checked || nowAvailable != available) {
+            if (nowAvailable) {
+                log.info("Sending reads to the replica, {} s behind the source", (long) lagSeconds);
+            } else {
+                log.warn("Sending reads to the primary because {}", unavailableReason);
+            }
+        }
+        available = nowAvailable;
+        checked = true;
+    }
+}
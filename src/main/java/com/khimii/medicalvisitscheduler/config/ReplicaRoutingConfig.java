@@ -0,0 +1,92 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica when {@code scheduler.replica.enabled} is set.
+ * <p>
+ * The primary pool is built from {@code spring.datasource} and the replica pool from
+ * {@code scheduler.replica.datasource}, so each has its own size. The application data source is a
+ * {@link LazyConnectionDataSourceProxy} that borrows a connection only when the first statement runs;
+ * by then a {@code @Transactional(readOnly = true)} transaction has marked it read-only, and it is taken
+ * from the {@link ReplicaRoutingDataSource} instead of the primary. Flyway, bookings and every other
+ * transaction keep using the primary.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "scheduler.replica", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("scheduler.replica.datasource")
+    HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                        SchedulerProperties schedulerProperties) {
+        SchedulerProperties.Replica settings = schedulerProperties.getReplica();
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replicaDataSource, settings.getMaxLag(),
+                settings.getLagCheckInterval());
+        monitor.start();
+        return monitor;
+    }
+
+    @Bean
+    ReplicaRoutingDataSource readOnlyDataSource(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                                @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                ReplicaLagMonitor replicaLagMonitor) {
+        return new ReplicaRoutingDataSource(replicaDataSource, primaryDataSource, replicaLagMonitor);
+    }
+
+    @Bean
+    @Primary
+    LazyConnectionDataSourceProxy dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                             ReplicaRoutingDataSource readOnlyDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(readOnlyDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    MeterBinder replicaMetrics(ReplicaLagMonitor replicaLagMonitor, ReplicaRoutingDataSource readOnlyDataSource) {
+        return registry -> {
+            Gauge.builder("scheduler.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagSeconds)
+                    .description("Replication lag reported by the replica; NaN while it is unknown")
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("scheduler.replica.available", replicaLagMonitor, monitor -> monitor.isAvailable() ? 1 : 0)
+                    .description("Whether read-only transactions are sent to the replica")
+                    .register(registry);
+            FunctionCounter.builder("scheduler.replica.reads", readOnlyDataSource,
+                            ReplicaRoutingDataSource::getReplicaReads)
+                    .description("Read-only connections taken from the replica or, while it lags, from the primary")
+                    .tag("target", "replica")
+                    .register(registry);
+            FunctionCounter.builder("scheduler.replica.reads", readOnlyDataSource,
+                            ReplicaRoutingDataSource::getPrimaryReads)
+                    .description("Read-only connections taken from the replica or, while it lags, from the primary")
+                    .tag("target", "primary")
+                    .register(registry);
+        };
+    }
+}
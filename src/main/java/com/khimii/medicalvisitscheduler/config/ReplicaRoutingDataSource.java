@@ -0,0 +1,52 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Data source for read-only transactions: hands out replica connections while the {@link ReplicaLagMonitor}
+ * considers the replica usable, and primary connections otherwise.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String REPLICA = "replica";
+    private static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor monitor;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource replica, DataSource primary, ReplicaLagMonitor monitor) {
+        this.monitor = monitor;
+        setTargetDataSources(Map.of(REPLICA, replica, PRIMARY, primary));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return The number of read-only connections taken from the replica.
+     */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return The number of read-only connections taken from the primary because the replica was unusable.
+     */
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (monitor.isAvailable()) {
+            replicaReads.increment();
+            return REPLICA;
+        }
+        primaryReads.increment();
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,362 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Application specific settings bound from the {@code scheduler.*} properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "scheduler")
+public class SchedulerProperties {
+
+    private DoctorStats doctorStats = new DoctorStats();
+    private Batch batch = new Batch();
+    private ReferenceCache referenceCache = new ReferenceCache();
+    private DoctorIndex scheduleIndex = new DoctorIndex();
+    private DoctorIndex calendarIndex = new DoctorIndex();
+    private JdbcGate jdbcGate = new JdbcGate();
+    private Availability availability = new Availability();
+    private Booking booking = new Booking();
+    private Pipeline pipeline = new Pipeline();
+    private AsyncBooking asyncBooking = new AsyncBooking();
+    private Idempotency idempotency = new Idempotency();
+    private QueryBudget queryBudget = new QueryBudget();
+    private Replica replica = new Replica();
+    private Export export = new Export();
+    private PatientSearch patientSearch = new PatientSearch();
+    private PatientListCache patientListCache = new PatientListCache();
+
+    @Getter
+    @Setter
+    public static class DoctorStats {
+        /**
+         * Whether to keep in-memory HyperLogLog sketches of unique patients per doctor, served by
+         * {@code GET /api/v1/doctors/{id}/patients/approximate-count}.
+         */
+        private boolean hyperLogLogEnabled = false;
+
+        /**
+         * Number of index bits of each sketch; 12 uses 4 KB per doctor with a standard error of about 1.6%.
+         */
+        private int hyperLogLogPrecision = 12;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        /**
+         * Largest number of visits accepted by a single batch booking request.
+         */
+        private int maxSize = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class ReferenceCache {
+        /**
+         * Largest number of doctor snapshots kept in memory.
+         */
+        private long maximumDoctors = 10_000;
+
+        /**
+         * Largest number of patient snapshots kept in memory.
+         */
+        private long maximumPatients = 100_000;
+
+        /**
+         * How long a snapshot is served after it was loaded, bounding staleness of changes made outside the application.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class DoctorIndex {
+        /**
+         * Largest number of doctors whose visits are kept in memory; the least recently used are dropped first.
+         */
+        private long maximumDoctors = 10_000;
+
+        /**
+         * How long the visits of a doctor are kept after they were last used; they are reloaded on next use.
+         */
+        private Duration expireAfterAccess = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class JdbcGate {
+        /**
+         * Whether to limit the number of concurrently borrowed connections in front of the pool.
+         * Meant for running on virtual threads, where request concurrency is no longer bounded by Tomcat.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of connections that may be borrowed at once; 0 uses the maximum size of the Hikari pool.
+         */
+        private int permits = 0;
+
+        /**
+         * How long a request waits for a connection before failing.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Availability {
+        /**
+         * Longest time range, in days, a single availability query may cover.
+         */
+        private int maxRangeDays = 31;
+
+        /**
+         * Largest number of doctors a single first-available search may cover.
+         */
+        private int maxSearchDoctors = 500;
+
+        /**
+         * Largest number of slots a single first-available search may return.
+         */
+        private int maxSearchSlots = 100;
+
+        /**
+         * Number of threads searching doctors' calendars in parallel; 0 uses one per available processor.
+         */
+        private int searchParallelism = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Booking {
+        /**
+         * Number of locks doctors are hashed onto to serialize their bookings within this node.
+         */
+        private int lockStripes = 1024;
+
+        /**
+         * How long a booking waits for another booking of the same doctor before failing.
+         */
+        private Duration lockTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Whether to also lock the doctor's row with {@code SELECT ... FOR UPDATE}, which serializes bookings
+         * across nodes. Conflicts are then always checked against the database instead of the schedule index.
+         */
+        private boolean databaseLock = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /**
+         * Whether single bookings are handed to partitioned worker threads that group-commit them.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of workers; each owns the doctors whose ID modulo this number equals its index.
+         */
+        private int partitions = 4;
+
+        /**
+         * Largest number of bookings a worker stores in one transaction.
+         */
+        private int maxBatchSize = 64;
+
+        /**
+         * Number of bookings that may wait for each worker before new ones are refused.
+         */
+        private int queueCapacity = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class AsyncBooking {
+        /**
+         * Largest number of asynchronous bookings whose status is kept for polling.
+         */
+        private long maximumTracked = 100_000;
+
+        /**
+         * How long the status of an asynchronous booking is kept for polling after submission. Its idempotency
+         * key is kept by the idempotency settings.
+         */
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+        /**
+         * Largest number of idempotency keys whose responses are kept in memory.
+         */
+        private long maximumKeys = 100_000;
+
+        /**
+         * How long a response is replayed for retries carrying the same idempotency key.
+         */
+        private Duration retention = Duration.ofHours(24);
+
+        /**
+         * Whether keys are also reserved in the {@code idempotency_keys} table before the request runs, and
+         * responses stored there, so that retries are recognised after a restart or by another instance.
+         */
+        private boolean persistent = false;
+
+        /**
+         * How long a key reserved in the table by a request that has not finished blocks retries; after that
+         * the request is assumed lost, e.g. with its instance, and a retry runs it again.
+         */
+        private Duration pendingTimeout = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class QueryBudget {
+        /**
+         * Whether to count the SQL statements of each request and compare them with its budget.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Largest number of SQL statements a request may prepare unless its endpoint has its own budget;
+         * 0 leaves requests unchecked.
+         */
+        private int maxStatements = 20;
+
+        /**
+         * Budgets of single endpoints, keyed by method and URI pattern, e.g. {@code GET /api/v1/patients};
+         * 0 leaves the endpoint unchecked.
+         */
+        private Map<String, Integer> endpoints = new HashMap<>();
+
+        /**
+         * Whether a request over budget fails instead of logging a warning; meant for tests.
+         */
+        private boolean failOnExceeded = false;
+
+        /**
+         * @return The statement budget of the endpoint, or 0 if it is unchecked.
+         */
+        public int budgetOf(String method, String uriPattern) {
+            return endpoints.getOrDefault(method + " " + uriPattern, maxStatements);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        /**
+         * Whether {@code @Transactional(readOnly = true)} work is sent to a replica, whose connection pool is
+         * configured with Hikari's settings under {@code scheduler.replica.datasource}, e.g. {@code jdbc-url}
+         * and {@code maximum-pool-size}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Largest replication lag at which reads are still sent to the replica; above it they go to the primary.
+         */
+        private Duration maxLag = Duration.ofSeconds(5);
+
+        /**
+         * How often the replication lag is checked.
+         */
+        private Duration lagCheckInterval = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+        /**
+         * Rows fetched per round trip while exporting; {@link Integer#MIN_VALUE} makes MySQL Connector/J stream
+         * the rows one by one instead of reading the whole result into memory. Other databases need a positive size.
+         */
+        private int fetchSize = Integer.MIN_VALUE;
+
+        /**
+         * Longest time an export may take, from running the query to handing over the last row. It is checked
+         * before each row, so a slow client or a long stream is cut off mid-export, and the query is cancelled
+         * so that it releases its pooled connection.
+         */
+        private Duration timeout = Duration.ofMinutes(10);
+    }
+
+    @Getter
+    @Setter
+    public static class PatientSearch {
+
+        /**
+         * How patients are searched by name.
+         */
+        public enum Backend {
+            /**
+             * An in-memory trigram index of all patient names, built at startup.
+             */
+            NGRAM,
+            /**
+             * A MySQL {@code FULLTEXT} index with the ngram parser; needs the {@code fulltext-search} profile.
+             */
+            FULLTEXT,
+            /**
+             * {@code LIKE '%search%'} on every patient row.
+             */
+            LIKE
+        }
+
+        private Backend backend = Backend.NGRAM;
+
+        /**
+         * Largest number of patients a search may narrow the list down to; broader searches use {@code LIKE}.
+         */
+        private int maxCandidates = 1000;
+
+        /**
+         * How often patients added since the last refresh are indexed by the ngram backend.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(5);
+
+        /**
+         * How often the ngram index is rebuilt from scratch, which picks up renamed and deleted patients.
+         */
+        private Duration rebuildInterval = Duration.ofHours(1);
+
+        /**
+         * Patients read per query while building the ngram index.
+         */
+        private int loadBatchSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class PatientListCache {
+        /**
+         * Whether pages of the patient list are cached.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached pages.
+         */
+        private long maximumSize = 1000;
+
+        /**
+         * How long a page is cached; bounds how late the list shows changes not made by bookings,
+         * such as visits completing as time passes.
+         */
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        /**
+         * Maximum number of patients whose pre-rendered JSON is kept for building pages.
+         */
+        private long maximumPatients = 100_000;
+    }
+}
@@ -0,0 +1,105 @@
+package com.khimii.medicalvisitscheduler.controller;
+
+import com.khimii.medicalvisitscheduler.model.dto.DoctorAvailabilityResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorPatientEstimateResponse;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableResponse;
+import com.khimii.medicalvisitscheduler.service.DoctorService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/doctors")
+@RequiredArgsConstructor
+@Tag(name = "Doctors", description = "Endpoints for doctors' schedules")
+public class DoctorController {
+    private final DoctorService doctorService;
+
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get free slots of a doctor",
+            description = "Returns the free windows of a doctor within a range that can fit a visit of the given length. "
+                    + "Times are in the doctor's time zone and aligned to 5 minutes.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Free windows retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DoctorAvailabilityResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid range or duration",
+                    content = @Content(mediaType = "text/plain")),
+            @ApiResponse(responseCode = "404", description = "Doctor not found",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<DoctorAvailabilityResponse> getAvailability(
+            @PathVariable
+            @Parameter(description = "ID of the doctor") Long id,
+
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Start of the range in the doctor's local time, e.g. 2025-03-10T08:00") LocalDateTime from,
+
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "End of the range in the doctor's local time") LocalDateTime to,
+
+            @RequestParam(defaultValue = "30")
+            @Parameter(description = "Visit length in minutes (default is 30)") int duration) {
+        return doctorService.getAvailability(id, from, to, duration)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @GetMapping("/{id}/patients/approximate-count")
+    @Operation(summary = "Estimate the unique patients of a doctor",
+            description = "Returns the approximate number of unique patients of a doctor from an in-memory HyperLogLog "
+                    + "sketch, within about 1.6% by default. Available when scheduler.doctor-stats.hyper-log-log-enabled is set.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Estimate retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = DoctorPatientEstimateResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Doctor not found or estimates disabled",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<DoctorPatientEstimateResponse> estimateTotalPatients(
+            @PathVariable
+            @Parameter(description = "ID of the doctor") Long id) {
+        return doctorService.estimateTotalPatients(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    @GetMapping("/first-available")
+    @Operation(summary = "Find the first available slots",
+            description = "Returns the earliest slots that can fit a visit of the given length with any of the doctors, "
+                    + "ordered by start time. Each slot is given in UTC and in its doctor's time zone.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Slots retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = FirstAvailableResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid doctors, duration or limit",
+                    content = @Content(mediaType = "text/plain"))
+    })
+    public ResponseEntity<FirstAvailableResponse> findFirstAvailable(
+            @RequestParam
+            @Parameter(description = "List of doctor IDs to search") List<Long> doctorIds,
+
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Earliest start with an offset, e.g. 2025-03-10T08:00Z (default is now)") OffsetDateTime from,
+
+            @RequestParam(defaultValue = "30")
+            @Parameter(description = "Visit length in minutes (default is 30)") int duration,
+
+            @RequestParam(defaultValue = "10")
+            @Parameter(description = "Number of slots to return (default is 10)") int limit) {
+        return ResponseEntity.ok(doctorService.findFirstAvailable(doctorIds, from, duration, limit));
+    }
+}
@@ -1,6 +1,8 @@
 package com.khimii.medicalvisitscheduler.controller;
 
 import com.khimii.medicalvisitscheduler.model.dto.PatientListResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.service.PatientExportService;
 import com.khimii.medicalvisitscheduler.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,35 +11,51 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("api/v1/patients")
 @RequiredArgsConstructor
 @Tag(name = "Patients", description = "Endpoints for managing patients")
 public class PatientController {
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final PatientService patientService;
+    private final PatientExportService patientExportService;
 
     @GetMapping
-    @Operation(summary = "Get a list of patients", description = "Returns a paginated list of patients who have completed visits.")
+    @Operation(summary = "Get a list of patients", description = "Returns a paginated list of patients who have completed visits. "
+            + "Supports page numbers or opaque cursors (keyset pagination). Responses carry an ETag; a request "
+            + "sending it back in If-None-Match gets 304 when the page has not changed.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "List of patients retrieved successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = PatientListResponse.class))),
+            @ApiResponse(responseCode = "304", description = "The page has not changed since the ETag in If-None-Match",
+                    content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid request parameters",
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "404", description = "No patients found matching the criteria",
                     content = @Content(mediaType = "application/json"))
     })
-    public ResponseEntity<PatientListResponse> getPatients(
+    public ResponseEntity<RenderedPatientList> getPatients(
             @RequestParam(defaultValue = "0")
             @Parameter(description = "Page number (default is 0)") int page,
 
@@ -45,15 +63,109 @@ public class PatientController {
             @Parameter(description = "Page size (default is 10)") int size,
 
             @RequestParam(required = false)
-            @Parameter(description = "Search term for filtering patients by first name") String search,
+            @Parameter(description = "Search term for filtering patients by part of their first or last name") String search,
+
+            @RequestParam(required = false)
+            @Parameter(description = "List of doctor IDs to filter patients") List<Long> doctorIds,
+
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "Use cursor (keyset) pagination instead of page numbers") boolean cursor,
 
             @RequestParam(required = false)
-            @Parameter(description = "List of doctor IDs to filter patients") List<Long> doctorIds) {
+            @Parameter(description = "Cursor returned as nextCursor by the previous page; implies cursor mode") String after,
+
+            @RequestParam(defaultValue = "false")
+            @Parameter(description = "Whether to compute the total count in cursor mode") boolean includeCount) {
         if (page < 0 || size < 1) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        return patientService.getPatients(page, size, search, doctorIds)
-                .map(ResponseEntity::ok)
+        Optional<RenderedPatientList> patients = cursor || after != null
+                ? patientService.getPatientsAfter(after, size, search, doctorIds, includeCount)
+                : patientService.getPatients(page, size, search, doctorIds);
+        // Spring answers 304 without writing the body when the tag matches If-None-Match
+        return patients
+                .map(list -> ResponseEntity.ok().eTag(list.getEntityTag()).body(list))
                 .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
     }
-}
\ No newline at end of file
+
+    @GetMapping("/export")
+    @Operation(summary = "Export patients", description = "Streams every patient with a completed visit, with that visit, "
+            + "as newline-delimited JSON or CSV, one patient per line ordered by ID. Rows are written while they are read "
+            + "from the database, and compressed with gzip when the client accepts it. The export keeps a database "
+            + "connection until the last row is sent, and is cut off after scheduler.export.timeout.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Patients streamed successfully",
+                    content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Unknown export format",
+                    content = @Content(mediaType = "text/plain"))
+    })
+    public void exportPatients(
+            @RequestParam(defaultValue = "ndjson")
+            @Parameter(description = "Export format: ndjson or csv") String format,
+
+            @RequestParam(required = false)
+            @Parameter(description = "Search term for filtering patients by part of their first or last name") String search,
+
+            @RequestParam(required = false)
+            @Parameter(description = "List of doctor IDs to filter patients") List<Long> doctorIds,
+
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        PatientExportService.Format exportFormat = PatientExportService.Format.of(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("patients." + exportFormat.getFileExtension()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream body = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream compressed = new GZIPOutputStream(body, GZIP_BUFFER_SIZE)) {
+                patientExportService.export(search, doctorIds, exportFormat, compressed);
+            }
+        } else {
+            patientExportService.export(search, doctorIds, exportFormat, body);
+        }
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header allows gzip: listed with a non-zero quality, or not
+     * listed while {@code *} has a non-zero quality. Codings with {@code q=0} are refused.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return quality(parameters) > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = quality(parameters) > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    /**
+     * @return The {@code q} parameter of a coding, 1 if it has none, or 0 if it is malformed.
+     */
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
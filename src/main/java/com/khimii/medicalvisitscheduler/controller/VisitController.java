@@ -1,17 +1,26 @@
 package com.khimii.medicalvisitscheduler.controller;
 
+import com.khimii.medicalvisitscheduler.model.dto.BookingStatusResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
 import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.service.BookingPipeline;
+import com.khimii.medicalvisitscheduler.service.BookingTracker;
+import com.khimii.medicalvisitscheduler.service.IdempotencyStore;
 import com.khimii.medicalvisitscheduler.service.VisitService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("api/v1/visits")
@@ -19,19 +28,93 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "Visits", description = "Endpoints for managing medical visits")
 public class VisitController {
     private final VisitService visitService;
+    private final BookingPipeline bookingPipeline;
+    private final BookingTracker bookingTracker;
+    private final IdempotencyStore idempotencyStore;
 
     @PostMapping
-    @Operation(summary = "Create a new visit", description = "Schedules a new visit for a patient with a doctor.")
+    @Operation(summary = "Create a new visit", description = "Schedules a new visit for a patient with a doctor. "
+            + "With the booking pipeline enabled, the response is sent once the worker owning the doctor has stored the visit. "
+            + "Retries sent with the same Idempotency-Key header get the original response back without booking again.")
     @ApiResponse(responseCode = "200", description = "Visit created successfully")
-    @ApiResponse(responseCode = "400", description = "Invalid request or doctor unavailable",
+    @ApiResponse(responseCode = "400", description = "Invalid request, doctor unavailable, or idempotency key too long "
+            + "or already used for a different visit", content = @Content(mediaType = "text/plain"))
+    @ApiResponse(responseCode = "409", description = "A request with the same idempotency key is still in progress",
+            content = @Content(mediaType = "text/plain"))
+    public CompletableFuture<ResponseEntity<String>> createVisit(
+            @RequestBody VisitRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false)
+            @Parameter(description = "Client-chosen key identifying retries of the same request") String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return bookVisit(request);
+        }
+        return idempotencyStore.execute(idempotencyKey, IdempotencyStore.Operation.BOOK, request, () -> bookVisit(request)
+                        .thenApply(response -> new IdempotencyStore.StoredResponse(
+                                response.getStatusCode().value(), response.getBody(), false)))
+                .thenApply(stored -> ResponseEntity.status(stored.status())
+                        .header("Idempotent-Replayed", String.valueOf(stored.replayed()))
+                        .body(stored.body()));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create visits in bulk",
+            description = "Schedules many visits in one request. Each visit is accepted or rejected on its own; "
+                    + "the response lists the outcome of every request in the order they were sent.")
+    @ApiResponse(responseCode = "200", description = "Batch processed, see the per-visit results")
+    @ApiResponse(responseCode = "400", description = "Batch too large or visits booked concurrently",
             content = @Content(mediaType = "text/plain"))
-    public ResponseEntity<String> createVisit(@RequestBody VisitRequest request) {
+    public ResponseEntity<?> createVisits(@RequestBody List<VisitRequest> requests) {
         try {
-            visitService.createVisit(request);
-            return ResponseEntity.ok("Visit created successfully");
+            VisitBatchResponse response = visitService.createVisits(requests);
+            return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
 
+    @PostMapping("/async")
+    @Operation(summary = "Submit a visit for booking",
+            description = "Queues a visit and answers at once with a booking ID whose status can be polled. "
+                    + "Retries sent with the same Idempotency-Key header return the original booking instead of booking again.")
+    @ApiResponse(responseCode = "202", description = "Booking accepted, poll the Location for its status")
+    @ApiResponse(responseCode = "400", description = "Idempotency key too long or already used for a different visit",
+            content = @Content(mediaType = "text/plain"))
+    @ApiResponse(responseCode = "409", description = "A request with the same idempotency key is still in progress",
+            content = @Content(mediaType = "text/plain"))
+    public ResponseEntity<BookingStatusResponse> createVisitAsync(
+            @RequestBody VisitRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false)
+            @Parameter(description = "Client-chosen key identifying retries of the same request") String idempotencyKey) {
+        BookingStatusResponse booking = bookingTracker.submit(request, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/visits/bookings/" + booking.getBookingId()))
+                .body(booking);
+    }
+
+    @GetMapping("/bookings/{id}")
+    @Operation(summary = "Get the status of a booking",
+            description = "Returns whether an asynchronous booking is still pending, was created or was rejected, with the reason.")
+    @ApiResponse(responseCode = "200", description = "Booking status retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Booking unknown or expired")
+    public ResponseEntity<BookingStatusResponse> getBookingStatus(
+            @PathVariable @Parameter(description = "ID of the booking") String id) {
+        return bookingTracker.findStatus(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    private CompletableFuture<ResponseEntity<String>> bookVisit(VisitRequest request) {
+        if (bookingPipeline.isEnabled()) {
+            return bookingPipeline.submit(request)
+                    .thenApply(created -> ResponseEntity.ok("Visit created successfully"))
+                    .exceptionally(e -> ResponseEntity.badRequest().body(
+                            (e instanceof CompletionException ? e.getCause() : e).getMessage()));
+        }
+        try {
+            visitService.createVisit(request);
+            return CompletableFuture.completedFuture(ResponseEntity.ok("Visit created successfully"));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+    }
+}
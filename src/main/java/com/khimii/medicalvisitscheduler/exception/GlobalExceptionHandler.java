@@ -20,4 +20,9 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body("Invalid request parameters: " + ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ResponseEntity<String> handleIdempotencyKeyInUseException(IdempotencyKeyInUseException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+}
@@ -0,0 +1,11 @@
+package com.khimii.medicalvisitscheduler.exception;
+
+/**
+ * Thrown when a request carries an idempotency key whose first request is still running on another instance.
+ */
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+    public IdempotencyKeyInUseException(String key) {
+        super("A request with idempotency key " + key + " is still in progress. Please try again.");
+    }
+}
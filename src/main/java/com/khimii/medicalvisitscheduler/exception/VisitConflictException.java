@@ -0,0 +1,11 @@
+package com.khimii.medicalvisitscheduler.exception;
+
+/**
+ * Thrown when a visit overlaps a visit already booked with the same doctor.
+ */
+public class VisitConflictException extends RuntimeException {
+
+    public VisitConflictException() {
+        super("Doctor is not available at this time");
+    }
+}
@@ -32,8 +32,8 @@ public class Doctor {
 
     /**
      * The total number of unique patients the doctor has had visits with.
-     * This is a derived value using a database formula.
+     * Read from the incrementally maintained {@code doctor_patient_stats} counter by primary key.
      */
-    @Formula("(SELECT COUNT(DISTINCT v.patient_id) FROM visits v WHERE v.doctor_id = id)")
+    @Formula("COALESCE((SELECT s.total_patients FROM doctor_patient_stats s WHERE s.doctor_id = id), 0)")
     private int totalPatients;
 }
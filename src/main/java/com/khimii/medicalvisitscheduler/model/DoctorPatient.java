@@ -0,0 +1,35 @@
+package com.khimii.medicalvisitscheduler.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Entity recording that a doctor has had at least one visit with a patient.
+ * Used to detect the first visit of a (doctor, patient) pair when maintaining {@link DoctorPatientStats}.
+ */
+@Entity
+@Table(name = "doctor_patients")
+@IdClass(DoctorPatient.Key.class)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DoctorPatient {
+    @Id
+    private Long doctorId;
+
+    @Id
+    private Long patientId;
+
+    @Getter
+    @Setter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long doctorId;
+        private Long patientId;
+    }
+}
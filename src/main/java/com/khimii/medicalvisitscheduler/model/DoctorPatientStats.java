@@ -0,0 +1,25 @@
+package com.khimii.medicalvisitscheduler.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Entity holding the number of unique patients a doctor has had visits with.
+ * Incremented transactionally when a (doctor, patient) pair is booked for the first time.
+ */
+@Entity
+@Table(name = "doctor_patient_stats")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DoctorPatientStats {
+    @Id
+    private Long doctorId;
+
+    @Column(nullable = false)
+    private int totalPatients;
+}
@@ -0,0 +1,40 @@
+package com.khimii.medicalvisitscheduler.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stored response of a request sent with an {@code Idempotency-Key} header, replayed for retries of that request.
+ * The row is inserted before the request runs, with status code {@link #PENDING}, and completed with its response.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(columnList = "createdAt"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKey {
+    public static final int MAX_KEY_LENGTH = 128;
+    public static final int PENDING = 0;
+
+    @Id
+    @Column(name = "idempotency_key", length = MAX_KEY_LENGTH)
+    private String key;
+
+    @Column(nullable = false)
+    private String requestFingerprint; // The request fields the key was first used with.
+
+    @Column(nullable = false)
+    private int statusCode; // PENDING while the request is running.
+
+    @Column(length = 1000)
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt; // Stored in UTC.
+}
@@ -0,0 +1,42 @@
+package com.khimii.medicalvisitscheduler.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model holding the latest visit of each patient.
+ * Maintained incrementally on every booking and rebuilt from {@code visits} by migrations.
+ */
+@Entity
+@Table(name = "patient_last_visit", indexes = {
+        @Index(columnList = "doctor_id"),
+        @Index(columnList = "startDateTime, patient_id")
+})
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PatientLastVisit {
+    @Id
+    private Long patientId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Column(nullable = false)
+    private LocalDateTime startDateTime; // The start date and time of the latest visit, stored in UTC.
+
+    @Column(nullable = false)
+    private LocalDateTime endDateTime; // The end date and time of the latest visit, stored in UTC.
+}
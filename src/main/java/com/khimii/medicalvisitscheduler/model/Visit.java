@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
  * Entity representing a medical visit between a doctor and a patient.
  */
 @Entity
-@Table(name = "visits", uniqueConstraints = @UniqueConstraint(columnNames = {"doctor_id", "startDateTime"}))
+@Table(name = "visits", uniqueConstraints = @UniqueConstraint(columnNames = {"doctor_id", "startDateTime"}), indexes = {
+        @Index(name = "idx_visits_doctor_start_end", columnList = "doctor_id, startDateTime, endDateTime")
+})
 @Getter
 @Setter
 @Builder
@@ -18,7 +20,7 @@ import java.time.LocalDateTime;
 public class Visit {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    private Long id; // Batches of visits are inserted through VisitBatchRepository, which reads the IDs back.
 
     @Version
     private Integer version; // Optimistic locking version to prevent concurrent modification conflicts.
@@ -0,0 +1,14 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A free window in a doctor's calendar, in the doctor's local time.
+ */
+@Getter
+@AllArgsConstructor
+public class AvailabilitySlot {
+    private String start;
+    private String end;
+}
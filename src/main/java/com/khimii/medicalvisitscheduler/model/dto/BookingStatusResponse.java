@@ -0,0 +1,23 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * State of an asynchronous booking.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingStatusResponse {
+    private String bookingId;
+    private Status status;
+    private String error;
+
+    public enum Status {
+        PENDING,
+        CREATED,
+        REJECTED
+    }
+}
@@ -0,0 +1,14 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class DoctorAvailabilityResponse {
+    private Long doctorId;
+    private String timezone;
+    private List<AvailabilitySlot> slots;
+}
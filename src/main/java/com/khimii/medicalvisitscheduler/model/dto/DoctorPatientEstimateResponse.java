@@ -0,0 +1,11 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DoctorPatientEstimateResponse {
+    private Long doctorId;
+    private long approximateTotalPatients;
+}
@@ -0,0 +1,21 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import com.khimii.medicalvisitscheduler.model.Doctor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable copy of a doctor's reference data, safe to share between requests and threads.
+ */
+@Getter
+@AllArgsConstructor
+public class DoctorSnapshot {
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+    private final String timezone;
+
+    public static DoctorSnapshot from(Doctor doctor) {
+        return new DoctorSnapshot(doctor.getId(), doctor.getFirstName(), doctor.getLastName(), doctor.getTimezone());
+    }
+}
@@ -0,0 +1,12 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class FirstAvailableResponse {
+    private List<FirstAvailableSlot> slots;
+}
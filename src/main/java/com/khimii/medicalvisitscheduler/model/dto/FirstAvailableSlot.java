@@ -0,0 +1,17 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A free visit slot with a doctor; {@code start} and {@code end} are in the doctor's local time.
+ */
+@Getter
+@AllArgsConstructor
+public class FirstAvailableSlot {
+    private Long doctorId;
+    private String timezone;
+    private String startUtc;
+    private String start;
+    private String end;
+}
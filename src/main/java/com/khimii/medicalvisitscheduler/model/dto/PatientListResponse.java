@@ -1,17 +1,26 @@
 package com.khimii.medicalvisitscheduler.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import java.util.List;
 
+/**
+ * The JSON shape of a page of the patient list. Pages are written as {@link RenderedPatientList}.
+ */
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PatientListResponse {
     private List<PatientResponse> data;
-    private int count;
-}
+    private Integer count; // null in cursor mode unless the total was requested
+    private String nextCursor; // set in cursor mode when another page is available
 
+    public PatientListResponse(List<PatientResponse> data, Integer count) {
+        this(data, count, null);
+    }
+}
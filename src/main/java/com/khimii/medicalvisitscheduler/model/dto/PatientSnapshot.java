@@ -0,0 +1,20 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import com.khimii.medicalvisitscheduler.model.Patient;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable copy of a patient's reference data, safe to share between requests and threads.
+ */
+@Getter
+@AllArgsConstructor
+public class PatientSnapshot {
+    private final Long id;
+    private final String firstName;
+    private final String lastName;
+
+    public static PatientSnapshot from(Patient patient) {
+        return new PatientSnapshot(patient.getId(), patient.getFirstName(), patient.getLastName());
+    }
+}
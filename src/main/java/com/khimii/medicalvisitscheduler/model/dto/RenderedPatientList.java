@@ -0,0 +1,107 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A page of the patient list as UTF-8 JSON, in the shape of {@link PatientListResponse}, made of the
+ * pre-rendered JSON of each patient. Writing it copies the bytes without serializing anything.
+ * Immutable, so it can be cached and shared between requests, as can its patients.
+ */
+public class RenderedPatientList {
+
+    private static final byte[] DATA_START = "{\"data\":[".getBytes(StandardCharsets.UTF_8);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<Patient> patients;
+    private final byte[] end;
+
+    /**
+     * The number of patients on the page.
+     */
+    @Getter
+    private final int size;
+
+    /**
+     * The length of the JSON in bytes.
+     */
+    @Getter
+    private final long contentLength;
+
+    /**
+     * A weak entity tag derived from the hashes of the patients and of the fields after them.
+     */
+    @Getter
+    private final String entityTag;
+
+    /**
+     * The JSON object of a patient, as written by Jackson for a {@link PatientResponse}, with its 64-bit
+     * FNV-1a hash.
+     */
+    public record Patient(byte[] json, long hash) {
+
+        public static Patient of(byte[] json) {
+            return new Patient(json, RenderedPatientList.hash(FNV_OFFSET_BASIS, json));
+        }
+    }
+
+    /**
+     * @param patients   The patients on the page.
+     * @param count      The total number of patients, or null to leave it out.
+     * @param nextCursor The cursor of the next page, or null to leave it out.
+     */
+    public RenderedPatientList(List<Patient> patients, Integer count, String nextCursor) {
+        this.patients = List.copyOf(patients);
+        this.end = renderEnd(count, nextCursor);
+        this.size = patients.size();
+        long length = DATA_START.length + Math.max(0, size - 1) + end.length;
+        long hash = FNV_OFFSET_BASIS;
+        for (Patient patient : this.patients) {
+            length += patient.json().length;
+            hash = (hash ^ patient.hash()) * FNV_PRIME;
+        }
+        this.contentLength = length;
+        this.entityTag = "W/\"" + Long.toHexString(hash(hash, end)) + '"';
+    }
+
+    /**
+     * Writes the JSON to the stream, which is neither flushed nor closed.
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        output.write(DATA_START);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(patients.get(i).json());
+        }
+        output.write(end);
+    }
+
+    /**
+     * Renders what follows the last patient: the end of the array, the optional fields and the closing brace.
+     */
+    private static byte[] renderEnd(Integer count, String nextCursor) {
+        StringBuilder json = new StringBuilder("]");
+        if (count != null) {
+            json.append(",\"count\":").append(count);
+        }
+        if (nextCursor != null) {
+            json.append(",\"nextCursor\":\"").append(JsonStringEncoder.getInstance().quoteAsString(nextCursor)).append('"');
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long hash(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,31 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a single visit request within a batch, referring to the request by its position.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class VisitBatchItemResult {
+    private int index;
+    private Status status;
+    private Long visitId;
+    private String error;
+
+    public static VisitBatchItemResult created(int index, Long visitId) {
+        return new VisitBatchItemResult(index, Status.CREATED, visitId, null);
+    }
+
+    public static VisitBatchItemResult rejected(int index, String error) {
+        return new VisitBatchItemResult(index, Status.REJECTED, null, error);
+    }
+
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+}
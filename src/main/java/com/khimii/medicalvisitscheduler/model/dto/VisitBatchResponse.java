@@ -0,0 +1,14 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class VisitBatchResponse {
+    private int created;
+    private int rejected;
+    private List<VisitBatchItemResult> results; // One entry per request, in request order.
+}
@@ -0,0 +1,16 @@
+package com.khimii.medicalvisitscheduler.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * represents the UTC time range occupied by a single visit
+ */
+@Getter
+@AllArgsConstructor
+public class VisitInterval {
+    private LocalDateTime startDateTime;
+    private LocalDateTime endDateTime;
+}
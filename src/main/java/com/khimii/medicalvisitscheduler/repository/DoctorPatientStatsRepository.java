@@ -0,0 +1,53 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.model.DoctorPatientStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for maintaining doctor unique-patient counters.
+ *
+ * @see DoctorPatientStats
+ */
+@Repository
+public interface DoctorPatientStatsRepository extends JpaRepository<DoctorPatientStats, Long> {
+
+    /**
+     * Registers a (doctor, patient) pair unless it is already known.
+     *
+     * @param doctorId  The ID of the doctor.
+     * @param patientId The ID of the patient.
+     * @return 1 if the pair is new, 0 if it already existed.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO doctor_patients (doctor_id, patient_id) VALUES (:doctorId, :patientId)",
+            nativeQuery = true)
+    int insertPairIfAbsent(@Param("doctorId") Long doctorId, @Param("patientId") Long patientId);
+
+    /**
+     * Increments the unique-patient counter of a doctor, creating it if necessary.
+     *
+     * @param doctorId The ID of the doctor.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+            VALUES (:doctorId, 1)
+            ON DUPLICATE KEY UPDATE total_patients = total_patients + 1
+            """, nativeQuery = true)
+    void incrementTotalPatients(@Param("doctorId") Long doctorId);
+
+    /**
+     * Retrieves the IDs of all patients a doctor has had visits with.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return The patient IDs.
+     */
+    @Query(value = "SELECT patient_id FROM doctor_patients WHERE doctor_id = :doctorId", nativeQuery = true)
+    List<Long> findPatientIdsByDoctorId(@Param("doctorId") Long doctorId);
+}
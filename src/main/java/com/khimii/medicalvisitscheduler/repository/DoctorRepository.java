@@ -2,12 +2,27 @@ package com.khimii.medicalvisitscheduler.repository;
 
 import com.khimii.medicalvisitscheduler.model.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for managing doctors.
  * @see Doctor
  */
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+
+    /**
+     * Locks the rows of the given doctors until the current transaction ends, serializing bookings
+     * for the same doctor across application nodes. Rows are locked in ID order to avoid deadlocks.
+     *
+     * @param doctorIds The IDs of the doctors.
+     * @return The IDs of the locked doctors.
+     */
+    @Query(value = "SELECT id FROM doctors WHERE id IN (:doctorIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockForBooking(@Param("doctorIds") Collection<Long> doctorIds);
 }
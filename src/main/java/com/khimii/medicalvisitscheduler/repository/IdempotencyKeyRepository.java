@@ -0,0 +1,106 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for stored idempotent responses.
+ * Each method runs in its own transaction, so a key is reserved before the request it guards starts.
+ *
+ * @see IdempotencyKey
+ */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Reserves a key for a request that is about to run.
+     *
+     * @param key         The idempotency key.
+     * @param fingerprint The request fields the key is used with.
+     * @param createdAt   The current time, in UTC.
+     * @throws org.springframework.dao.DataIntegrityViolationException if the key is already stored.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO idempotency_keys (idempotency_key, request_fingerprint, status_code, created_at)
+        VALUES (:key, :fingerprint, 0, :createdAt)
+    """, nativeQuery = true)
+    void reserve(@Param("key") String key,
+                 @Param("fingerprint") String fingerprint,
+                 @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Reserves a key that is already stored, if its response has expired or its request was abandoned.
+     *
+     * @param key             The idempotency key.
+     * @param fingerprint     The request fields the key is now used with.
+     * @param createdAt       The current time, in UTC.
+     * @param expiredBefore   The oldest creation time still replayed, in UTC.
+     * @param abandonedBefore The oldest creation time of a pending request that may still finish, in UTC.
+     * @return 1 if the key was reserved, otherwise 0.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IdempotencyKey k
+        SET k.requestFingerprint = :fingerprint, k.statusCode = 0, k.responseBody = NULL, k.createdAt = :createdAt
+        WHERE k.key = :key
+        AND (k.createdAt < :expiredBefore OR (k.statusCode = 0 AND k.createdAt < :abandonedBefore))
+    """)
+    int reserveExpired(@Param("key") String key,
+                       @Param("fingerprint") String fingerprint,
+                       @Param("createdAt") LocalDateTime createdAt,
+                       @Param("expiredBefore") LocalDateTime expiredBefore,
+                       @Param("abandonedBefore") LocalDateTime abandonedBefore);
+
+    /**
+     * Stores the response of a reserved key, unless another request has taken the reservation over.
+     *
+     * @param key          The idempotency key.
+     * @param reservedAt   The creation time the key was reserved with, in UTC.
+     * @param statusCode   The HTTP status code.
+     * @param responseBody The response body.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IdempotencyKey k SET k.statusCode = :statusCode, k.responseBody = :responseBody
+        WHERE k.key = :key AND k.createdAt = :reservedAt
+    """)
+    int complete(@Param("key") String key,
+                 @Param("reservedAt") LocalDateTime reservedAt,
+                 @Param("statusCode") int statusCode,
+                 @Param("responseBody") String responseBody);
+
+    /**
+     * Deletes the reservation of a key whose request failed, so that it can be retried.
+     *
+     * @param key        The idempotency key.
+     * @param reservedAt The creation time the key was reserved with, in UTC.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.key = :key AND k.createdAt = :reservedAt AND k.statusCode = 0")
+    int release(@Param("key") String key, @Param("reservedAt") LocalDateTime reservedAt);
+
+    /**
+     * Deletes the responses stored before the given time.
+     *
+     * @param createdBefore The oldest creation time to keep, in UTC.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :createdBefore")
+    int deleteCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore);
+}
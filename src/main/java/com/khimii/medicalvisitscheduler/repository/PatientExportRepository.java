@@ -0,0 +1,101 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the patients whose latest visit is completed through a forward-only JDBC cursor, for exports.
+ * <p>
+ * Unlike {@link PatientLastVisitRepository}, rows are handed over one at a time as the driver reads them,
+ * without entities, a persistence context or a list of results, so memory use does not depend on the
+ * number of rows. With MySQL the fetch size of {@link Integer#MIN_VALUE} keeps the connection busy until
+ * every row is read, so callers should consume the rows quickly: an export written to a slow client holds a
+ * pooled connection for as long as the client takes. Once {@code scheduler.export.timeout} has passed, the
+ * next row cancels the query instead of being handed over, ending the export mid-stream; the statement
+ * timeout alone would not do that, as it does not cover reading rows from a streaming result.
+ */
+@Repository
+public class PatientExportRepository {
+
+    private static final String SELECT_PATIENTS = """
+            SELECT p.id, p.first_name, p.last_name, lv.start_date_time, lv.end_date_time,
+                   d.id, d.first_name, d.last_name, COALESCE(s.total_patients, 0)
+            FROM patient_last_visit lv
+            JOIN patients p ON p.id = lv.patient_id
+            JOIN doctors d ON d.id = lv.doctor_id
+            LEFT JOIN doctor_patient_stats s ON s.doctor_id = d.id
+            WHERE lv.end_date_time < CURRENT_TIMESTAMP
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Duration timeout;
+
+    public PatientExportRepository(DataSource dataSource, SchedulerProperties schedulerProperties) {
+        this.timeout = schedulerProperties.getExport().getTimeout();
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(schedulerProperties.getExport().getFetchSize());
+        // bounds running the query until its first row; the rows that follow are checked against the deadline
+        template.setQueryTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+    }
+
+    /**
+     * Passes every patient whose latest visit is completed to the action, ordered by patient ID.
+     * Joins the current transaction's connection when called inside one.
+     *
+     * @param search      Optional search query to filter patients by their first or last name.
+     * @param patientIds  The patients up to {@code indexedUpTo} matched by a name search index, or empty.
+     * @param indexedUpTo The largest patient ID covered by {@code patientIds}; the names of later patients
+     *                    are matched with {@code LIKE}. 0 if the search is not indexed.
+     * @param doctorIds   Optional list of doctor IDs to filter visits by specific doctors.
+     * @param action      Called once per row, on the calling thread.
+     * @throws QueryTimeoutException if the rows are not all handed over within {@code scheduler.export.timeout}.
+     */
+    public void forEachPatientWithLastVisit(String search, List<Long> patientIds, long indexedUpTo,
+                                            List<Long> doctorIds, Consumer<PatientVisitResponse> action) {
+        StringBuilder sql = new StringBuilder(SELECT_PATIENTS);
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        if (doctorIds != null) {
+            sql.append(" AND lv.doctor_id IN (:doctorIds)");
+            parameters.addValue("doctorIds", doctorIds);
+        }
+        if (search != null) {
+            if (patientIds.isEmpty()) {
+                sql.append(" AND lv.patient_id > :indexedUpTo"
+                        + " AND (p.first_name LIKE :search OR p.last_name LIKE :search)");
+            } else {
+                sql.append(" AND (lv.patient_id IN (:patientIds) OR lv.patient_id > :indexedUpTo)"
+                        + " AND (lv.patient_id IN (:patientIds) OR p.first_name LIKE :search OR p.last_name LIKE :search)");
+                parameters.addValue("patientIds", patientIds);
+            }
+            parameters.addValue("indexedUpTo", indexedUpTo);
+            parameters.addValue("search", "%" + search + "%");
+        }
+        sql.append(" ORDER BY lv.patient_id");
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        jdbcTemplate.query(sql.toString(), parameters, resultSet -> {
+            if (System.nanoTime() - deadline > 0) {
+                // otherwise closing a streaming result would read the remaining rows first
+                resultSet.getStatement().cancel();
+                throw new QueryTimeoutException("Export did not finish within " + timeout);
+            }
+            action.accept(new PatientVisitResponse(
+                    resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                    resultSet.getObject(4, LocalDateTime.class), resultSet.getObject(5, LocalDateTime.class),
+                    resultSet.getLong(6), resultSet.getString(7), resultSet.getString(8),
+                    resultSet.getLong(9)));
+        });
+    }
+}
@@ -0,0 +1,193 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.model.PatientLastVisit;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for the latest-visit-per-patient read model.
+ *
+ * @see PatientLastVisit
+ */
+@Repository
+public interface PatientLastVisitRepository extends JpaRepository<PatientLastVisit, Long> {
+
+    /**
+     * Retrieves a paginated list of patients whose latest visit is completed.
+     * Reads the denormalized {@code patient_last_visit} table instead of searching {@code visits}.
+     *
+     * @param search      Optional search query to filter patients by their first or last name.
+     *                    If null, no filtering by name is applied.
+     * @param patientIds  The patients up to {@code indexedUpTo} whose names contain the search query,
+     *                    as found by a name search index; empty if the search is not indexed.
+     * @param indexedUpTo The largest patient ID covered by {@code patientIds}; the names of later patients
+     *                    are matched with {@code LIKE}. 0 if the search is not indexed.
+     * @param doctorIds   Optional list of doctor IDs to filter visits by specific doctors.
+     *                    If null, visits from all doctors are included.
+     * @param pageable    Pagination information to limit the number of results returned.
+     * @return A paginated list of {@link PatientVisitResponse} ordered by patient ID.
+     */
+    @Query(value = """
+               SELECT new com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse(
+                   p.id, p.firstName, p.lastName,
+                   lv.startDateTime, lv.endDateTime,
+                   d.id, d.firstName, d.lastName,
+                   CAST(d.totalPatients AS long))
+                FROM PatientLastVisit lv
+                JOIN lv.patient p
+                JOIN lv.doctor d
+                WHERE lv.endDateTime < CURRENT_TIMESTAMP
+                  AND (:doctorIds IS NULL OR d.id IN :doctorIds)
+                  AND (lv.patientId IN :patientIds OR lv.patientId > :indexedUpTo)
+                  AND (:search IS NULL OR lv.patientId IN :patientIds
+                       OR p.firstName LIKE %:search% OR p.lastName LIKE %:search%)
+                ORDER BY lv.patientId
+            """,
+            countQuery = """
+               SELECT COUNT(lv)
+                FROM PatientLastVisit lv
+                JOIN lv.patient p
+                WHERE lv.endDateTime < CURRENT_TIMESTAMP
+                  AND (:doctorIds IS NULL OR lv.doctor.id IN :doctorIds)
+                  AND (lv.patientId IN :patientIds OR lv.patientId > :indexedUpTo)
+                  AND (:search IS NULL OR lv.patientId IN :patientIds
+                       OR p.firstName LIKE %:search% OR p.lastName LIKE %:search%)
+            """)
+    Page<PatientVisitResponse> findPatientsWithLastVisits(@Param("search") String search,
+                                                          @Param("patientIds") List<Long> patientIds,
+                                                          @Param("indexedUpTo") long indexedUpTo,
+                                                          @Param("doctorIds") List<Long> doctorIds,
+                                                          Pageable pageable);
+
+    /**
+     * Retrieves the first keyset page of patients whose latest visit is completed, newest visit first.
+     * Returns a {@link Slice}, so no count query is executed.
+     *
+     * @param search      Optional search query to filter patients by their first or last name.
+     * @param patientIds  The patients up to {@code indexedUpTo} matched by a name search index, or empty.
+     * @param indexedUpTo The largest patient ID covered by {@code patientIds}, or 0.
+     * @param doctorIds   Optional list of doctor IDs to filter visits by specific doctors.
+     * @param pageable    The page size; the page number must be 0.
+     * @return A slice of {@link PatientVisitResponse} ordered by visit start and patient ID, descending.
+     */
+    @Query("""
+               SELECT new com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse(
+                   p.id, p.firstName, p.lastName,
+                   lv.startDateTime, lv.endDateTime,
+                   d.id, d.firstName, d.lastName,
+                   CAST(d.totalPatients AS long))
+                FROM PatientLastVisit lv
+                JOIN lv.patient p
+                JOIN lv.doctor d
+                WHERE lv.endDateTime < CURRENT_TIMESTAMP
+                  AND (:doctorIds IS NULL OR d.id IN :doctorIds)
+                  AND (lv.patientId IN :patientIds OR lv.patientId > :indexedUpTo)
+                  AND (:search IS NULL OR lv.patientId IN :patientIds
+                       OR p.firstName LIKE %:search% OR p.lastName LIKE %:search%)
+                ORDER BY lv.startDateTime DESC, lv.patientId DESC
+            """)
+    Slice<PatientVisitResponse> findFirstPatientsByLastVisit(@Param("search") String search,
+                                                             @Param("patientIds") List<Long> patientIds,
+                                                             @Param("indexedUpTo") long indexedUpTo,
+                                                             @Param("doctorIds") List<Long> doctorIds,
+                                                             Pageable pageable);
+
+    /**
+     * Retrieves the keyset page following the given (visit start, patient ID) position.
+     * The seek predicate matches the sort order, so the page is read from the
+     * {@code (start_date_time, patient_id)} index without skipping earlier rows.
+     *
+     * @param search         Optional search query to filter patients by their first or last name.
+     * @param patientIds     The patients up to {@code indexedUpTo} matched by a name search index, or empty.
+     * @param indexedUpTo    The largest patient ID covered by {@code patientIds}, or 0.
+     * @param doctorIds      Optional list of doctor IDs to filter visits by specific doctors.
+     * @param afterStart     The visit start of the last row of the previous page.
+     * @param afterPatientId The patient ID of the last row of the previous page.
+     * @param pageable       The page size; the page number must be 0.
+     * @return A slice of {@link PatientVisitResponse} ordered by visit start and patient ID, descending.
+     */
+    @Query("""
+               SELECT new com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse(
+                   p.id, p.firstName, p.lastName,
+                   lv.startDateTime, lv.endDateTime,
+                   d.id, d.firstName, d.lastName,
+                   CAST(d.totalPatients AS long))
+                FROM PatientLastVisit lv
+                JOIN lv.patient p
+                JOIN lv.doctor d
+                WHERE lv.endDateTime < CURRENT_TIMESTAMP
+                  AND (:doctorIds IS NULL OR d.id IN :doctorIds)
+                  AND (lv.patientId IN :patientIds OR lv.patientId > :indexedUpTo)
+                  AND (:search IS NULL OR lv.patientId IN :patientIds
+                       OR p.firstName LIKE %:search% OR p.lastName LIKE %:search%)
+                  AND (lv.startDateTime < :afterStart
+                       OR (lv.startDateTime = :afterStart AND lv.patientId < :afterPatientId))
+                ORDER BY lv.startDateTime DESC, lv.patientId DESC
+            """)
+    Slice<PatientVisitResponse> findPatientsByLastVisitAfter(@Param("search") String search,
+                                                             @Param("patientIds") List<Long> patientIds,
+                                                             @Param("indexedUpTo") long indexedUpTo,
+                                                             @Param("doctorIds") List<Long> doctorIds,
+                                                             @Param("afterStart") LocalDateTime afterStart,
+                                                             @Param("afterPatientId") Long afterPatientId,
+                                                             Pageable pageable);
+
+    /**
+     * Counts patients whose latest visit is completed.
+     *
+     * @param search      Optional search query to filter patients by their first or last name.
+     * @param patientIds  The patients up to {@code indexedUpTo} matched by a name search index, or empty.
+     * @param indexedUpTo The largest patient ID covered by {@code patientIds}, or 0.
+     * @param doctorIds   Optional list of doctor IDs to filter visits by specific doctors.
+     * @return The number of matching patients.
+     */
+    @Query("""
+               SELECT COUNT(lv)
+                FROM PatientLastVisit lv
+                JOIN lv.patient p
+                WHERE lv.endDateTime < CURRENT_TIMESTAMP
+                  AND (:doctorIds IS NULL OR lv.doctor.id IN :doctorIds)
+                  AND (lv.patientId IN :patientIds OR lv.patientId > :indexedUpTo)
+                  AND (:search IS NULL OR lv.patientId IN :patientIds
+                       OR p.firstName LIKE %:search% OR p.lastName LIKE %:search%)
+            """)
+    long countPatientsWithLastVisits(@Param("search") String search,
+                                     @Param("patientIds") List<Long> patientIds,
+                                     @Param("indexedUpTo") long indexedUpTo,
+                                     @Param("doctorIds") List<Long> doctorIds);
+
+    /**
+     * Records a visit in the read model, replacing the stored one only if the new visit starts later.
+     * Columns are assigned left to right, so {@code start_date_time} has to be updated last.
+     *
+     * @param patientId The ID of the patient.
+     * @param doctorId  The ID of the doctor.
+     * @param start     The start time of the visit, in UTC.
+     * @param end       The end time of the visit, in UTC.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+            VALUES (:patientId, :doctorId, :start, :end)
+            ON DUPLICATE KEY UPDATE
+                doctor_id = CASE WHEN VALUES(start_date_time) > start_date_time
+                                 THEN VALUES(doctor_id) ELSE doctor_id END,
+                end_date_time = CASE WHEN VALUES(start_date_time) > start_date_time
+                                     THEN VALUES(end_date_time) ELSE end_date_time END,
+                start_date_time = GREATEST(start_date_time, VALUES(start_date_time))
+            """, nativeQuery = true)
+    void upsertIfLater(@Param("patientId") Long patientId,
+                       @Param("doctorId") Long doctorId,
+                       @Param("start") LocalDateTime start,
+                       @Param("end") LocalDateTime end);
+}
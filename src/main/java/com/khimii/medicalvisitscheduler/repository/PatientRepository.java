@@ -1,8 +1,7 @@
 package com.khimii.medicalvisitscheduler.repository;
 
 import com.khimii.medicalvisitscheduler.model.Patient;
-import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
-import org.springframework.data.domain.Page;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -20,36 +19,33 @@ import java.util.List;
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
     /**
-     * Retrieves a paginated list of patients who have completed visits.
+     * Retrieves the names of the patients following the given ID, for building the name search index.
      *
-     * @param search    Optional search query to filter patients by their first name.
-     *                  If null, no filtering by name is applied.
-     * @param doctorIds Optional list of doctor IDs to filter visits by specific doctors.
-     *                  If null, visits from all doctors are included.
-     * @param pageable  Pagination information to limit the number of results returned.
-     * @return A paginated list of {@link PatientVisitResponse} containing patient details
-     * and their last completed visits.
+     * @param afterId  The largest patient ID already read; 0 to start from the first patient.
+     * @param pageable The number of patients to read; the page number must be 0.
+     * @return Snapshots of the patients, ordered by ID.
      */
     @Query("""
-               SELECT new com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse(
-                   p.id, p.firstName, p.lastName,\s
-                   v.startDateTime, v.endDateTime,\s
-                   d.id, d.firstName, d.lastName,\s
-                   CAST((SELECT COUNT(DISTINCT v2.patient.id) FROM Visit v2 WHERE v2.doctor.id = d.id) AS long))
-                FROM Visit v
-                JOIN v.patient p
-                JOIN v.doctor d
-                WHERE v.endDateTime < CURRENT_TIMESTAMP
-                  AND v.startDateTime = (
-                      SELECT MAX(v3.startDateTime) 
-                      FROM Visit v3 
-                      WHERE v3.patient.id = p.id
-                  )
-                  AND (:doctorIds IS NULL OR v.doctor.id IN :doctorIds)
-                  AND (:search IS NULL OR p.firstName LIKE %:search%)
+               SELECT new com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot(p.id, p.firstName, p.lastName)
+                FROM Patient p
+                WHERE p.id > :afterId
+                ORDER BY p.id
             """)
-    Page<PatientVisitResponse> findPatientsWithVisits(@Param("search") String search,
-                                                      @Param("doctorIds") List<Long> doctorIds,
-                                                      Pageable pageable);
+    List<PatientSnapshot> findSnapshotsAfter(@Param("afterId") long afterId, Pageable pageable);
 
+    /**
+     * Finds patients by name through the {@code ft_patients_name} full-text index, which only exists with the
+     * {@code fulltext-search} profile. With the ngram parser a quoted phrase matches the names containing it.
+     *
+     * @param phrase A boolean mode phrase, e.g. {@code "ali"} with the quotes.
+     * @param limit  The largest number of IDs to return.
+     * @return The IDs of the matching patients in ascending order.
+     */
+    @Query(value = """
+            SELECT id FROM patients
+            WHERE MATCH (first_name, last_name) AGAINST (:phrase IN BOOLEAN MODE)
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findIdsByNameFullText(@Param("phrase") String phrase, @Param("limit") int limit);
 }
@@ -1,6 +1,7 @@
 package com.khimii.medicalvisitscheduler.repository;
 
 import com.khimii.medicalvisitscheduler.model.Visit;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
@@ -9,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -36,6 +38,43 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
                                    @Param("start") LocalDateTime start,
                                    @Param("end") LocalDateTime end);
 
+    /**
+     * Retrieves the time ranges of a doctor's visits ending after the given time, ordered by start time.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param from     The time the visits must end after, in UTC.
+     * @return The visit intervals in UTC, sorted by start time.
+     */
+    @Query("""
+        SELECT new com.khimii.medicalvisitscheduler.model.dto.VisitInterval(v.startDateTime, v.endDateTime)
+        FROM Visit v
+        WHERE v.doctor.id = :doctorId
+        AND v.endDateTime > :from
+        ORDER BY v.startDateTime
+    """)
+    List<VisitInterval> findIntervalsByDoctorIdEndingAfter(@Param("doctorId") Long doctorId,
+                                                           @Param("from") LocalDateTime from);
+
+    /**
+     * Retrieves the time ranges of a doctor's visits overlapping the given window, ordered by start time.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param from     The start of the window, in UTC.
+     * @param to       The end of the window, in UTC.
+     * @return The overlapping visit intervals in UTC, sorted by start time.
+     */
+    @Query("""
+        SELECT new com.khimii.medicalvisitscheduler.model.dto.VisitInterval(v.startDateTime, v.endDateTime)
+        FROM Visit v
+        WHERE v.doctor.id = :doctorId
+        AND v.startDateTime < :to
+        AND v.endDateTime > :from
+        ORDER BY v.startDateTime
+    """)
+    List<VisitInterval> findIntervalsByDoctorIdBetween(@Param("doctorId") Long doctorId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
+
     /**
      * Finds a visit by ID using optimistic locking.
      *
@@ -0,0 +1,183 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchItemResult;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional booking path in which single bookings are queued to partitioned single-threaded workers
+ * instead of each running in its own transaction.
+ * <p>
+ * A doctor always maps to the same worker ({@code doctorId mod partitions}), so the worker is the only
+ * single-booking writer for its doctors and their booking locks stay uncontended. A worker takes
+ * whatever is waiting in its queue, up to {@code scheduler.pipeline.max-batch-size}, and books it with
+ * {@link VisitService#createQueuedVisits(List)} in one transaction, checking conflicts in request order.
+ * If that transaction fails, for example because another node booked the same slot, the requests are
+ * booked again one by one so that only the conflicting ones fail.
+ * <p>
+ * When the pipeline is disabled, {@link #isEnabled()} returns false and the workers are only started by
+ * the first {@link #submit}, which the asynchronous booking API always uses. Bookings still queued when the
+ * pipeline stops, including those submitted while it stops, fail instead of waiting forever.
+ */
+@Slf4j
+@Component
+public class BookingPipeline {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final VisitService visitService;
+    private final SchedulerProperties.Pipeline settings;
+    private final List<BlockingQueue<PendingBooking>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public BookingPipeline(VisitService visitService, SchedulerProperties schedulerProperties) {
+        this.visitService = visitService;
+        this.settings = schedulerProperties.getPipeline();
+    }
+
+    @PostConstruct
+    void start() {
+        if (settings.isEnabled()) {
+            startWorkers();
+        }
+    }
+
+    private synchronized void startWorkers() {
+        if (running || stopped) {
+            return;
+        }
+        if (settings.getPartitions() < 1 || settings.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("Pipeline partitions and batch size must be positive");
+        }
+        for (int partition = 0; partition < settings.getPartitions(); partition++) {
+            BlockingQueue<PendingBooking> queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+            Thread worker = new Thread(() -> work(queue), "booking-pipeline-" + partition);
+            worker.setDaemon(true);
+            queues.add(queue);
+            workers.add(worker);
+        }
+        running = true; // publishes the queues to submitting threads
+        workers.forEach(Thread::start);
+        log.info("Booking pipeline started with {} partitions", settings.getPartitions());
+    }
+
+    @PreDestroy
+    synchronized void stop() throws InterruptedException {
+        stopped = true;
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (BlockingQueue<PendingBooking> queue : queues) {
+            PendingBooking booking;
+            while ((booking = queue.poll()) != null) {
+                booking.result().completeExceptionally(new RuntimeException("Booking service is shutting down"));
+            }
+        }
+    }
+
+    /**
+     * @return Whether single bookings should be submitted to the pipeline instead of being booked directly.
+     */
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Queues a booking for the worker owning its doctor.
+     *
+     * @param request The visit request containing patient ID, doctor ID, start and end time.
+     * @return A future completed once the visit is stored, or completed exceptionally with the reason it was rejected.
+     */
+    public CompletableFuture<Void> submit(VisitRequest request) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (!running) {
+            startWorkers();
+        }
+        if (!running) {
+            result.completeExceptionally(new RuntimeException("Booking service is shutting down"));
+            return result;
+        }
+        long doctorId = request.getDoctorId() == null ? 0 : request.getDoctorId();
+        BlockingQueue<PendingBooking> queue = queues.get((int) Math.floorMod(doctorId, (long) queues.size()));
+        PendingBooking booking = new PendingBooking(request, result);
+        if (!queue.offer(booking)) {
+            result.completeExceptionally(new RuntimeException("Too many bookings in progress. Please try again."));
+        } else if (stopped && queue.remove(booking)) {
+            // Queued after stop() failed what was left, so no worker or stop() will ever take it
+            result.completeExceptionally(new RuntimeException("Booking service is shutting down"));
+        }
+        return result;
+    }
+
+    private void work(BlockingQueue<PendingBooking> queue) {
+        List<PendingBooking> batch = new ArrayList<>(settings.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBooking first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, settings.getMaxBatchSize() - 1);
+                book(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Booking pipeline worker failed", e);
+                batch.forEach(booking -> booking.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void book(List<PendingBooking> batch) {
+        VisitBatchResponse response;
+        try {
+            response = visitService.createQueuedVisits(batch.stream().map(PendingBooking::request).toList());
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} bookings failed, booking them one by one: {}", batch.size(), e.getMessage());
+            bookOneByOne(batch);
+            return;
+        }
+        for (VisitBatchItemResult result : response.getResults()) {
+            CompletableFuture<Void> future = batch.get(result.getIndex()).result();
+            if (result.getStatus() == VisitBatchItemResult.Status.CREATED) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(new RuntimeException(result.getError()));
+            }
+        }
+    }
+
+    private void bookOneByOne(List<PendingBooking> batch) {
+        for (PendingBooking booking : batch) {
+            try {
+                visitService.createVisit(booking.request());
+                booking.result().complete(null);
+            } catch (RuntimeException e) {
+                booking.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record PendingBooking(VisitRequest request, CompletableFuture<Void> result) {
+    }
+}
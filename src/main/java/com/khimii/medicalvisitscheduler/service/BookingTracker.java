@@ -0,0 +1,111 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.exception.IdempotencyKeyInUseException;
+import com.khimii.medicalvisitscheduler.model.dto.BookingStatusResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Accepts bookings without waiting for them to be stored and keeps their status for polling.
+ * <p>
+ * Bookings are handed to the {@link BookingPipeline}, whose workers store them in micro-batches.
+ * A request carrying an idempotency key that was already submitted is answered with the earlier
+ * booking instead of being queued again; keys are kept by the {@link IdempotencyStore}, as for
+ * synchronous bookings. Statuses are kept in memory for {@code scheduler.async-booking.retention}.
+ */
+@Service
+public class BookingTracker {
+
+    private final BookingPipeline bookingPipeline;
+    private final IdempotencyStore idempotencyStore;
+    private final Cache<String, TrackedBooking> bookings;
+
+    public BookingTracker(BookingPipeline bookingPipeline, IdempotencyStore idempotencyStore,
+                          SchedulerProperties schedulerProperties) {
+        SchedulerProperties.AsyncBooking settings = schedulerProperties.getAsyncBooking();
+        this.bookingPipeline = bookingPipeline;
+        this.idempotencyStore = idempotencyStore;
+        this.bookings = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumTracked())
+                .expireAfterWrite(settings.getRetention())
+                .build();
+    }
+
+    /**
+     * Queues a booking, or returns the booking already submitted with the same idempotency key.
+     *
+     * @param request        The visit request containing patient ID, doctor ID, start and end time.
+     * @param idempotencyKey A key chosen by the client to identify retries of the same request, or null.
+     * @return The current status of the booking. Only the booking ID is known if the key was used on another
+     *         instance or the status has expired.
+     * @throws IllegalArgumentException      if the key is too long or was already used for a different request.
+     * @throws IdempotencyKeyInUseException if the key's first request is still being submitted on another instance.
+     */
+    public BookingStatusResponse submit(VisitRequest request, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return start(request).toResponse();
+        }
+        String bookingId;
+        try {
+            bookingId = idempotencyStore.execute(idempotencyKey, IdempotencyStore.Operation.BOOK_ASYNC, request,
+                    () -> CompletableFuture.completedFuture(new IdempotencyStore.StoredResponse(
+                            HttpStatus.ACCEPTED.value(), start(request).id, false))).join().body();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return findStatus(bookingId).orElseGet(() -> new BookingStatusResponse(bookingId, null, null));
+    }
+
+    /**
+     * Looks up the status of a booking.
+     *
+     * @param bookingId The ID returned when the booking was submitted.
+     * @return The status, or empty if the booking is unknown or its status has expired.
+     */
+    public Optional<BookingStatusResponse> findStatus(String bookingId) {
+        return Optional.ofNullable(bookings.getIfPresent(bookingId)).map(TrackedBooking::toResponse);
+    }
+
+    private TrackedBooking start(VisitRequest request) {
+        TrackedBooking booking = new TrackedBooking(UUID.randomUUID().toString());
+        bookings.put(booking.id, booking);
+        bookingPipeline.submit(request).whenComplete((created, error) -> {
+            if (error == null) {
+                booking.complete(BookingStatusResponse.Status.CREATED, null);
+            } else {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                booking.complete(BookingStatusResponse.Status.REJECTED, cause.getMessage());
+            }
+        });
+        return booking;
+    }
+
+    private static final class TrackedBooking {
+        private final String id;
+        private volatile BookingStatusResponse.Status status = BookingStatusResponse.Status.PENDING;
+        private volatile String error;
+
+        TrackedBooking(String id) {
+            this.id = id;
+        }
+
+        void complete(BookingStatusResponse.Status status, String error) {
+            this.error = error;
+            this.status = status;
+        }
+
+        BookingStatusResponse toResponse() {
+            BookingStatusResponse.Status current = status;
+            return new BookingStatusResponse(id, current, current == BookingStatusResponse.Status.REJECTED ? error : null);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes bookings per doctor so that the conflict check and the insert of one booking cannot
+ * interleave with another booking of the same doctor.
+ * <p>
+ * Doctors are hashed onto a fixed array of locks. The locks are taken around the whole booking
+ * transaction, before it borrows a database connection: bookings waiting for a doctor while holding
+ * connections could exhaust the pool and stall bookings of other doctors. The locks are released after
+ * the transaction has committed and the schedule indexes have seen the new visits, so the next booking
+ * of the doctor checks against them. Bookings of doctors on different stripes proceed in parallel.
+ * Optionally the doctor rows are locked in the database too, which extends the guarantee to several nodes.
+ */
+@Slf4j
+@Component
+public class DoctorBookingLocks {
+
+    private final DoctorRepository doctorRepository;
+    private final ReentrantLock[] stripes;
+    private final long timeoutNanos;
+    private final boolean databaseLock;
+
+    public DoctorBookingLocks(DoctorRepository doctorRepository, SchedulerProperties schedulerProperties) {
+        SchedulerProperties.Booking settings = schedulerProperties.getBooking();
+        if (settings.getLockStripes() < 1) {
+            throw new IllegalArgumentException("Lock stripes must be positive, got " + settings.getLockStripes());
+        }
+        this.doctorRepository = doctorRepository;
+        this.stripes = new ReentrantLock[settings.getLockStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = settings.getLockTimeout().toNanos();
+        this.databaseLock = settings.isDatabaseLock();
+    }
+
+    /**
+     * Runs a booking transaction while holding the booking locks of the given doctors.
+     * Stripes are taken in index order, so bookings locking several doctors cannot deadlock.
+     * Must be called outside a transaction.
+     *
+     * @param doctorIds The IDs of the doctors.
+     * @param booking   The booking, which runs and commits its own transaction.
+     * @return The result of the booking.
+     * @throws RuntimeException if a doctor stays locked by another booking for longer than the timeout.
+     */
+    public <T> T callWithLocks(Collection<Long> doctorIds, Supplier<T> booking) {
+        return callWithLocks(doctorIds, () -> {
+        }, booking);
+    }
+
+    /**
+     * Runs a booking transaction while holding the booking locks of the given doctors, as
+     * {@link #callWithLocks(Collection, Supplier)} does.
+     *
+     * @param doctorIds The IDs of the doctors.
+     * @param afterWait Runs once the locks are taken or taking them failed, before the booking; used to time the wait.
+     * @param booking   The booking, which runs and commits its own transaction.
+     * @return The result of the booking.
+     * @throws RuntimeException if a doctor stays locked by another booking for longer than the timeout.
+     */
+    public <T> T callWithLocks(Collection<Long> doctorIds, Runnable afterWait, Supplier<T> booking) {
+        int[] indexes = doctorIds.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            try {
+                for (; locked < indexes.length; locked++) {
+                    if (!stripes[indexes[locked]].tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                        log.warn("Timed out waiting for booking lock of Doctor IDs {}", doctorIds);
+                        throw new RuntimeException("Doctor is busy with another booking. Please try again.");
+                    }
+                }
+            } finally {
+                afterWait.run();
+            }
+            return booking.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the doctor's booking lock");
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks the rows of the given doctors until the current transaction ends, if database locks are enabled.
+     *
+     * @param doctorIds The IDs of the doctors.
+     */
+    public void lockRows(Collection<Long> doctorIds) {
+        if (databaseLock && !doctorIds.isEmpty()) {
+            doctorRepository.lockForBooking(doctorIds);
+        }
+    }
+
+    /**
+     * @return Whether doctor rows are locked in the database as well.
+     */
+    public boolean isDatabaseLock() {
+        return databaseLock;
+    }
+
+    private int stripeIndex(Long doctorId) {
+        return Math.floorMod(Long.hashCode(doctorId) * 0x9E3779B9, stripes.length);
+    }
+}
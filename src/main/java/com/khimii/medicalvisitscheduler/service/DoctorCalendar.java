@@ -0,0 +1,140 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Busy-slot bitmap of a single doctor with a granularity of {@link #SLOT_SECONDS}.
+ * <p>
+ * Each UTC day is a {@code long[]} with one bit per slot; days without visits are not stored, and neither
+ * are days before the first kept day set by {@link #dropDaysBefore(long)}.
+ * A slot is busy if any visit overlaps it, so visits not aligned to the grid make the whole
+ * partially used slot unavailable. The class is not thread-safe; callers are expected to guard it.
+ */
+class DoctorCalendar {
+    static final int SLOT_SECONDS = 5 * 60;
+    static final int SLOTS_PER_DAY = 24 * 60 * 60 / SLOT_SECONDS;
+    private static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    private final Map<Long, long[]> days = new HashMap<>();
+    private boolean loaded;
+    private long firstDay = Long.MIN_VALUE;
+
+    /**
+     * Replaces the content of the calendar with visits loaded from the database.
+     *
+     * @param intervals The visit intervals of the doctor.
+     */
+    void load(List<VisitInterval> intervals) {
+        days.clear();
+        for (VisitInterval interval : intervals) {
+            markBusy(DoctorSchedule.toEpochSecond(interval.getStartDateTime()),
+                    DoctorSchedule.toEpochSecond(interval.getEndDateTime()));
+        }
+        loaded = true;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Forgets the days before the given one; visits marked busy on them later are ignored.
+     *
+     * @param day The first day to keep, in days since the epoch (UTC).
+     */
+    void dropDaysBefore(long day) {
+        if (day > firstDay) {
+            days.keySet().removeIf(stored -> stored < day);
+            firstDay = day;
+        }
+    }
+
+    /**
+     * Marks every slot overlapping the given range as busy.
+     *
+     * @param start The start of the range, in UTC epoch seconds (inclusive).
+     * @param end   The end of the range, in UTC epoch seconds (exclusive).
+     */
+    void markBusy(long start, long end) {
+        long last = Math.floorDiv(end - 1, SLOT_SECONDS);
+        for (long slot = Math.floorDiv(start, SLOT_SECONDS); slot <= last; slot++) {
+            long day = Math.floorDiv(slot, SLOTS_PER_DAY);
+            if (day < firstDay) {
+                continue;
+            }
+            int bit = (int) (slot - day * SLOTS_PER_DAY);
+            days.computeIfAbsent(day, d -> new long[WORDS_PER_DAY])[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Finds the first busy slot in a range.
+     *
+     * @param from The first slot to look at.
+     * @param to   The slot after the last one to look at.
+     * @return The first busy slot, or {@code to} if all slots are free.
+     */
+    long nextBusy(long from, long to) {
+        long slot = from;
+        while (slot < to) {
+            long day = Math.floorDiv(slot, SLOTS_PER_DAY);
+            long[] words = days.get(day);
+            if (words != null) {
+                int bit = (int) (slot - day * SLOTS_PER_DAY);
+                int index = bit >>> 6;
+                long word = words[index] & (-1L << bit);
+                while (true) {
+                    if (word != 0) {
+                        return Math.min(day * SLOTS_PER_DAY + index * 64L + Long.numberOfTrailingZeros(word), to);
+                    }
+                    if (++index == WORDS_PER_DAY) {
+                        break;
+                    }
+                    word = words[index];
+                }
+            }
+            slot = (day + 1) * SLOTS_PER_DAY;
+        }
+        return to;
+    }
+
+    /**
+     * Finds the first free slot in a range.
+     *
+     * @param from The first slot to look at.
+     * @param to   The slot after the last one to look at.
+     * @return The first free slot, or {@code to} if all slots are busy.
+     */
+    long nextFree(long from, long to) {
+        long slot = from;
+        while (slot < to) {
+            long day = Math.floorDiv(slot, SLOTS_PER_DAY);
+            long[] words = days.get(day);
+            if (words == null) {
+                return slot;
+            }
+            int bit = (int) (slot - day * SLOTS_PER_DAY);
+            int index = bit >>> 6;
+            long word = ~words[index] & (-1L << bit);
+            while (true) {
+                if (word != 0) {
+                    int found = index * 64 + Long.numberOfTrailingZeros(word);
+                    if (found < SLOTS_PER_DAY) { // bits past the end of the day are never set
+                        return Math.min(day * SLOTS_PER_DAY + found, to);
+                    }
+                    break;
+                }
+                if (++index == WORDS_PER_DAY) {
+                    break;
+                }
+                word = ~words[index];
+            }
+            slot = (day + 1) * SLOTS_PER_DAY;
+        }
+        return to;
+    }
+}
@@ -0,0 +1,207 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory busy-slot calendars of doctors used to answer availability queries without a database round-trip.
+ * <p>
+ * Like {@link DoctorScheduleIndex}, a doctor's calendar is loaded lazily on first use and afterwards
+ * kept in sync with committed bookings, and calendars are bounded by {@code scheduler.calendar-index}.
+ * A calendar only keeps the current UTC day and the days after it, and drops the others as days pass.
+ * Queries starting on an earlier day are answered from the doctor's visits in the queried range, read
+ * from the database. Each calendar is guarded by its own {@link ReentrantLock} rather than a monitor, so that
+ * a virtual thread loading it from the database does not pin its carrier thread.
+ */
+@Slf4j
+@Component
+public class DoctorCalendarIndex {
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final VisitRepository visitRepository;
+    private final Cache<Long, Entry> calendars;
+
+    private record Entry(DoctorCalendar calendar, ReentrantLock lock) {
+    }
+
+    public DoctorCalendarIndex(VisitRepository visitRepository, SchedulerProperties schedulerProperties) {
+        this.visitRepository = visitRepository;
+        SchedulerProperties.DoctorIndex settings = schedulerProperties.getCalendarIndex();
+        this.calendars = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumDoctors())
+                .expireAfterAccess(settings.getExpireAfterAccess())
+                .build();
+    }
+
+    /**
+     * Finds the free windows of a doctor within a time range.
+     * Window bounds are aligned to {@link DoctorCalendar#SLOT_SECONDS}-second slots inside the range.
+     *
+     * @param doctorId        The ID of the doctor.
+     * @param from            The start of the range, in UTC.
+     * @param to              The end of the range, in UTC.
+     * @param durationSeconds The shortest window to report, in seconds.
+     * @return The maximal free windows at least {@code durationSeconds} long, in UTC and in chronological order.
+     */
+    public List<VisitInterval> findFreeWindows(Long doctorId, LocalDateTime from, LocalDateTime to, long durationSeconds) {
+        long fromSlot = Math.floorDiv(DoctorSchedule.toEpochSecond(from) + DoctorCalendar.SLOT_SECONDS - 1,
+                DoctorCalendar.SLOT_SECONDS);
+        long toSlot = Math.floorDiv(DoctorSchedule.toEpochSecond(to), DoctorCalendar.SLOT_SECONDS);
+        long minimumSlots = Math.max(1, (durationSeconds + DoctorCalendar.SLOT_SECONDS - 1) / DoctorCalendar.SLOT_SECONDS);
+
+        return withCalendar(doctorId, from, to, calendar -> {
+            List<VisitInterval> windows = new ArrayList<>();
+            long slot = fromSlot;
+            while (slot < toSlot) {
+                long free = calendar.nextFree(slot, toSlot);
+                if (free >= toSlot) {
+                    break;
+                }
+                long busy = calendar.nextBusy(free, toSlot);
+                if (busy - free >= minimumSlots) {
+                    windows.add(new VisitInterval(toDateTime(free), toDateTime(busy)));
+                }
+                slot = busy;
+            }
+            return windows;
+        });
+    }
+
+    /**
+     * Finds the earliest start times at which a visit of the given length fits, stepping through each
+     * free window in whole visit lengths.
+     *
+     * @param doctorId        The ID of the doctor.
+     * @param from            The start of the range, in UTC.
+     * @param to              The end of the range, in UTC.
+     * @param durationSeconds The length of the visit, in seconds.
+     * @param limit           The largest number of start times to return.
+     * @param latestStart     Supplies the latest start worth reporting, in UTC epoch seconds. It is read
+     *                        before each start is taken, so a search can be cut short while it runs.
+     * @return Up to {@code limit} start times in UTC epoch seconds, in ascending order.
+     */
+    public long[] findSlotStarts(Long doctorId, LocalDateTime from, LocalDateTime to, long durationSeconds, int limit,
+                                 LongSupplier latestStart) {
+        long fromSlot = Math.floorDiv(DoctorSchedule.toEpochSecond(from) + DoctorCalendar.SLOT_SECONDS - 1,
+                DoctorCalendar.SLOT_SECONDS);
+        long toSlot = Math.floorDiv(DoctorSchedule.toEpochSecond(to), DoctorCalendar.SLOT_SECONDS);
+        long visitSlots = Math.max(1, (durationSeconds + DoctorCalendar.SLOT_SECONDS - 1) / DoctorCalendar.SLOT_SECONDS);
+
+        return withCalendar(doctorId, from, to, calendar -> {
+            long[] starts = new long[limit];
+            int count = 0;
+            long slot = fromSlot;
+            search:
+            while (slot < toSlot) {
+                long free = calendar.nextFree(slot, toSlot);
+                if (free >= toSlot) {
+                    break;
+                }
+                long busy = calendar.nextBusy(free, toSlot);
+                for (long start = free; start + visitSlots <= busy; start += visitSlots) {
+                    if (count == limit || start * DoctorCalendar.SLOT_SECONDS > latestStart.getAsLong()) {
+                        break search;
+                    }
+                    starts[count++] = start * DoctorCalendar.SLOT_SECONDS;
+                }
+                slot = busy;
+            }
+            return count == limit ? starts : Arrays.copyOf(starts, count);
+        });
+    }
+
+    /**
+     * Marks a new visit as busy once the current transaction commits.
+     * Without an active transaction the visit is added immediately.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param start    The start time of the visit, in UTC.
+     * @param end      The end time of the visit, in UTC.
+     */
+    public void recordVisit(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markBusy(doctorId, start, end);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markBusy(doctorId, start, end);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached calendar of a doctor so that it is reloaded from the database on next use.
+     *
+     * @param doctorId The ID of the doctor.
+     */
+    public void evict(Long doctorId) {
+        calendars.invalidate(doctorId);
+        log.info("Evicted availability calendar for Doctor ID {}", doctorId);
+    }
+
+    private void markBusy(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        Entry entry = calendars.getIfPresent(doctorId);
+        if (entry == null) {
+            return; // not loaded yet, the visit will be read from the database on first use
+        }
+        entry.lock().lock();
+        try {
+            if (entry.calendar().isLoaded()) {
+                entry.calendar().markBusy(DoctorSchedule.toEpochSecond(start), DoctorSchedule.toEpochSecond(end));
+            }
+        } finally {
+            entry.lock().unlock();
+        }
+    }
+
+    /**
+     * Reads the doctor's cached calendar under its lock, or a calendar of the range read from the database if
+     * the range starts before the current day.
+     */
+    private <T> T withCalendar(Long doctorId, LocalDateTime from, LocalDateTime to, Function<DoctorCalendar, T> read) {
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        if (Math.floorDiv(DoctorSchedule.toEpochSecond(from), SECONDS_PER_DAY) < today) {
+            DoctorCalendar range = new DoctorCalendar();
+            range.load(visitRepository.findIntervalsByDoctorIdBetween(doctorId, from, to));
+            return read.apply(range);
+        }
+        Entry entry = calendars.get(doctorId, id -> new Entry(new DoctorCalendar(), new ReentrantLock()));
+        DoctorCalendar calendar = entry.calendar();
+        entry.lock().lock();
+        try {
+            if (!calendar.isLoaded()) {
+                calendar.load(visitRepository.findIntervalsByDoctorIdEndingAfter(doctorId,
+                        LocalDate.ofEpochDay(today).atStartOfDay()));
+                log.info("Loaded availability calendar for Doctor ID {}", doctorId);
+            }
+            calendar.dropDaysBefore(today);
+            return read.apply(calendar);
+        } finally {
+            entry.lock().unlock();
+        }
+    }
+
+    private static LocalDateTime toDateTime(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * DoctorCalendar.SLOT_SECONDS, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,89 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.repository.DoctorPatientStatsRepository;
+import com.khimii.medicalvisitscheduler.util.HyperLogLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorPatientStatsService {
+
+    private final DoctorPatientStatsRepository doctorPatientStatsRepository;
+    private final SchedulerProperties schedulerProperties;
+
+    private final Map<Long, HyperLogLog> sketches = new ConcurrentHashMap<>();
+
+    /**
+     * Updates the unique-patient statistics of a doctor after a visit has been booked.
+     * The persisted counter is incremented only when the (doctor, patient) pair is new.
+     *
+     * @param doctorId  The ID of the doctor.
+     * @param patientId The ID of the patient.
+     */
+    public void recordVisit(Long doctorId, Long patientId) {
+        if (doctorPatientStatsRepository.insertPairIfAbsent(doctorId, patientId) > 0) {
+            doctorPatientStatsRepository.incrementTotalPatients(doctorId);
+        }
+        if (isApproximationEnabled()) {
+            HyperLogLog sketch = getSketch(doctorId);
+            synchronized (sketch) {
+                sketch.add(patientId);
+            }
+        }
+    }
+
+    /**
+     * @return Whether {@code scheduler.doctor-stats.hyper-log-log-enabled} keeps sketches for
+     *         {@link #approximateTotalPatients}.
+     */
+    public boolean isApproximationEnabled() {
+        return schedulerProperties.getDoctorStats().isHyperLogLogEnabled();
+    }
+
+    /**
+     * Estimates the number of unique patients of a doctor from the in-memory sketch.
+     * Intended for dashboards that can tolerate a small error; the sketch is seeded on first use.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return The approximate number of unique patients.
+     * @throws IllegalStateException if the HyperLogLog mode is disabled.
+     */
+    public long approximateTotalPatients(Long doctorId) {
+        if (!isApproximationEnabled()) {
+            throw new IllegalStateException("HyperLogLog statistics are disabled");
+        }
+        HyperLogLog sketch = getSketch(doctorId);
+        synchronized (sketch) {
+            return sketch.estimate();
+        }
+    }
+
+    /**
+     * Returns the doctor's sketch, seeding it first if there is none. The seeding query runs outside the map,
+     * so it does not block other doctors' sketches; if two threads seed the same doctor, the first stored
+     * sketch wins and receives the patient being added.
+     */
+    private HyperLogLog getSketch(Long doctorId) {
+        HyperLogLog sketch = sketches.get(doctorId);
+        if (sketch != null) {
+            return sketch;
+        }
+        HyperLogLog loaded = loadSketch(doctorId);
+        HyperLogLog existing = sketches.putIfAbsent(doctorId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private HyperLogLog loadSketch(Long doctorId) {
+        HyperLogLog sketch = new HyperLogLog(schedulerProperties.getDoctorStats().getHyperLogLogPrecision());
+        doctorPatientStatsRepository.findPatientIdsByDoctorId(doctorId).forEach(sketch::add);
+        log.info("Seeded unique-patient sketch for Doctor ID {}", doctorId);
+        return sketch;
+    }
+}
@@ -0,0 +1,146 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted-array interval set holding the visits of a single doctor as UTC epoch seconds.
+ * <p>
+ * Intervals are kept ordered by start time next to a running maximum of end times, so an overlap
+ * check is a single binary search even if historical data contains overlapping visits.
+ * The class is not thread-safe; callers are expected to guard it.
+ */
+class DoctorSchedule {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] starts;
+    private long[] ends;
+    private long[] maxEnds; // maxEnds[i] is the latest end time among intervals 0..i
+    private int size;
+    private boolean loaded;
+    private long loadedAfter = Long.MIN_VALUE;
+
+    DoctorSchedule() {
+        this(INITIAL_CAPACITY);
+    }
+
+    DoctorSchedule(int capacity) {
+        int initialCapacity = Math.max(capacity, INITIAL_CAPACITY);
+        this.starts = new long[initialCapacity];
+        this.ends = new long[initialCapacity];
+        this.maxEnds = new long[initialCapacity];
+    }
+
+    /**
+     * Replaces the content of the schedule with intervals loaded from the database.
+     *
+     * @param intervals The visit intervals of the doctor, sorted by start time.
+     */
+    void load(List<VisitInterval> intervals) {
+        ensureCapacity(intervals.size());
+        size = 0;
+        for (VisitInterval interval : intervals) {
+            starts[size] = toEpochSecond(interval.getStartDateTime());
+            ends[size] = toEpochSecond(interval.getEndDateTime());
+            maxEnds[size] = size == 0 ? ends[size] : Math.max(maxEnds[size - 1], ends[size]);
+            size++;
+        }
+        loaded = true;
+    }
+
+    /**
+     * Like {@link #load(List)}, for a schedule holding only the intervals ending after the given time.
+     * Ranges starting before it are not covered.
+     *
+     * @param intervals   The visit intervals of the doctor ending after {@code loadedAfter}, sorted by start time.
+     * @param loadedAfter The time the intervals end after, in UTC epoch seconds.
+     */
+    void load(List<VisitInterval> intervals, long loadedAfter) {
+        load(intervals);
+        this.loadedAfter = loadedAfter;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return The time the loaded intervals end after, in UTC epoch seconds; {@link Long#MIN_VALUE} if all were loaded.
+     */
+    long loadedAfter() {
+        return loadedAfter;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the given range intersects any stored interval.
+     *
+     * @param start The start of the range, in UTC epoch seconds (inclusive).
+     * @param end   The end of the range, in UTC epoch seconds (exclusive).
+     * @return true if an interval starts before {@code end} and ends after {@code start}.
+     */
+    boolean overlaps(long start, long end) {
+        int last = upperBound(end - 1) - 1; // last interval starting strictly before end
+        return last >= 0 && maxEnds[last] > start;
+    }
+
+    /**
+     * Inserts an interval, keeping the arrays sorted by start time.
+     * Bookings usually land near the end of the schedule, so the shifted tail stays short.
+     *
+     * @param start The start of the interval, in UTC epoch seconds.
+     * @param end   The end of the interval, in UTC epoch seconds.
+     */
+    void add(long start, long end) {
+        ensureCapacity(size + 1);
+        int position = upperBound(start);
+        int tail = size - position;
+        if (tail > 0) {
+            System.arraycopy(starts, position, starts, position + 1, tail);
+            System.arraycopy(ends, position, ends, position + 1, tail);
+        }
+        starts[position] = start;
+        ends[position] = end;
+        size++;
+        for (int i = position; i < size; i++) {
+            maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+        }
+    }
+
+    static long toEpochSecond(LocalDateTime utcDateTime) {
+        return utcDateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the index of the first interval starting after the given second.
+     */
+    private int upperBound(long second) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newCapacity = Math.max(capacity, starts.length + (starts.length >> 1));
+            starts = Arrays.copyOf(starts, newCapacity);
+            ends = Arrays.copyOf(ends, newCapacity);
+            maxEnds = Arrays.copyOf(maxEnds, newCapacity);
+        }
+    }
+}
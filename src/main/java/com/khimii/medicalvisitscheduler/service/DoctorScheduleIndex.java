@@ -0,0 +1,123 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of doctors' visits used to detect scheduling conflicts without a database round-trip.
+ * <p>
+ * A doctor's schedule is loaded lazily on first use and afterwards kept in sync with committed bookings.
+ * Schedules are bounded by {@code scheduler.schedule-index}: the least recently used are dropped beyond
+ * the maximum number of doctors, and unused ones after the idle time, to be reloaded on next use.
+ * Like the availability calendars, a schedule only holds the visits ending after the start of the current
+ * UTC day, so its size follows the doctor's upcoming visits rather than their whole history; it is reloaded
+ * on first use each day. Ranges starting before the current day are checked in the database.
+ * Each schedule is guarded by its own {@link ReentrantLock} rather than a monitor, so that a virtual thread
+ * loading it from the database does not pin its carrier thread.
+ * The index only answers "possibly busy" or "free"; the database remains the final authority.
+ */
+@Slf4j
+@Component
+public class DoctorScheduleIndex {
+
+    private final VisitRepository visitRepository;
+    private final Cache<Long, Entry> schedules;
+
+    private record Entry(DoctorSchedule schedule, ReentrantLock lock) {
+    }
+
+    public DoctorScheduleIndex(VisitRepository visitRepository, SchedulerProperties schedulerProperties) {
+        this.visitRepository = visitRepository;
+        SchedulerProperties.DoctorIndex settings = schedulerProperties.getScheduleIndex();
+        this.schedules = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumDoctors())
+                .expireAfterAccess(settings.getExpireAfterAccess())
+                .build();
+    }
+
+    /**
+     * Checks whether the doctor has a visit overlapping the given time range.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param start    The start time of the range, in UTC.
+     * @param end      The end time of the range, in UTC.
+     * @return true if an indexed visit overlaps the range, otherwise false.
+     */
+    public boolean hasConflict(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime today = LocalDate.now(ZoneOffset.UTC).atStartOfDay();
+        if (start.isBefore(today)) {
+            return visitRepository.existsConflictingVisit(doctorId, start, end);
+        }
+        long horizon = DoctorSchedule.toEpochSecond(today);
+        Entry entry = schedules.get(doctorId, id -> new Entry(new DoctorSchedule(), new ReentrantLock()));
+        DoctorSchedule schedule = entry.schedule();
+        entry.lock().lock();
+        try {
+            if (!schedule.isLoaded() || schedule.loadedAfter() < horizon) {
+                // loaded on first use, and again on the first use of a new day
+                schedule.load(visitRepository.findIntervalsByDoctorIdEndingAfter(doctorId, today), horizon);
+                log.info("Loaded {} visits into schedule index for Doctor ID {}", schedule.size(), doctorId);
+            }
+            return schedule.overlaps(DoctorSchedule.toEpochSecond(start), DoctorSchedule.toEpochSecond(end));
+        } finally {
+            entry.lock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new visit to the index once the current transaction commits.
+     * Without an active transaction the visit is added immediately.
+     *
+     * @param doctorId The ID of the doctor.
+     * @param start    The start time of the visit, in UTC.
+     * @param end      The end time of the visit, in UTC.
+     */
+    public void recordVisit(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addInterval(doctorId, start, end);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addInterval(doctorId, start, end);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached schedule of a doctor so that it is reloaded from the database on next use.
+     *
+     * @param doctorId The ID of the doctor.
+     */
+    public void evict(Long doctorId) {
+        schedules.invalidate(doctorId);
+        log.info("Evicted schedule index for Doctor ID {}", doctorId);
+    }
+
+    private void addInterval(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        Entry entry = schedules.getIfPresent(doctorId);
+        if (entry == null) {
+            return; // not loaded yet, the visit will be read from the database on first use
+        }
+        entry.lock().lock();
+        try {
+            if (entry.schedule().isLoaded()) {
+                entry.schedule().add(DoctorSchedule.toEpochSecond(start), DoctorSchedule.toEpochSecond(end));
+            }
+        } finally {
+            entry.lock().unlock();
+        }
+    }
+}
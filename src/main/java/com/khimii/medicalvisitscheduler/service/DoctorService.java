@@ -0,0 +1,130 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.AvailabilitySlot;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorAvailabilityResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorPatientEstimateResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableResponse;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableSlot;
+import com.khimii.medicalvisitscheduler.util.DateUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class DoctorService {
+
+    private final ReferenceDataService referenceDataService;
+    private final DoctorCalendarIndex doctorCalendarIndex;
+    private final FirstAvailableSearch firstAvailableSearch;
+    private final DoctorPatientStatsService doctorPatientStatsService;
+    private final SchedulerProperties schedulerProperties;
+
+    /**
+     * Finds the free windows of a doctor that can fit a visit of the given length.
+     * The answer comes from the in-memory availability calendar; no visits are queried.
+     *
+     * @param doctorId        The ID of the doctor.
+     * @param from            The start of the range, in the doctor's local time.
+     * @param to              The end of the range, in the doctor's local time.
+     * @param durationMinutes The length of the visit to fit, in minutes.
+     * @return The free windows in the doctor's local time, or empty if the doctor is not found.
+     * @throws IllegalArgumentException if the range or the duration is invalid.
+     */
+    public Optional<DoctorAvailabilityResponse> getAvailability(Long doctorId, LocalDateTime from, LocalDateTime to,
+                                                                int durationMinutes) {
+        if (durationMinutes < 1) {
+            throw new IllegalArgumentException("Duration must be at least one minute");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("The end of the range must be after its start");
+        }
+        int maxRangeDays = schedulerProperties.getAvailability().getMaxRangeDays();
+        if (Duration.between(from, to).compareTo(Duration.ofDays(maxRangeDays)) > 0) {
+            throw new IllegalArgumentException("The range must not be longer than " + maxRangeDays + " days");
+        }
+
+        return referenceDataService.findDoctor(doctorId).map(doctor -> {
+            String timezone = doctor.getTimezone();
+            List<AvailabilitySlot> slots = doctorCalendarIndex.findFreeWindows(doctorId,
+                            DateUtil.convertToUtcTime(from, timezone),
+                            DateUtil.convertToUtcTime(to, timezone),
+                            durationMinutes * 60L).stream()
+                    .map(window -> new AvailabilitySlot(
+                            DateUtil.convertUtcToDoctorTimezone(window.getStartDateTime(), timezone),
+                            DateUtil.convertUtcToDoctorTimezone(window.getEndDateTime(), timezone)))
+                    .toList();
+            return new DoctorAvailabilityResponse(doctorId, timezone, slots);
+        });
+    }
+
+    /**
+     * Estimates the number of unique patients of a doctor from the in-memory HyperLogLog sketch, for
+     * dashboards that can tolerate a small error.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return The estimate, or empty if the doctor is not found or the HyperLogLog mode is disabled.
+     */
+    public Optional<DoctorPatientEstimateResponse> estimateTotalPatients(Long doctorId) {
+        if (!doctorPatientStatsService.isApproximationEnabled()) {
+            return Optional.empty();
+        }
+        return referenceDataService.findDoctor(doctorId).map(doctor -> new DoctorPatientEstimateResponse(
+                doctorId, doctorPatientStatsService.approximateTotalPatients(doctorId)));
+    }
+
+    /**
+     * Finds the earliest slots at which a visit of the given length fits with any of the doctors.
+     * The search covers {@code scheduler.availability.max-range-days} from the given start.
+     *
+     * @param doctorIds       The IDs of the doctors to consider; unknown IDs are ignored.
+     * @param from            The earliest start to consider, or {@code null} for now.
+     * @param durationMinutes The length of the visit, in minutes.
+     * @param limit           The largest number of slots to return.
+     * @return The slots ordered by start time, each in its doctor's local time.
+     * @throws IllegalArgumentException if the doctors, the duration or the limit are invalid.
+     */
+    public FirstAvailableResponse findFirstAvailable(List<Long> doctorIds, OffsetDateTime from, int durationMinutes,
+                                                     int limit) {
+        SchedulerProperties.Availability settings = schedulerProperties.getAvailability();
+        if (durationMinutes < 1) {
+            throw new IllegalArgumentException("Duration must be at least one minute");
+        }
+        if (doctorIds == null || doctorIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one doctor ID is required");
+        }
+        if (doctorIds.size() > settings.getMaxSearchDoctors()) {
+            throw new IllegalArgumentException("Search covers " + doctorIds.size() + " doctors, the limit is "
+                    + settings.getMaxSearchDoctors());
+        }
+        if (limit < 1 || limit > settings.getMaxSearchSlots()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + settings.getMaxSearchSlots());
+        }
+
+        Map<Long, DoctorSnapshot> doctors = referenceDataService.findDoctors(doctorIds);
+        LocalDateTime utcFrom = from == null
+                ? LocalDateTime.now(ZoneOffset.UTC)
+                : from.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        List<FirstAvailableSearch.DoctorSlot> found = firstAvailableSearch.findFirstSlots(
+                doctorIds.stream().distinct().filter(doctors::containsKey).toList(),
+                utcFrom, utcFrom.plusDays(settings.getMaxRangeDays()), durationMinutes * 60L, limit);
+
+        List<FirstAvailableSlot> slots = found.stream().map(slot -> {
+            String timezone = doctors.get(slot.doctorId()).getTimezone();
+            LocalDateTime start = LocalDateTime.ofEpochSecond(slot.startEpoch(), 0, ZoneOffset.UTC);
+            return new FirstAvailableSlot(slot.doctorId(), timezone, start.toString(),
+                    DateUtil.convertUtcToDoctorTimezone(start, timezone),
+                    DateUtil.convertUtcToDoctorTimezone(start.plusMinutes(durationMinutes), timezone));
+        }).toList();
+        return new FirstAvailableResponse(slots);
+    }
+}
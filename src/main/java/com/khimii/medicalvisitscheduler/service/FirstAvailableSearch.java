@@ -0,0 +1,144 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the earliest visit slots across a set of doctors.
+ * <p>
+ * Doctors' calendars are searched in parallel on a dedicated fork-join pool, each for at most the
+ * requested number of slots. A doctor that finds that many publishes the start of its last slot as a
+ * cut-off, since no later slot can make the result any more; the other searches stop as soon as they
+ * pass it. The per-doctor lists are then merged with a heap, earliest start first.
+ */
+@Component
+public class FirstAvailableSearch {
+
+    /**
+     * Number of doctors searched by a single fork-join task before it stops splitting.
+     */
+    private static final int DOCTORS_PER_TASK = 8;
+
+    private final DoctorCalendarIndex doctorCalendarIndex;
+    private final ForkJoinPool pool;
+
+    public FirstAvailableSearch(DoctorCalendarIndex doctorCalendarIndex, SchedulerProperties schedulerProperties) {
+        this.doctorCalendarIndex = doctorCalendarIndex;
+        int parallelism = schedulerProperties.getAvailability().getSearchParallelism();
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Finds the earliest slots at which a visit of the given length fits with any of the doctors.
+     *
+     * @param doctorIds       The IDs of the doctors to search.
+     * @param from            The start of the range, in UTC.
+     * @param to              The end of the range, in UTC.
+     * @param durationSeconds The length of the visit, in seconds.
+     * @param limit           The largest number of slots to return.
+     * @return Up to {@code limit} slots ordered by start time and then by doctor ID.
+     */
+    public List<DoctorSlot> findFirstSlots(List<Long> doctorIds, LocalDateTime from, LocalDateTime to,
+                                           long durationSeconds, int limit) {
+        long[][] starts = new long[doctorIds.size()][];
+        SearchTask task = new SearchTask(doctorIds, from, to, durationSeconds, limit, new AtomicLong(Long.MAX_VALUE),
+                starts, 0, doctorIds.size());
+        if (doctorIds.size() <= DOCTORS_PER_TASK) {
+            task.compute(); // not worth a hand-off to the pool
+        } else {
+            pool.invoke(task);
+        }
+        return merge(doctorIds, starts, limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static List<DoctorSlot> merge(List<Long> doctorIds, long[][] starts, int limit) {
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, starts.length),
+                Comparator.<int[]>comparingLong(cursor -> starts[cursor[0]][cursor[1]])
+                        .thenComparing(cursor -> doctorIds.get(cursor[0])));
+        for (int doctor = 0; doctor < starts.length; doctor++) {
+            if (starts[doctor].length > 0) {
+                heap.add(new int[]{doctor, 0});
+            }
+        }
+
+        List<DoctorSlot> slots = new ArrayList<>(limit);
+        while (slots.size() < limit && !heap.isEmpty()) {
+            int[] cursor = heap.poll();
+            slots.add(new DoctorSlot(doctorIds.get(cursor[0]), starts[cursor[0]][cursor[1]]));
+            if (++cursor[1] < starts[cursor[0]].length) {
+                heap.add(cursor);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * A slot with a doctor.
+     *
+     * @param doctorId   The ID of the doctor.
+     * @param startEpoch The start of the slot, in UTC epoch seconds.
+     */
+    public record DoctorSlot(Long doctorId, long startEpoch) {
+    }
+
+    private class SearchTask extends RecursiveAction {
+        private final List<Long> doctorIds;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final long durationSeconds;
+        private final int limit;
+        private final AtomicLong cutoff;
+        private final long[][] starts;
+        private final int low;
+        private final int high;
+
+        SearchTask(List<Long> doctorIds, LocalDateTime from, LocalDateTime to, long durationSeconds, int limit,
+                   AtomicLong cutoff, long[][] starts, int low, int high) {
+            this.doctorIds = doctorIds;
+            this.from = from;
+            this.to = to;
+            this.durationSeconds = durationSeconds;
+            this.limit = limit;
+            this.cutoff = cutoff;
+            this.starts = starts;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low > DOCTORS_PER_TASK) {
+                int middle = (low + high) >>> 1;
+                invokeAll(subtask(low, middle), subtask(middle, high));
+                return;
+            }
+            for (int doctor = low; doctor < high; doctor++) {
+                long[] found = doctorCalendarIndex.findSlotStarts(doctorIds.get(doctor), from, to, durationSeconds,
+                        limit, cutoff::get);
+                if (found.length == limit) {
+                    cutoff.accumulateAndGet(found[limit - 1], Math::min);
+                }
+                starts[doctor] = found;
+            }
+        }
+
+        private SearchTask subtask(int low, int high) {
+            return new SearchTask(doctorIds, from, to, durationSeconds, limit, cutoff, starts, low, high);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.exception.IdempotencyKeyInUseException;
+import com.khimii.medicalvisitscheduler.model.IdempotencyKey;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.repository.IdempotencyKeyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of booking requests sent with an {@code Idempotency-Key} header, so that
+ * retries are answered with the original response instead of booking again. Keys are shared by all
+ * booking endpoints; using a key with another endpoint than the first time counts as a different request.
+ * <p>
+ * Keys live in a bounded in-memory cache for {@code scheduler.idempotency.retention}; a replay of a
+ * key found there does no database work. A retry arriving while the original request is still running
+ * waits for its response. With {@code scheduler.idempotency.persistent} enabled, a key is also reserved
+ * in the {@code idempotency_keys} table before the request runs, so that only one instance runs it, and
+ * the row is completed with the response. A retry reaching another instance while the request is running
+ * fails with {@link IdempotencyKeyInUseException}; after {@code scheduler.idempotency.pending-timeout}
+ * the request is assumed lost and a retry runs it again.
+ * Rejected requests are forgotten once answered, so that they can be retried.
+ */
+@Slf4j
+@Service
+public class IdempotencyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration retention;
+    private final Duration pendingTimeout;
+    private final boolean persistent;
+    private final Cache<String, Entry> entries;
+
+    public IdempotencyStore(IdempotencyKeyRepository idempotencyKeyRepository, SchedulerProperties schedulerProperties) {
+        SchedulerProperties.Idempotency settings = schedulerProperties.getIdempotency();
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.retention = settings.getRetention();
+        this.pendingTimeout = settings.getPendingTimeout();
+        this.persistent = settings.isPersistent();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumKeys())
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    @PostConstruct
+    public void purgeExpired() {
+        if (persistent) {
+            int deleted = idempotencyKeyRepository.deleteCreatedBefore(now().minus(retention));
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Runs a booking once per idempotency key.
+     *
+     * @param key       The idempotency key sent by the client.
+     * @param operation The endpoint the key is used with.
+     * @param request   The visit request; retries must carry the same fields.
+     * @param action    Books the visit and supplies its response. Called at most once per key while the key is kept.
+     * @return The response of the booking, marked as replayed if it was not produced by this call.
+     * @throws IllegalArgumentException      if the key is too long or was already used for a different request.
+     * @throws IdempotencyKeyInUseException if the key's first request is still running on another instance.
+     */
+    public CompletableFuture<StoredResponse> execute(String key, Operation operation, VisitRequest request,
+                                                     Supplier<CompletableFuture<StoredResponse>> action) {
+        if (key.length() > IdempotencyKey.MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be at most " + IdempotencyKey.MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(operation, request);
+        Entry entry = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = entries.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            checkFingerprint(key, existing.fingerprint, fingerprint);
+            return existing.response.thenApply(StoredResponse::asReplay);
+        }
+
+        LocalDateTime reservedAt = now();
+        CompletableFuture<StoredResponse> result;
+        try {
+            Optional<StoredResponse> stored = persistent ? reserve(key, fingerprint, reservedAt) : Optional.empty();
+            if (stored.isPresent()) {
+                entry.response.complete(stored.get());
+                return CompletableFuture.completedFuture(stored.get().asReplay());
+            }
+            result = action.get();
+        } catch (RuntimeException e) {
+            entries.asMap().remove(key, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+
+        return result.whenComplete((response, error) -> {
+            boolean successful = error == null && response.isSuccessful();
+            if (!successful) {
+                entries.asMap().remove(key, entry);
+            }
+            if (persistent) {
+                finish(key, reservedAt, successful ? response : null);
+            }
+            if (error != null) {
+                entry.response.completeExceptionally(error);
+            } else {
+                entry.response.complete(response);
+            }
+        });
+    }
+
+    /**
+     * Reserves the key in the table, or returns the response stored for it.
+     */
+    private Optional<StoredResponse> reserve(String key, String fingerprint, LocalDateTime reservedAt) {
+        try {
+            idempotencyKeyRepository.reserve(key, fingerprint, reservedAt);
+            return Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            // Stored before: reuse it if its response has expired or its request was lost, otherwise replay it
+        }
+        if (idempotencyKeyRepository.reserveExpired(key, fingerprint, reservedAt,
+                reservedAt.minus(retention), reservedAt.minus(pendingTimeout)) == 1) {
+            return Optional.empty();
+        }
+        IdempotencyKey stored = idempotencyKeyRepository.findById(key)
+                .orElseThrow(() -> new IdempotencyKeyInUseException(key));
+        checkFingerprint(key, stored.getRequestFingerprint(), fingerprint);
+        if (stored.getStatusCode() == IdempotencyKey.PENDING) {
+            throw new IdempotencyKeyInUseException(key);
+        }
+        return Optional.of(new StoredResponse(stored.getStatusCode(), stored.getResponseBody(), false));
+    }
+
+    /**
+     * Completes the reservation with a successful response, or releases it so that the request can be retried.
+     * If this fails, the reservation stays pending and retries on other instances wait for the pending timeout;
+     * the request is not run twice before that.
+     */
+    private void finish(String key, LocalDateTime reservedAt, StoredResponse response) {
+        try {
+            if (response != null) {
+                idempotencyKeyRepository.complete(key, reservedAt, response.status(), response.body());
+            } else {
+                idempotencyKeyRepository.release(key, reservedAt);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not finish idempotency key {}, it stays reserved for {}", key, pendingTimeout, e);
+        }
+    }
+
+    private static LocalDateTime now() {
+        // The column keeps microseconds, and finishing a reservation matches on its creation time
+        return LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static void checkFingerprint(String key, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalArgumentException("Idempotency key " + key + " was already used for a different visit");
+        }
+    }
+
+    private static String fingerprint(Operation operation, VisitRequest request) {
+        return operation + "|" + request.getDoctorId() + "|" + request.getPatientId() + "|" + request.getStart()
+                + "|" + request.getEnd();
+    }
+
+    /**
+     * The booking endpoints accepting idempotency keys.
+     */
+    public enum Operation {
+        BOOK,
+        BOOK_ASYNC
+    }
+
+    /**
+     * A response kept for replays.
+     *
+     * @param status   The HTTP status code.
+     * @param body     The response body.
+     * @param replayed Whether the response was stored by an earlier request with the same key.
+     */
+    public record StoredResponse(int status, String body, boolean replayed) {
+        public boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+
+        StoredResponse asReplay() {
+            return replayed ? this : new StoredResponse(status, body, true);
+        }
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+}
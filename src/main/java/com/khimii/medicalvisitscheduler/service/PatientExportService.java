@@ -0,0 +1,194 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.repository.PatientExportRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PatientExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "patient_id,first_name,last_name,visit_start,visit_end,"
+            + "doctor_id,doctor_first_name,doctor_last_name,doctor_total_patients\n";
+
+    private final PatientExportRepository patientExportRepository;
+    private final PatientNameSearch patientNameSearch;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The formats patients can be exported in; both have one patient per line.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        /**
+         * @throws IllegalArgumentException if the format is unknown.
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format '" + name + "', expected ndjson or csv");
+        }
+    }
+
+    /**
+     * Writes every patient whose latest visit is completed, with that visit, to the output as the rows are read.
+     * Runs in a read-only transaction, which is served by the replica when one is configured, and holds its
+     * connection until the last row is written, so a slow client keeps a pooled connection busy; the export is
+     * cut off after {@code scheduler.export.timeout}. The output is flushed but not closed.
+     *
+     * @param search    Optional search query to filter patients by name.
+     * @param doctorIds Optional list of doctor IDs to filter visits by specific doctors.
+     * @param format    The format to write.
+     * @param output    The stream to write to.
+     * @return The number of patients written.
+     * @throws IOException if writing fails, e.g. because the client went away.
+     */
+    @Transactional(readOnly = true)
+    public long export(String search, List<Long> doctorIds, Format format, OutputStream output) throws IOException {
+        long startNanos = System.nanoTime();
+        PatientNameSearch.Match match = search == null
+                ? PatientNameSearch.Match.NOT_INDEXED
+                : patientNameSearch.find(search);
+        RowWriter writer = format == Format.NDJSON ? new NdjsonWriter(output) : new CsvWriter(output);
+        long[] rows = {0};
+        try {
+            patientExportRepository.forEachPatientWithLastVisit(search, match.getPatientIds(),
+                    match.getIndexedUpTo(), doctorIds, patient -> {
+                        try {
+                            writer.write(patient);
+                            rows[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} patients as {} in {} ms", rows[0], format.name().toLowerCase(Locale.ROOT),
+                (System.nanoTime() - startNanos) / 1_000_000);
+        return rows[0];
+    }
+
+    private interface RowWriter {
+        void write(PatientVisitResponse patient) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * Writes one JSON object per line with Jackson's streaming generator, without building a tree per row.
+     */
+    private class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void write(PatientVisitResponse patient) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("patientId", patient.getPatientId());
+            generator.writeStringField("firstName", patient.getFirstName());
+            generator.writeStringField("lastName", patient.getLastName());
+            generator.writeStringField("visitStart", patient.getVisitStart().toString());
+            generator.writeStringField("visitEnd", patient.getVisitEnd().toString());
+            generator.writeNumberField("doctorId", patient.getDoctorId());
+            generator.writeStringField("doctorFirstName", patient.getDoctorFirstName());
+            generator.writeStringField("doctorLastName", patient.getDoctorLastName());
+            generator.writeNumberField("doctorTotalPatients", patient.getTotalPatients());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * Writes RFC 4180 CSV with a header line, quoting only the values that need it.
+     */
+    private static class CsvWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(PatientVisitResponse patient) throws IOException {
+            writer.write(Long.toString(patient.getPatientId()));
+            writer.write(',');
+            writeText(patient.getFirstName());
+            writer.write(',');
+            writeText(patient.getLastName());
+            writer.write(',');
+            writer.write(patient.getVisitStart().toString());
+            writer.write(',');
+            writer.write(patient.getVisitEnd().toString());
+            writer.write(',');
+            writer.write(Long.toString(patient.getDoctorId()));
+            writer.write(',');
+            writeText(patient.getDoctorFirstName());
+            writer.write(',');
+            writeText(patient.getDoctorLastName());
+            writer.write(',');
+            writer.write(Long.toString(patient.getTotalPatients()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
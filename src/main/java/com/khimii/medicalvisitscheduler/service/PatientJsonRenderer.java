@@ -0,0 +1,114 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.model.dto.VisitResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Renders pages of the patient list as JSON from the pre-rendered JSON of each patient.
+ * <p>
+ * The JSON of a patient is written by the application's {@link ObjectMapper} the first time the patient
+ * is listed, and kept with the row it was rendered from. Later pages reuse it as long as the row is
+ * unchanged; a new visit of the patient, a new total of the doctor or a renamed patient or doctor changes
+ * the row, so the patient is rendered again. Most rows of a page are thus copied as bytes, without
+ * building response objects or formatting dates.
+ */
+@Component
+public class PatientJsonRenderer {
+
+    private final ObjectWriter patientWriter;
+    private final Cache<Long, Fragment> fragments;
+
+    private record Fragment(PatientVisitResponse row, RenderedPatientList.Patient patient) {
+
+        boolean isRenderedFrom(PatientVisitResponse other) {
+            return row.getVisitStart().equals(other.getVisitStart())
+                    && row.getVisitEnd().equals(other.getVisitEnd())
+                    && row.getDoctorId().equals(other.getDoctorId())
+                    && row.getTotalPatients().equals(other.getTotalPatients())
+                    && Objects.equals(row.getFirstName(), other.getFirstName())
+                    && Objects.equals(row.getLastName(), other.getLastName())
+                    && Objects.equals(row.getDoctorFirstName(), other.getDoctorFirstName())
+                    && Objects.equals(row.getDoctorLastName(), other.getDoctorLastName());
+        }
+    }
+
+    public PatientJsonRenderer(ObjectMapper objectMapper, SchedulerProperties schedulerProperties) {
+        this.patientWriter = objectMapper.writerFor(PatientResponse.class);
+        this.fragments = Caffeine.newBuilder()
+                .maximumSize(schedulerProperties.getPatientListCache().getMaximumPatients())
+                .build();
+    }
+
+    /**
+     * Renders a page of patients, leaving out those whose latest visit has not ended yet.
+     *
+     * @param rows       The rows of the page, one per patient.
+     * @param count      The total number of patients, or null to leave it out.
+     * @param nextCursor The cursor of the next page, or null to leave it out.
+     * @return The page as JSON.
+     */
+    public RenderedPatientList render(List<PatientVisitResponse> rows, Integer count, String nextCursor) {
+        LocalDateTime now = LocalDateTime.now();
+        List<RenderedPatientList.Patient> patients = new ArrayList<>(rows.size());
+        for (PatientVisitResponse row : rows) {
+            if (row.getVisitEnd().isAfter(now)) {
+                continue;
+            }
+            Fragment fragment = fragments.getIfPresent(row.getPatientId());
+            if (fragment == null || !fragment.isRenderedFrom(row)) {
+                fragment = new Fragment(row, RenderedPatientList.Patient.of(writeJson(mapToPatientResponse(row))));
+                fragments.put(row.getPatientId(), fragment);
+            }
+            patients.add(fragment.patient());
+        }
+        return new RenderedPatientList(patients, count, nextCursor);
+    }
+
+    private byte[] writeJson(PatientResponse patientResponse) {
+        try {
+            return patientWriter.writeValueAsBytes(patientResponse);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render patient as JSON", e);
+        }
+    }
+
+    /**
+     * Maps a PatientVisitResponse to a PatientResponse.
+     *
+     * @param patientVisitResponse The patient visit response after search.
+     * @return A PatientResponse containing patient details and their last visits.
+     */
+    private PatientResponse mapToPatientResponse(PatientVisitResponse patientVisitResponse) {
+        VisitResponse visitResponse = new VisitResponse();
+        visitResponse.setStart(patientVisitResponse.getVisitStart().toString());
+        visitResponse.setEnd(patientVisitResponse.getVisitEnd().toString());
+
+        DoctorResponse doctorResponse = new DoctorResponse();
+        doctorResponse.setFirstName(patientVisitResponse.getDoctorFirstName());
+        doctorResponse.setLastName(patientVisitResponse.getDoctorLastName());
+        doctorResponse.setTotalPatients(patientVisitResponse.getTotalPatients().intValue());
+
+        visitResponse.setDoctor(doctorResponse);
+
+        return new PatientResponse(
+                patientVisitResponse.getFirstName(),
+                patientVisitResponse.getLastName(),
+                List.of(visitResponse)
+        );
+    }
+}
@@ -0,0 +1,214 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of patient list pages, keyed by the normalized request parameters.
+ * <p>
+ * Pages are bounded by size and time to live. Once a booking commits, the pages showing its doctor or
+ * patient, and the pages whose filters the patient matches with the new doctor or with the doctor of the
+ * patient's previous latest visit, are evicted, since they may now show or stop showing the patient,
+ * another visit or another total for the doctor. A page that was being loaded while a booking
+ * committed is not kept. Changes not made by bookings, such as visits completing as time passes, show
+ * once the page expires.
+ * <p>
+ * With a replica, a page read shortly after a booking committed may come from a replica that has not
+ * applied it yet. Pages are therefore not cached while the replica may still be behind the last booking:
+ * for the allowed replication lag plus one lag check interval after it, and one more second, as the lag
+ * is reported in whole seconds. They are still served, from whichever database the read went to.
+ */
+@Slf4j
+@Component
+public class PatientListCache {
+
+    private static final long STALE_VERSION = -1;
+
+    private final boolean enabled;
+    private final Cache<Key, CachedPage> pages;
+    private final AtomicLong version = new AtomicLong();
+    private final long replicaLagNanos;
+    private volatile long lastEvictionNanos;
+
+    /**
+     * The parameters of a page of the patient list. Equal keys always select the same patients: the
+     * search term is lowercased, as names are compared ignoring case, and the doctor IDs are sorted
+     * without duplicates.
+     */
+    public record Key(int page, int size, String search, List<Long> doctorIds) {
+
+        public static Key of(int page, int size, String search, List<Long> doctorIds) {
+            return new Key(page, size,
+                    search == null ? null : search.toLowerCase(Locale.ROOT),
+                    doctorIds == null ? null : doctorIds.stream().distinct().sorted().toList());
+        }
+
+        /**
+         * Tells whether a visit of the patient with the doctor may list the patient on this page or on an
+         * earlier one of the same filter, so that adding or removing it changes this page.
+         */
+        boolean mayList(Long doctorId, String firstName, String lastName) {
+            return (doctorIds == null || doctorIds.contains(doctorId))
+                    && (search == null || mayContain(firstName, search) || mayContain(lastName, search));
+        }
+
+        /**
+         * Tells whether the name contains the lowercase search term. Non-ASCII names and terms always
+         * may, as the database collation can also ignore accents, and so do terms with {@code LIKE}
+         * wildcards or escapes.
+         */
+        private static boolean mayContain(String name, String search) {
+            return name == null
+                    || !isAscii(name) || !isAscii(search) || isLikePattern(search)
+                    || name.toLowerCase(Locale.ROOT).contains(search);
+        }
+
+        private static boolean isLikePattern(String search) {
+            return search.indexOf('%') >= 0 || search.indexOf('_') >= 0 || search.indexOf('\\') >= 0;
+        }
+
+        private static boolean isAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) > 0x7f) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record CachedPage(RenderedPatientList response, Set<Long> patientIds, Set<Long> doctorIds) {
+
+        boolean shows(Long doctorId, Long patientId) {
+            return doctorIds.contains(doctorId) || patientIds.contains(patientId);
+        }
+    }
+
+    public PatientListCache(SchedulerProperties schedulerProperties, MeterRegistry meterRegistry) {
+        SchedulerProperties.PatientListCache settings = schedulerProperties.getPatientListCache();
+        this.enabled = settings.isEnabled();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "patient_list");
+        SchedulerProperties.Replica replica = schedulerProperties.getReplica();
+        this.replicaLagNanos = replica.isEnabled()
+                ? replica.getMaxLag().plus(replica.getLagCheckInterval()).plusSeconds(1).toNanos()
+                : 0;
+        this.lastEvictionNanos = System.nanoTime() - replicaLagNanos;
+    }
+
+    /**
+     * @return Whether pages are cached; callers can skip looking up what {@link #recordVisit} needs otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param key The parameters of the page.
+     * @return The cached page, or null if it is not cached.
+     */
+    public RenderedPatientList get(Key key) {
+        if (!enabled) {
+            return null;
+        }
+        CachedPage page = pages.getIfPresent(key);
+        return page == null ? null : page.response();
+    }
+
+    /**
+     * @return The version to pass to {@link #put}, to be taken before the page is read from the database;
+     *         a version {@link #put} never accepts while a replica may not have applied the last booking.
+     */
+    public long currentVersion() {
+        long current = version.get();
+        // the eviction time is written before the version, so it is at least as new as the version read
+        return System.nanoTime() - lastEvictionNanos < replicaLagNanos ? STALE_VERSION : current;
+    }
+
+    /**
+     * Caches a page, unless a booking committed since the given version was taken, or shortly before it
+     * while a replica may not have applied it, as the page may not include it.
+     *
+     * @param key      The parameters of the page.
+     * @param loadedAt The {@link #currentVersion()} taken before the page was read.
+     * @param response The page.
+     * @param rows     The rows the page was built from.
+     */
+    public void put(Key key, long loadedAt, RenderedPatientList response, List<PatientVisitResponse> rows) {
+        if (!enabled || loadedAt == STALE_VERSION) {
+            return;
+        }
+        CachedPage page = new CachedPage(response,
+                rows.stream().map(PatientVisitResponse::getPatientId).collect(Collectors.toSet()),
+                rows.stream().map(PatientVisitResponse::getDoctorId).collect(Collectors.toSet()));
+        pages.put(key, page);
+        // checked after the put: an eviction running concurrently either sees the page or bumped the version first
+        if (version.get() != loadedAt) {
+            pages.asMap().remove(key, page);
+        }
+    }
+
+    /**
+     * Evicts the pages a new visit may change, once the current transaction commits, or right away
+     * when there is no transaction.
+     *
+     * @param doctorId         The ID of the doctor of the visit.
+     * @param previousDoctorId The ID of the doctor of the patient's latest visit before this one, or null if
+     *                         the patient had none. Pages filtered by that doctor may stop listing the patient.
+     * @param patient          The patient of the visit.
+     */
+    public void recordVisit(Long doctorId, Long previousDoctorId, PatientSnapshot patient) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(doctorId, previousDoctorId, patient);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(doctorId, previousDoctorId, patient);
+            }
+        });
+    }
+
+    private void evict(Long doctorId, Long previousDoctorId, PatientSnapshot patient) {
+        lastEvictionNanos = System.nanoTime();
+        version.incrementAndGet();
+        int evicted = 0;
+        for (Map.Entry<Key, CachedPage> entry : pages.asMap().entrySet()) {
+            Key key = entry.getKey();
+            if ((entry.getValue().shows(doctorId, patient.getId())
+                    || key.mayList(doctorId, patient.getFirstName(), patient.getLastName())
+                    || previousDoctorId != null
+                    && key.mayList(previousDoctorId, patient.getFirstName(), patient.getLastName()))
+                    && pages.asMap().remove(key, entry.getValue())) {
+                evicted++;
+            }
+        }
+        log.debug("Evicted {} cached patient list pages after a visit of Patient ID {} with Doctor ID {}",
+                evicted, patient.getId(), doctorId);
+    }
+}
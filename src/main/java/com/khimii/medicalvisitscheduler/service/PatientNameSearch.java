@@ -0,0 +1,237 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties.PatientSearch.Backend;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import com.khimii.medicalvisitscheduler.util.TrigramIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds patients whose first or last name contains a search term, so that the patient list can look
+ * them up by ID instead of matching {@code LIKE '%search%'} against every patient row.
+ * <p>
+ * The ngram backend keeps a {@link TrigramIndex} of all patient names in memory. It is built in the
+ * background at startup, patients added since are indexed every refresh interval, and it is rebuilt
+ * from scratch every rebuild interval to pick up renamed and deleted patients. Patients added after
+ * the last refresh are not in the index yet, so a {@link Match} only covers the patients up to its
+ * {@link Match#getIndexedUpTo()} and the queries match the names of later patients with {@code LIKE}.
+ * The fulltext backend asks MySQL's {@code FULLTEXT} index instead, which covers every patient.
+ * <p>
+ * Names are matched ignoring case and accents, as MySQL's collation does for {@code LIKE}. Terms shorter
+ * than {@link TrigramIndex#MIN_TERM_LENGTH} characters, terms matching more than the allowed number of
+ * candidates and terms containing the {@code LIKE} wildcards {@code %} and {@code _} or the escape
+ * character {@code \} are not looked up; they are matched with {@code LIKE} alone.
+ */
+@Slf4j
+@Component
+public class PatientNameSearch {
+
+    private static final String LIKE_SPECIAL_CHARACTERS = "%_\\";
+
+    private final PatientRepository patientRepository;
+    private final SchedulerProperties.PatientSearch settings;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService executor;
+
+    private TrigramIndex index = new TrigramIndex();
+    private long indexedUpTo;
+
+    /**
+     * The patients a search term matched.
+     */
+    @Value
+    public static class Match {
+        /**
+         * A match that leaves the whole search to {@code LIKE}.
+         */
+        public static final Match NOT_INDEXED = new Match(List.of(), 0);
+
+        /**
+         * The IDs of the matching patients, in ascending order.
+         */
+        List<Long> patientIds;
+
+        /**
+         * The largest patient ID the lookup covered; later patients have not been searched.
+         */
+        long indexedUpTo;
+    }
+
+    public PatientNameSearch(PatientRepository patientRepository, SchedulerProperties schedulerProperties) {
+        this.patientRepository = patientRepository;
+        this.settings = schedulerProperties.getPatientSearch();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "patient-name-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (settings.getBackend() != Backend.NGRAM) {
+            log.info("Patients are searched by name with the {} backend", settings.getBackend());
+            return;
+        }
+        executor.scheduleWithFixedDelay(this::rebuild, 0, settings.getRebuildInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::refresh, settings.getRefreshInterval().toMillis(),
+                settings.getRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Looks up the patients whose first or last name contains the term, ignoring case and accents.
+     *
+     * @param search The search term.
+     * @return The matching patients, or {@link Match#NOT_INDEXED} if the term is too short, too common
+     *         or a {@code LIKE} pattern.
+     */
+    public Match find(String search) {
+        if (search.length() < TrigramIndex.MIN_TERM_LENGTH || isLikePattern(search)) {
+            return Match.NOT_INDEXED;
+        }
+        return switch (settings.getBackend()) {
+            case NGRAM -> findInIndex(search);
+            case FULLTEXT -> findInFullTextIndex(search);
+            case LIKE -> Match.NOT_INDEXED;
+        };
+    }
+
+    private static boolean isLikePattern(String search) {
+        for (int i = 0; i < search.length(); i++) {
+            if (LIKE_SPECIAL_CHARACTERS.indexOf(search.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Match findInIndex(String search) {
+        if (TrigramIndex.normalize(search).length() < TrigramIndex.MIN_TERM_LENGTH) {
+            return Match.NOT_INDEXED;
+        }
+        int[] ids;
+        long upTo;
+        lock.readLock().lock();
+        try {
+            ids = index.search(search, settings.getMaxCandidates());
+            upTo = indexedUpTo;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids == null) {
+            return Match.NOT_INDEXED;
+        }
+        List<Long> patientIds = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            patientIds.add((long) id);
+        }
+        return new Match(patientIds, upTo);
+    }
+
+    private Match findInFullTextIndex(String search) {
+        if (search.indexOf('"') >= 0) {
+            return Match.NOT_INDEXED;
+        }
+        List<Long> patientIds = patientRepository.findIdsByNameFullText('"' + search + '"',
+                settings.getMaxCandidates() + 1);
+        return patientIds.size() > settings.getMaxCandidates()
+                ? Match.NOT_INDEXED
+                : new Match(patientIds, Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds a new index of all patients and replaces the current one with it.
+     */
+    void rebuild() {
+        try {
+            long startNanos = System.nanoTime();
+            TrigramIndex rebuilt = new TrigramIndex();
+            long upTo = load(rebuilt, 0);
+            lock.writeLock().lock();
+            try {
+                index = rebuilt;
+                indexedUpTo = upTo;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Indexed the names of {} patients in {} ms", rebuilt.size(),
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Could not build the patient name index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the patients created since the last refresh to the index.
+     */
+    void refresh() {
+        try {
+            lock.readLock().lock();
+            long afterId;
+            try {
+                afterId = indexedUpTo;
+            } finally {
+                lock.readLock().unlock();
+            }
+            load(null, afterId);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the patient name index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the patients after the given ID in batches and adds them to the target index, or to the
+     * current one, under the write lock, if the target is null.
+     *
+     * @return The largest patient ID read, or {@code afterId} if there were none.
+     */
+    private long load(TrigramIndex target, long afterId) {
+        int batchSize = settings.getLoadBatchSize();
+        List<PatientSnapshot> batch;
+        do {
+            batch = patientRepository.findSnapshotsAfter(afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            if (target != null) {
+                addAll(target, batch);
+            } else {
+                lock.writeLock().lock();
+                try {
+                    addAll(index, batch);
+                    indexedUpTo = batch.get(batch.size() - 1).getId();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == batchSize);
+        return afterId;
+    }
+
+    private static void addAll(TrigramIndex target, List<PatientSnapshot> patients) {
+        for (PatientSnapshot patient : patients) {
+            target.put(Math.toIntExact(patient.getId()), patient.getFirstName(), patient.getLastName());
+        }
+    }
+}
@@ -1,29 +1,51 @@
 package com.khimii.medicalvisitscheduler.service;
 
 import com.khimii.medicalvisitscheduler.model.dto.*;
-import com.khimii.medicalvisitscheduler.repository.PatientRepository;
-import lombok.RequiredArgsConstructor;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
+import com.khimii.medicalvisitscheduler.service.SchedulerMetrics.ListingStage;
+import com.khimii.medicalvisitscheduler.util.PatientCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PatientService {
 
-    private final PatientRepository patientRepository;
+    private final PatientLastVisitRepository patientLastVisitRepository;
+    private final PatientNameSearch patientNameSearch;
+    private final PatientListCache patientListCache;
+    private final PatientJsonRenderer patientJsonRenderer;
+    private final SchedulerMetrics schedulerMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PatientService(PatientLastVisitRepository patientLastVisitRepository, PatientNameSearch patientNameSearch,
+                          PatientListCache patientListCache, PatientJsonRenderer patientJsonRenderer,
+                          SchedulerMetrics schedulerMetrics, PlatformTransactionManager transactionManager) {
+        this.patientLastVisitRepository = patientLastVisitRepository;
+        this.patientNameSearch = patientNameSearch;
+        this.patientListCache = patientListCache;
+        this.patientJsonRenderer = patientJsonRenderer;
+        this.schedulerMetrics = schedulerMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     /**
      * Retrieves a paginated list of patients who have completed visits.
+     * Served from the {@link PatientListCache} when the page is cached, without opening a transaction.
+     * Otherwise it is read from the latest-visit-per-patient read model and cached. The page query runs its
+     * count query itself, so its time is part of the {@code query} stage. Both run in one read-only
+     * transaction, which is served by the replica when one is configured.
      *
      * @param page      The page number (default is 0).
      * @param size      The number of records per page (default is 10).
@@ -31,50 +53,99 @@ public class PatientService {
      * @param doctorIds Optional list of doctor IDs to filter visits by specific doctors.
      * @return A response containing a list of patients with their last completed visits.
      */
-    public Optional<PatientListResponse> getPatients(int page, int size, String search, List<Long> doctorIds) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<PatientVisitResponse> patientPage = patientRepository.findPatientsWithVisits(search, doctorIds, pageable);
+    public Optional<RenderedPatientList> getPatients(int page, int size, String search, List<Long> doctorIds) {
+        PatientListCache.Key key = PatientListCache.Key.of(page, size, search, doctorIds);
+        RenderedPatientList cached = patientListCache.get(key);
+        if (cached != null) {
+            log.debug("Returning cached page {} of patients for search: '{}' and doctorIds: {}", page, search, doctorIds);
+            return Optional.of(cached);
+        }
+        long version = patientListCache.currentVersion();
+        return readOnlyTransaction.execute(status -> loadPatients(key, version, search, doctorIds));
+    }
+
+    private Optional<RenderedPatientList> loadPatients(PatientListCache.Key key, long version, String search,
+                                                       List<Long> doctorIds) {
+        Pageable pageable = PageRequest.of(key.page(), key.size());
+        PatientNameSearch.Match match = findByName(search);
+        Page<PatientVisitResponse> patientPage = schedulerMetrics.time(ListingStage.QUERY,
+                () -> patientLastVisitRepository.findPatientsWithLastVisits(search, match.getPatientIds(),
+                        match.getIndexedUpTo(), doctorIds, pageable));
 
         if (patientPage.isEmpty()) {
             log.warn("No patients found for search: '{}' and doctorIds: {}", search, doctorIds);
+            schedulerMetrics.patientsNotFound();
             return Optional.empty();
         }
 
-        List<PatientResponse> patientResponses = patientPage.getContent().stream()
-                .map(this::mapToPatientResponse)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        RenderedPatientList response = schedulerMetrics.time(ListingStage.MAPPING,
+                () -> patientJsonRenderer.render(patientPage.getContent(), (int) patientPage.getTotalElements(), null));
 
-        log.info("Returning {} patients with completed visits", patientResponses.size());
+        log.info("Returning {} patients with completed visits", response.getSize());
 
-        return Optional.of(new PatientListResponse(patientResponses, (int) patientPage.getTotalElements()));
+        patientListCache.put(key, version, response, patientPage.getContent());
+        return Optional.of(response);
     }
 
     /**
-     * Maps a PatientVisitResponse to a PatientResponse.
+     * Retrieves a keyset-paginated list of patients who have completed visits, newest visit first.
+     * No count query is executed unless the total is explicitly requested. Runs in a read-only transaction.
      *
-     * @param patientVisitResponse The patient visit response after search.
-     * @return A PatientResponse containing patient details and their last visits.
+     * @param after        Optional cursor returned by the previous page; null for the first page.
+     * @param size         The number of records per page.
+     * @param search       Optional search query to filter patients by name.
+     * @param doctorIds    Optional list of doctor IDs to filter visits by specific doctors.
+     * @param includeCount Whether to compute the total number of matching patients.
+     * @return A response containing the patients and the cursor of the next page, if any.
+     * @throws IllegalArgumentException if the cursor is malformed.
      */
-    private PatientResponse mapToPatientResponse(PatientVisitResponse patientVisitResponse) {
-        if (patientVisitResponse.getVisitEnd().isAfter(LocalDateTime.now())) {
-            return null;
+    @Transactional(readOnly = true)
+    public Optional<RenderedPatientList> getPatientsAfter(String after, int size, String search,
+                                                          List<Long> doctorIds, boolean includeCount) {
+        Pageable pageable = PageRequest.of(0, size);
+        PatientCursor cursor = after == null ? null : PatientCursor.decode(after);
+        PatientNameSearch.Match match = findByName(search);
+        Slice<PatientVisitResponse> patientSlice = schedulerMetrics.time(ListingStage.QUERY, () -> cursor == null
+                ? patientLastVisitRepository.findFirstPatientsByLastVisit(search, match.getPatientIds(),
+                        match.getIndexedUpTo(), doctorIds, pageable)
+                : patientLastVisitRepository.findPatientsByLastVisitAfter(search, match.getPatientIds(),
+                        match.getIndexedUpTo(), doctorIds, cursor.getLastVisitStart(), cursor.getPatientId(),
+                        pageable));
+
+        if (patientSlice.isEmpty()) {
+            log.warn("No patients found after cursor '{}' for search: '{}' and doctorIds: {}", after, search, doctorIds);
+            schedulerMetrics.patientsNotFound();
+            return Optional.empty();
         }
-        VisitResponse visitResponse = new VisitResponse();
-        visitResponse.setStart(patientVisitResponse.getVisitStart().toString());
-        visitResponse.setEnd(patientVisitResponse.getVisitEnd().toString());
-
-        DoctorResponse doctorResponse = new DoctorResponse();
-        doctorResponse.setFirstName(patientVisitResponse.getDoctorFirstName());
-        doctorResponse.setLastName(patientVisitResponse.getDoctorLastName());
-        doctorResponse.setTotalPatients(patientVisitResponse.getTotalPatients().intValue());
-
-        visitResponse.setDoctor(doctorResponse);
-
-        return new PatientResponse(
-                patientVisitResponse.getFirstName(),
-                patientVisitResponse.getLastName(),
-                List.of(visitResponse)
-        );
+
+        String nextCursor = patientSlice.hasNext() ? cursorAfter(patientSlice) : null;
+        Integer count = includeCount
+                ? schedulerMetrics.time(ListingStage.COUNT,
+                        () -> (int) patientLastVisitRepository.countPatientsWithLastVisits(search,
+                                match.getPatientIds(), match.getIndexedUpTo(), doctorIds))
+                : null;
+
+        RenderedPatientList response = schedulerMetrics.time(ListingStage.MAPPING,
+                () -> patientJsonRenderer.render(patientSlice.getContent(), count, nextCursor));
+
+        log.info("Returning {} patients with completed visits after cursor '{}'", response.getSize(), after);
+
+        return Optional.of(response);
+    }
+
+    private static String cursorAfter(Slice<PatientVisitResponse> patientSlice) {
+        PatientVisitResponse last = patientSlice.getContent().get(patientSlice.getNumberOfElements() - 1);
+        return new PatientCursor(last.getVisitStart(), last.getPatientId()).encode();
+    }
+
+    /**
+     * Looks up the patients whose names contain the search query in the name search index.
+     *
+     * @return The matching patients, or {@link PatientNameSearch.Match#NOT_INDEXED} if there is no search query.
+     */
+    private PatientNameSearch.Match findByName(String search) {
+        return search == null
+                ? PatientNameSearch.Match.NOT_INDEXED
+                : schedulerMetrics.time(ListingStage.NAME_SEARCH, () -> patientNameSearch.find(search));
     }
 }
@@ -0,0 +1,147 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.Doctor;
+import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of doctor and patient reference data.
+ * <p>
+ * Entries are immutable snapshots rather than managed entities, so they can be shared across
+ * transactions. Caches are bounded by size and time to live; unknown IDs are not cached.
+ * Code changing doctors or patients must call the matching {@code evict} method. Hits, misses, loads
+ * and evictions are published as the {@code reference_doctors} and {@code reference_patients} caches.
+ */
+@Slf4j
+@Service
+public class ReferenceDataService {
+
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+
+    private final Cache<Long, DoctorSnapshot> doctors;
+    private final Cache<Long, PatientSnapshot> patients;
+
+    public ReferenceDataService(DoctorRepository doctorRepository, PatientRepository patientRepository,
+                                SchedulerProperties schedulerProperties, MeterRegistry meterRegistry) {
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        SchedulerProperties.ReferenceCache settings = schedulerProperties.getReferenceCache();
+        this.doctors = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumDoctors())
+                .expireAfterWrite(settings.getTimeToLive())
+                .recordStats()
+                .build();
+        this.patients = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumPatients())
+                .expireAfterWrite(settings.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, doctors, "reference_doctors");
+        CaffeineCacheMetrics.monitor(meterRegistry, patients, "reference_patients");
+    }
+
+    /**
+     * Retrieves a doctor, loading it from the database on a cache miss.
+     *
+     * @param doctorId The ID of the doctor.
+     * @return The doctor snapshot, or empty if no such doctor exists.
+     */
+    public Optional<DoctorSnapshot> findDoctor(Long doctorId) {
+        return Optional.ofNullable(doctors.get(doctorId,
+                id -> doctorRepository.findById(id).map(DoctorSnapshot::from).orElse(null)));
+    }
+
+    /**
+     * Retrieves a patient, loading it from the database on a cache miss.
+     *
+     * @param patientId The ID of the patient.
+     * @return The patient snapshot, or empty if no such patient exists.
+     */
+    public Optional<PatientSnapshot> findPatient(Long patientId) {
+        return Optional.ofNullable(patients.get(patientId,
+                id -> patientRepository.findById(id).map(PatientSnapshot::from).orElse(null)));
+    }
+
+    /**
+     * Retrieves many doctors, loading all cache misses with a single query.
+     *
+     * @param doctorIds The IDs of the doctors.
+     * @return The snapshots of the doctors that exist, keyed by ID.
+     */
+    public Map<Long, DoctorSnapshot> findDoctors(Collection<Long> doctorIds) {
+        return doctors.getAll(doctorIds, missing -> doctorRepository.findAllById(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(Doctor::getId, DoctorSnapshot::from)));
+    }
+
+    /**
+     * Retrieves many patients, loading all cache misses with a single query.
+     *
+     * @param patientIds The IDs of the patients.
+     * @return The snapshots of the patients that exist, keyed by ID.
+     */
+    public Map<Long, PatientSnapshot> findPatients(Collection<Long> patientIds) {
+        return patients.getAll(patientIds, missing -> patientRepository.findAllById(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(Patient::getId, PatientSnapshot::from)));
+    }
+
+    /**
+     * Drops a doctor from the cache so that the next lookup reads the database.
+     *
+     * @param doctorId The ID of the doctor.
+     */
+    public void evictDoctor(Long doctorId) {
+        doctors.invalidate(doctorId);
+        log.info("Evicted cached Doctor ID {}", doctorId);
+    }
+
+    /**
+     * Drops a patient from the cache so that the next lookup reads the database.
+     *
+     * @param patientId The ID of the patient.
+     */
+    public void evictPatient(Long patientId) {
+        patients.invalidate(patientId);
+        log.info("Evicted cached Patient ID {}", patientId);
+    }
+
+    /**
+     * Drops all cached doctors and patients, e.g. after a bulk import.
+     */
+    public void evictAll() {
+        doctors.invalidateAll();
+        patients.invalidateAll();
+        log.info("Evicted all cached doctors and patients");
+    }
+
+    /**
+     * @return Hit, miss, load and eviction counts of the doctor cache since startup.
+     */
+    public CacheStats doctorCacheStats() {
+        return doctors.stats();
+    }
+
+    /**
+     * @return Hit, miss, load and eviction counts of the patient cache since startup.
+     */
+    public CacheStats patientCacheStats() {
+        return patients.stats();
+    }
+}
@@ -0,0 +1,126 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of the booking and patient list hot paths.
+ * <p>
+ * Every stage of a booking and of a patient list request has its own timer, tagged with the stage name,
+ * so that the latency of the endpoints can be broken down under load. The timers publish percentile
+ * histograms, which Prometheus can aggregate across instances. All meters are registered up front, so
+ * recording does not look them up in the registry.
+ */
+@Component
+public class SchedulerMetrics {
+
+    /**
+     * The stages of booking a single visit, in the order they run.
+     */
+    public enum BookingStage {
+        DOCTOR_LOOKUP, PATIENT_LOOKUP, TIMEZONE_CONVERSION, LOCK_WAIT, CONFLICT_CHECK, INSERT, READ_MODEL_UPDATE
+    }
+
+    /**
+     * The stages of serving a page of the patient list.
+     */
+    public enum ListingStage {
+        NAME_SEARCH, QUERY, COUNT, MAPPING
+    }
+
+    /**
+     * Why a booking request was turned down.
+     */
+    public enum Rejection {
+        CONFLICT, DOCTOR_NOT_FOUND, PATIENT_NOT_FOUND
+    }
+
+    private final Map<BookingStage, Timer> bookingStages = new EnumMap<>(BookingStage.class);
+    private final Map<ListingStage, Timer> listingStages = new EnumMap<>(ListingStage.class);
+    private final Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+    private final Counter bookingsCreated;
+    private final Counter emptyPatientPages;
+
+    public SchedulerMetrics(MeterRegistry meterRegistry) {
+        for (BookingStage stage : BookingStage.values()) {
+            bookingStages.put(stage, stageTimer("scheduler.booking.stage", "Time spent in a stage of booking a visit",
+                    stage.name(), meterRegistry));
+        }
+        for (ListingStage stage : ListingStage.values()) {
+            listingStages.put(stage, stageTimer("scheduler.patients.stage", "Time spent in a stage of listing patients",
+                    stage.name(), meterRegistry));
+        }
+        for (Rejection rejection : Rejection.values()) {
+            rejections.put(rejection, Counter.builder("scheduler.booking.rejections")
+                    .description("Visits that could not be booked")
+                    .tag("reason", tagValue(rejection.name()))
+                    .register(meterRegistry));
+        }
+        this.bookingsCreated = Counter.builder("scheduler.visits.booked")
+                .description("Visits booked")
+                .register(meterRegistry);
+        this.emptyPatientPages = Counter.builder("scheduler.patients.not.found")
+                .description("Patient list requests that matched no patients")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a booking stage and records its duration, also when it fails.
+     */
+    public <T> T time(BookingStage stage, Supplier<T> work) {
+        return bookingStages.get(stage).record(work);
+    }
+
+    /**
+     * Runs a booking stage without a result and records its duration, also when it fails.
+     */
+    public void time(BookingStage stage, Runnable work) {
+        bookingStages.get(stage).record(work);
+    }
+
+    /**
+     * Runs a patient list stage and records its duration, also when it fails.
+     */
+    public <T> T time(ListingStage stage, Supplier<T> work) {
+        return listingStages.get(stage).record(work);
+    }
+
+    /**
+     * Records the duration of a booking stage that started at the given {@link System#nanoTime()}.
+     */
+    public void recordSince(BookingStage stage, long startNanos) {
+        bookingStages.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void bookingsCreated(int count) {
+        bookingsCreated.increment(count);
+    }
+
+    public void bookingRejected(Rejection rejection) {
+        rejections.get(rejection).increment();
+    }
+
+    public void patientsNotFound() {
+        emptyPatientPages.increment();
+    }
+
+    private static Timer stageTimer(String name, String description, String stage, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("stage", tagValue(stage))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(String constant) {
+        return constant.toLowerCase(Locale.ROOT);
+    }
+}
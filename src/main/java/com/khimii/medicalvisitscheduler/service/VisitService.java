@@ -1,20 +1,33 @@
 package com.khimii.medicalvisitscheduler.service;
 
-import com.khimii.medicalvisitscheduler.model.Doctor;
-import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.exception.VisitConflictException;
+import com.khimii.medicalvisitscheduler.model.PatientLastVisit;
 import com.khimii.medicalvisitscheduler.model.Visit;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchItemResult;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
 import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
 import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
 import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import com.khimii.medicalvisitscheduler.repository.VisitBatchRepository;
 import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import com.khimii.medicalvisitscheduler.service.SchedulerMetrics.BookingStage;
+import com.khimii.medicalvisitscheduler.service.SchedulerMetrics.Rejection;
 import com.khimii.medicalvisitscheduler.util.DateUtil;
-import jakarta.persistence.OptimisticLockException;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -22,79 +35,393 @@ import java.time.LocalDateTime;
 public class VisitService {
 
     private final VisitRepository visitRepository;
+    private final VisitBatchRepository visitBatchRepository;
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
+    private final PatientLastVisitRepository patientLastVisitRepository;
+    private final DoctorPatientStatsService doctorPatientStatsService;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final DoctorCalendarIndex doctorCalendarIndex;
+    private final PatientListCache patientListCache;
+    private final DoctorBookingLocks doctorBookingLocks;
+    private final ReferenceDataService referenceDataService;
+    private final SchedulerProperties schedulerProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerMetrics schedulerMetrics;
 
     /**
      * Creates a new visit for a patient and doctor.
+     * Doctor and patient come from the reference-data cache, so a warm booking only writes to the database.
+     * Bookings of the same doctor are serialized by {@link DoctorBookingLocks}, which are held around the transaction.
+     * Each stage is timed by {@link SchedulerMetrics}; a rejection is counted once the booking has failed.
      *
      * @param request The visit request containing patient ID, doctor ID, start and end time.
+     * @throws RuntimeException if the doctor or patient is not found, or the doctor is not available.
      */
-    @Transactional
     public void createVisit(VisitRequest request) {
-        Doctor doctor = findDoctorById(request.getDoctorId());
-        Patient patient = findPatientById(request.getPatientId());
+        DoctorSnapshot doctor = schedulerMetrics.time(BookingStage.DOCTOR_LOOKUP, () -> findDoctorById(request.getDoctorId()));
+        PatientSnapshot patient = schedulerMetrics.time(BookingStage.PATIENT_LOOKUP, () -> findPatientById(request.getPatientId()));
 
+        long conversionStart = System.nanoTime();
         LocalDateTime start = DateUtil.convertToUtcTime(request.getStart(), doctor.getTimezone());
         LocalDateTime end = DateUtil.convertToUtcTime(request.getEnd(), doctor.getTimezone());
+        schedulerMetrics.recordSince(BookingStage.TIMEZONE_CONVERSION, conversionStart);
 
-        checkForConflictingVisit(doctor.getId(), start, end);
+        List<Long> doctorIds = List.of(doctor.getId());
+        long lockStart = System.nanoTime();
+        try {
+            doctorBookingLocks.callWithLocks(doctorIds, () -> schedulerMetrics.recordSince(BookingStage.LOCK_WAIT, lockStart),
+                    () -> transactionTemplate.execute(status -> {
+                        doctorBookingLocks.lockRows(doctorIds);
+                        storeVisit(doctor, patient, start, end);
+                        return null;
+                    }));
+        } catch (VisitConflictException e) {
+            schedulerMetrics.bookingRejected(Rejection.CONFLICT);
+            throw e;
+        }
+        schedulerMetrics.bookingsCreated(1);
+    }
 
+    private void storeVisit(DoctorSnapshot doctor, PatientSnapshot patient, LocalDateTime start, LocalDateTime end) {
+        schedulerMetrics.time(BookingStage.CONFLICT_CHECK, () -> checkForConflictingVisit(doctor.getId(), start, end));
+
+        long insertStart = System.nanoTime();
         Visit visit = buildVisit(doctor, patient, start, end);
 
         try {
-            visitRepository.save(visit);
-        } catch (OptimisticLockException e) {
-            log.error("Concurrent modification detected: {}", e.getMessage());
-            throw new RuntimeException("Concurrent modification detected. Please try again.");
+            visitRepository.saveAndFlush(visit);
+        } catch (DataIntegrityViolationException e) {
+            log.error("Visit of Doctor ID {} at {} was booked concurrently: {}", doctor.getId(), start, e.getMessage());
+            throw new VisitConflictException();
+        }
+        schedulerMetrics.recordSince(BookingStage.INSERT, insertStart);
+
+        schedulerMetrics.time(BookingStage.READ_MODEL_UPDATE, () -> {
+            Long previousDoctorId = patientListCache.isEnabled()
+                    ? latestVisitDoctorIds(List.of(patient.getId())).get(patient.getId())
+                    : null;
+            patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), start, end);
+            doctorPatientStatsService.recordVisit(doctor.getId(), patient.getId());
+            doctorScheduleIndex.recordVisit(doctor.getId(), start, end);
+            doctorCalendarIndex.recordVisit(doctor.getId(), start, end);
+            patientListCache.recordVisit(doctor.getId(), previousDoctorId, patient);
+        });
+    }
+
+    /**
+     * Creates many visits in one transaction and reports the outcome of each request separately.
+     * <p>
+     * Doctors and patients missing from the reference-data cache are loaded with one query each, and conflicts are checked with one range
+     * query per doctor, covering both existing visits and earlier requests of the same batch.
+     * Rejected requests do not prevent the others from being booked; the accepted visits are
+     * written with JDBC batch inserts. Rejections are counted only once the batch has been stored.
+     *
+     * @param requests The visit requests, each with patient ID, doctor ID, start and end time.
+     * @return The number of created and rejected visits and a result for every request, in request order.
+     * @throws RuntimeException if the batch is too large or the visits could not be stored.
+     */
+    public VisitBatchResponse createVisits(List<VisitRequest> requests) {
+        int maxSize = schedulerProperties.getBatch().getMaxSize();
+        if (requests.size() > maxSize) {
+            throw new RuntimeException("Batch contains " + requests.size() + " visits, the limit is " + maxSize);
         }
+        return bookAll(requests, this::acceptNonConflicting);
+    }
+
+    /**
+     * Books single visit requests collected by the {@link BookingPipeline} with one group commit.
+     * <p>
+     * Works like {@link #createVisits(List)}, except that conflicts are checked against the in-memory
+     * schedule index, as for single bookings, instead of with a range query per doctor.
+     *
+     * @param requests The visit requests in the order they were received.
+     * @return A result for every request, in request order.
+     * @throws RuntimeException if the visits could not be stored.
+     */
+    public VisitBatchResponse createQueuedVisits(List<VisitRequest> requests) {
+        return bookAll(requests, this::acceptNonConflictingIndexed);
+    }
+
+    private VisitBatchResponse bookAll(List<VisitRequest> requests, ConflictFilter conflictFilter) {
+        Map<Long, DoctorSnapshot> doctors = referenceDataService.findDoctors(collectIds(requests, VisitRequest::getDoctorId));
+        Map<Long, PatientSnapshot> patients = referenceDataService.findPatients(collectIds(requests, VisitRequest::getPatientId));
+
+        BatchResults results = new BatchResults(requests.size());
+        Map<Long, List<BatchItem>> itemsByDoctor = new LinkedHashMap<>();
+        for (int index = 0; index < requests.size(); index++) {
+            VisitRequest request = requests.get(index);
+            if (!validateBatchRequest(index, request, doctors, patients, results)) {
+                continue;
+            }
+            DoctorSnapshot doctor = doctors.get(request.getDoctorId());
+            itemsByDoctor.computeIfAbsent(doctor.getId(), id -> new ArrayList<>())
+                    .add(new BatchItem(index, doctor, patients.get(request.getPatientId()),
+                            DateUtil.convertToUtcTime(request.getStart(), doctor.getTimezone()),
+                            DateUtil.convertToUtcTime(request.getEnd(), doctor.getTimezone())));
+        }
+
+        VisitBatchResponse response = doctorBookingLocks.callWithLocks(itemsByDoctor.keySet(), () -> transactionTemplate.execute(status -> {
+            doctorBookingLocks.lockRows(itemsByDoctor.keySet());
+            return storeBatch(requests.size(), itemsByDoctor, results, conflictFilter);
+        }));
+        schedulerMetrics.bookingsCreated(response.getCreated());
+        results.rejections().forEach(schedulerMetrics::bookingRejected);
+        return response;
+    }
+
+    private VisitBatchResponse storeBatch(int requestCount, Map<Long, List<BatchItem>> itemsByDoctor,
+                                          BatchResults results, ConflictFilter conflictFilter) {
+        List<BatchItem> accepted = new ArrayList<>();
+        itemsByDoctor.forEach((doctorId, items) -> conflictFilter.accept(doctorId, items, accepted, results));
+
+        List<Visit> visits = accepted.stream()
+                .map(item -> buildVisit(item.doctor(), item.patient(), item.start(), item.end()))
+                .toList();
+        List<Long> visitIds;
+        try {
+            visitIds = visitBatchRepository.insertAll(visits);
+        } catch (DataIntegrityViolationException e) {
+            log.error("Batch of {} visits conflicts with concurrent bookings: {}", visits.size(), e.getMessage());
+            throw new RuntimeException("Some visits were booked concurrently. Please try again.");
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            BatchItem item = accepted.get(i);
+            results.created(item.index(), visitIds.get(i));
+        }
+        recordBatchVisits(accepted);
+
+        log.info("Batch booking created {} of {} visits", accepted.size(), requestCount);
+        return new VisitBatchResponse(accepted.size(), requestCount - accepted.size(), results.toList());
     }
 
     /**
      * Retrieves a doctor by their ID.
      *
      * @param doctorId The ID of the doctor.
-     * @return The doctor entity.
+     * @return The cached doctor snapshot.
      * @throws RuntimeException if the doctor is not found.
      */
-    private Doctor findDoctorById(Long doctorId) {
-        return doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doctor with ID " + doctorId + " not found"));
+    private DoctorSnapshot findDoctorById(Long doctorId) {
+        return referenceDataService.findDoctor(doctorId).orElseThrow(() -> {
+            schedulerMetrics.bookingRejected(Rejection.DOCTOR_NOT_FOUND);
+            return new RuntimeException("Doctor with ID " + doctorId + " not found");
+        });
     }
 
     /**
      * Retrieves a patient by their ID.
      *
      * @param patientId The ID of the patient.
-     * @return The patient entity.
+     * @return The cached patient snapshot.
      * @throws RuntimeException if the patient is not found.
      */
-    private Patient findPatientById(Long patientId) {
-        return patientRepository.findById(patientId)
-                .orElseThrow(() -> new RuntimeException("Patient with ID " + patientId + " not found"));
+    private PatientSnapshot findPatientById(Long patientId) {
+        return referenceDataService.findPatient(patientId).orElseThrow(() -> {
+            schedulerMetrics.bookingRejected(Rejection.PATIENT_NOT_FOUND);
+            return new RuntimeException("Patient with ID " + patientId + " not found");
+        });
     }
 
     /**
      * Checks if there is a conflicting visit for the doctor within the specified time range.
+     * The in-memory schedule index answers the common case; a conflict it reports is confirmed
+     * against the database before the booking is rejected. With database locks, other nodes may have
+     * booked visits this node's index has not seen, so the database is always asked.
      *
      * @param doctorId The ID of the doctor.
      * @param start    The start time of the new visit.
      * @param end      The end time of the new visit.
-     * @throws RuntimeException if a conflicting visit is found.
+     * @throws VisitConflictException if a conflicting visit is found.
      */
     private void checkForConflictingVisit(Long doctorId, LocalDateTime start, LocalDateTime end) {
-        if (visitRepository.existsConflictingVisit(doctorId, start, end)) {
+        if (isBooked(doctorId, start, end)) {
             log.warn("Conflict found for Doctor ID {} at time: {} - {}", doctorId, start, end);
-            throw new RuntimeException("Doctor is not available at this time");
+            throw new VisitConflictException();
+        }
+    }
+
+    /**
+     * Tells whether a stored visit of the doctor overlaps the given time range, as described for
+     * {@link #checkForConflictingVisit}. Evicts the doctor's indexes if they report a conflict the database does not.
+     */
+    private boolean isBooked(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        boolean indexedConflict = doctorScheduleIndex.hasConflict(doctorId, start, end);
+        if (!indexedConflict && !doctorBookingLocks.isDatabaseLock()) {
+            return false;
         }
+        if (visitRepository.existsConflictingVisit(doctorId, start, end)) {
+            return true;
+        }
+        if (indexedConflict) {
+            log.warn("Schedule index out of date for Doctor ID {}, reloading", doctorId);
+            doctorScheduleIndex.evict(doctorId);
+            doctorCalendarIndex.evict(doctorId);
+        }
+        return false;
     }
 
-    private Visit buildVisit(Doctor doctor, Patient patient, LocalDateTime start, LocalDateTime end) {
+    private Set<Long> collectIds(List<VisitRequest> requests, Function<VisitRequest, Long> idGetter) {
+        return requests.stream()
+                .map(idGetter)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Checks a batch request against the loaded doctors and patients, rejecting it in the results if it cannot be booked.
+     *
+     * @return Whether the request can be booked.
+     */
+    private boolean validateBatchRequest(int index, VisitRequest request, Map<Long, DoctorSnapshot> doctors,
+                                         Map<Long, PatientSnapshot> patients, BatchResults results) {
+        if (request.getDoctorId() == null || request.getPatientId() == null
+                || request.getStart() == null || request.getEnd() == null) {
+            results.rejected(index, null, "Patient ID, doctor ID, start and end are required");
+            return false;
+        }
+        if (!request.getEnd().isAfter(request.getStart())) {
+            results.rejected(index, null, "Visit end must be after its start");
+            return false;
+        }
+        if (!doctors.containsKey(request.getDoctorId())) {
+            results.rejected(index, Rejection.DOCTOR_NOT_FOUND, "Doctor with ID " + request.getDoctorId() + " not found");
+            return false;
+        }
+        if (!patients.containsKey(request.getPatientId())) {
+            results.rejected(index, Rejection.PATIENT_NOT_FOUND, "Patient with ID " + request.getPatientId() + " not found");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Accepts the batch items of one doctor that overlap neither a stored visit nor an earlier item of the batch.
+     * Stored visits are read with a single query spanning all items of the doctor.
+     */
+    private void acceptNonConflicting(Long doctorId, List<BatchItem> items, List<BatchItem> accepted,
+                                      BatchResults results) {
+        LocalDateTime from = items.stream().map(BatchItem::start).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = items.stream().map(BatchItem::end).max(Comparator.naturalOrder()).orElseThrow();
+        List<VisitInterval> booked = visitRepository.findIntervalsByDoctorIdBetween(doctorId, from, to);
+
+        DoctorSchedule schedule = new DoctorSchedule(booked.size() + items.size());
+        schedule.load(booked);
+        for (BatchItem item : items) {
+            long start = DoctorSchedule.toEpochSecond(item.start());
+            long end = DoctorSchedule.toEpochSecond(item.end());
+            if (schedule.overlaps(start, end)) {
+                log.warn("Conflict found for Doctor ID {} at time: {} - {}", doctorId, item.start(), item.end());
+                results.rejected(item.index(), Rejection.CONFLICT, "Doctor is not available at this time");
+            } else {
+                schedule.add(start, end);
+                accepted.add(item);
+            }
+        }
+    }
+
+    /**
+     * Accepts the batch items of one doctor that overlap neither a visit known to the schedule index nor an
+     * earlier item of the batch. Runs under the doctor's booking lock, so the index is up to date for this node.
+     */
+    private void acceptNonConflictingIndexed(Long doctorId, List<BatchItem> items, List<BatchItem> accepted,
+                                             BatchResults results) {
+        DoctorSchedule batchSchedule = new DoctorSchedule(items.size());
+        for (BatchItem item : items) {
+            long start = DoctorSchedule.toEpochSecond(item.start());
+            long end = DoctorSchedule.toEpochSecond(item.end());
+            if (batchSchedule.overlaps(start, end) || isBooked(doctorId, item.start(), item.end())) {
+                log.warn("Conflict found for Doctor ID {} at time: {} - {}", doctorId, item.start(), item.end());
+                results.rejected(item.index(), Rejection.CONFLICT, "Doctor is not available at this time");
+            } else {
+                batchSchedule.add(start, end);
+                accepted.add(item);
+            }
+        }
+    }
+
+    /**
+     * Updates the read models for stored batch visits, touching each patient and doctor-patient pair once.
+     */
+    private void recordBatchVisits(List<BatchItem> items) {
+        Map<Long, Long> previousDoctorIds = patientListCache.isEnabled()
+                ? latestVisitDoctorIds(items.stream().map(item -> item.patient().getId()).distinct().toList())
+                : Map.of();
+        Map<Long, BatchItem> latestByPatient = new HashMap<>();
+        Set<List<Long>> doctorPatientPairs = new HashSet<>();
+        for (BatchItem item : items) {
+            latestByPatient.merge(item.patient().getId(), item,
+                    (current, candidate) -> candidate.start().isAfter(current.start()) ? candidate : current);
+            if (doctorPatientPairs.add(List.of(item.doctor().getId(), item.patient().getId()))) {
+                doctorPatientStatsService.recordVisit(item.doctor().getId(), item.patient().getId());
+                patientListCache.recordVisit(item.doctor().getId(), previousDoctorIds.get(item.patient().getId()),
+                        item.patient());
+            }
+            doctorScheduleIndex.recordVisit(item.doctor().getId(), item.start(), item.end());
+            doctorCalendarIndex.recordVisit(item.doctor().getId(), item.start(), item.end());
+        }
+        latestByPatient.values().forEach(item -> patientLastVisitRepository.upsertIfLater(
+                item.patient().getId(), item.doctor().getId(), item.start(), item.end()));
+    }
+
+    /**
+     * Reads the doctors of the patients' latest visits before they are replaced, so that the patient list
+     * pages filtered by those doctors can be evicted too.
+     *
+     * @return The doctor ID by patient ID; patients without visits are missing.
+     */
+    private Map<Long, Long> latestVisitDoctorIds(List<Long> patientIds) {
+        return patientLastVisitRepository.findAllById(patientIds).stream()
+                .collect(Collectors.toMap(PatientLastVisit::getPatientId, lastVisit -> lastVisit.getDoctor().getId()));
+    }
+
+    /**
+     * Builds a visit pointing at doctor and patient references, which Hibernate does not need to load.
+     */
+    private Visit buildVisit(DoctorSnapshot doctor, PatientSnapshot patient, LocalDateTime start, LocalDateTime end) {
         return Visit.builder()
-                .doctor(doctor)
-                .patient(patient)
+                .doctor(doctorRepository.getReferenceById(doctor.getId()))
+                .patient(patientRepository.getReferenceById(patient.getId()))
                 .startDateTime(start)
                 .endDateTime(end)
                 .build();
     }
+
+    @FunctionalInterface
+    private interface ConflictFilter {
+        void accept(Long doctorId, List<BatchItem> items, List<BatchItem> accepted, BatchResults results);
+    }
+
+    /**
+     * The results of a batch in request order, with the reasons of the rejections to count once the batch is stored.
+     */
+    private static final class BatchResults {
+        private final VisitBatchItemResult[] results;
+        private final Rejection[] rejections;
+
+        private BatchResults(int size) {
+            this.results = new VisitBatchItemResult[size];
+            this.rejections = new Rejection[size];
+        }
+
+        void created(int index, Long visitId) {
+            results[index] = VisitBatchItemResult.created(index, visitId);
+        }
+
+        void rejected(int index, Rejection rejection, String error) {
+            results[index] = VisitBatchItemResult.rejected(index, error);
+            rejections[index] = rejection;
+        }
+
+        List<VisitBatchItemResult> toList() {
+            return Arrays.asList(results);
+        }
+
+        List<Rejection> rejections() {
+            return Arrays.stream(rejections).filter(Objects::nonNull).toList();
+        }
+    }
+
+    private record BatchItem(int index, DoctorSnapshot doctor, PatientSnapshot patient, LocalDateTime start, LocalDateTime end) {
+    }
 }
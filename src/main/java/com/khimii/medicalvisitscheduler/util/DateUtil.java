@@ -2,9 +2,18 @@ package com.khimii.medicalvisitscheduler.util;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Time zone conversions between UTC, in which visits are stored, and doctors' local time.
+ * <p>
+ * Zones are resolved once per zone identifier into a cached {@link ZoneOffsetTable}; the epoch-second
+ * methods convert without allocating, the {@link LocalDateTime} methods allocate only their result.
+ */
 public class DateUtil {
-    private static final String UTC = "UTC";
+    private static final Map<String, ZoneOffsetTable> ZONES = new ConcurrentHashMap<>();
 
     /**
      * Converts a UTC time to a doctor's local time zone.
@@ -14,22 +23,63 @@ public class DateUtil {
      * @return The converted time as a string in the doctor's local time zone.
      */
     public static String convertUtcToDoctorTimezone(LocalDateTime utcTime, String timezone) {
-        return utcTime.atZone(ZoneId.of(UTC))
-                .withZoneSameInstant(ZoneId.of(timezone))
-                .toLocalDateTime()
-                .toString();
+        return convertUtcToLocalTime(utcTime, timezone).toString();
+    }
+
+    /**
+     * Converts a UTC time to local time in a specific time zone.
+     *
+     * @param utcTime  The date and time in UTC.
+     * @param timezone The target time zone identifier.
+     * @return The converted local date and time.
+     */
+    public static LocalDateTime convertUtcToLocalTime(LocalDateTime utcTime, String timezone) {
+        long local = toLocalEpochSecond(utcTime.toEpochSecond(ZoneOffset.UTC), timezone);
+        return LocalDateTime.ofEpochSecond(local, utcTime.getNano(), ZoneOffset.UTC);
     }
 
     /**
      * Converts a local date and time in a specific time zone to UTC.
+     * A time skipped by a DST gap is moved forward by the length of the gap, and an ambiguous time
+     * in a DST overlap uses the earlier offset.
      *
      * @param localDateTime The local date and time.
      * @param timezone      The originating time zone.
      * @return The converted date and time in UTC.
      */
     public static LocalDateTime convertToUtcTime(LocalDateTime localDateTime, String timezone) {
-        return localDateTime.atZone(ZoneId.of(timezone))
-                .withZoneSameInstant(ZoneId.of(UTC))
-                .toLocalDateTime();
+        long utc = toUtcEpochSecond(localDateTime.toEpochSecond(ZoneOffset.UTC), timezone);
+        return LocalDateTime.ofEpochSecond(utc, localDateTime.getNano(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Converts a UTC instant to local time without allocating.
+     *
+     * @param utcEpochSecond The instant, in UTC epoch seconds.
+     * @param timezone       The target time zone identifier.
+     * @return The local date and time, as epoch seconds of the local time line.
+     */
+    public static long toLocalEpochSecond(long utcEpochSecond, String timezone) {
+        return zoneTable(timezone).toLocalEpochSecond(utcEpochSecond);
+    }
+
+    /**
+     * Converts a local date and time to a UTC instant without allocating, resolving DST gaps and
+     * overlaps like {@link #convertToUtcTime(LocalDateTime, String)}.
+     *
+     * @param localEpochSecond The local date and time, as epoch seconds of the local time line.
+     * @param timezone         The originating time zone identifier.
+     * @return The instant, in UTC epoch seconds.
+     */
+    public static long toUtcEpochSecond(long localEpochSecond, String timezone) {
+        return zoneTable(timezone).toUtcEpochSecond(localEpochSecond);
+    }
+
+    private static ZoneOffsetTable zoneTable(String timezone) {
+        ZoneOffsetTable table = ZONES.get(timezone);
+        if (table == null) {
+            table = ZONES.computeIfAbsent(timezone, id -> ZoneOffsetTable.of(ZoneId.of(id)));
+        }
+        return table;
     }
 }
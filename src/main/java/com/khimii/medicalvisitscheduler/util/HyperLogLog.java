@@ -0,0 +1,87 @@
+package com.khimii.medicalvisitscheduler.util;
+
+/**
+ * Fixed-size HyperLogLog sketch estimating the number of distinct {@code long} values added to it.
+ * <p>
+ * With precision {@code p} the sketch uses {@code 2^p} one-byte registers and has a standard error
+ * of about {@code 1.04 / sqrt(2^p)}. The class is not thread-safe.
+ */
+public class HyperLogLog {
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param precision The number of index bits, between 4 and 18.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value The value to count.
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1)); // guard bit bounds the rank
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added so far.
+     *
+     * @return The estimated cardinality.
+     */
+    public long estimate() {
+        int registerCount = registers.length;
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+        double estimate = alpha(registerCount) * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / emptyRegisters); // linear counting
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int registerCount) {
+        return switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+    }
+
+    /**
+     * Finalization step of MurmurHash3, spreading sequential IDs over all 64 bits.
+     */
+    private static long mix(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,54 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Position in the keyset-paginated patient list: the last returned (visit start, patient ID) pair.
+ * Clients receive it as an opaque URL-safe token.
+ */
+@Getter
+@AllArgsConstructor
+public class PatientCursor {
+    private static final String SEPARATOR = ":";
+
+    private LocalDateTime lastVisitStart;
+    private Long patientId;
+
+    /**
+     * Encodes the cursor as an opaque token.
+     *
+     * @return The URL-safe token.
+     */
+    public String encode() {
+        String raw = lastVisitStart.toEpochSecond(ZoneOffset.UTC) + SEPARATOR + patientId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token The token sent by the client.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static PatientCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            LocalDateTime lastVisitStart = LocalDateTime.ofEpochSecond(Long.parseLong(parts[0]), 0, ZoneOffset.UTC);
+            return new PatientCursor(lastVisitStart, Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from the three-character substrings (trigrams) of short texts to the IDs of the
+ * documents containing them, answering case- and accent-insensitive substring searches.
+ * <p>
+ * Texts and terms are compared after {@link #normalize(String) normalizing} them, which folds case and
+ * drops accents like MySQL's default {@code utf8mb4_0900_ai_ci} collation does for {@code LIKE}, so that
+ * "jose" finds "José". Every character of a term is literal; {@code %} and {@code _} are not wildcards.
+ * <p>
+ * A search intersects the posting lists of the term's trigrams, starting with the shortest, and checks
+ * the remaining candidates against the stored text, so its cost depends on how common the term's
+ * rarest trigram is rather than on the number of documents. Each field of a document is indexed on
+ * its own, so a term never matches across two fields. IDs are dense non-negative integers, such as
+ * auto-increment keys. The class is not thread-safe.
+ */
+public class TrigramIndex {
+
+    /**
+     * Shortest term a search accepts.
+     */
+    public static final int MIN_TERM_LENGTH = 3;
+
+    private static final char FIELD_SEPARATOR = '\0';
+    private static final int[] NO_IDS = new int[0];
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private String[] texts = new String[1024];
+    private int size;
+
+    /**
+     * Indexes a document, replacing the fields it was indexed with before.
+     *
+     * @param id     The ID of the document.
+     * @param fields The texts to search in; null fields are skipped.
+     */
+    public void put(int id, String... fields) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Document IDs must not be negative, got " + id);
+        }
+        remove(id);
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field != null) {
+                text.append(normalize(field)).append(FIELD_SEPARATOR);
+            }
+        }
+        if (id >= texts.length) {
+            texts = Arrays.copyOf(texts, Math.max(id + 1, texts.length * 2));
+        }
+        texts[id] = text.toString();
+        for (long trigram : trigrams(texts[id])) {
+            postings.computeIfAbsent(trigram, key -> new PostingList()).add(id);
+        }
+        size++;
+    }
+
+    /**
+     * Removes a document from the index; does nothing if it is not indexed.
+     *
+     * @param id The ID of the document.
+     */
+    public void remove(int id) {
+        if (id < 0 || id >= texts.length || texts[id] == null) {
+            return;
+        }
+        for (long trigram : trigrams(texts[id])) {
+            PostingList list = postings.get(trigram);
+            list.remove(id);
+            if (list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        texts[id] = null;
+        size--;
+    }
+
+    /**
+     * @return The number of indexed documents.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the documents with a field containing the term, ignoring case and accents.
+     *
+     * @param term  The text to look for, at least {@link #MIN_TERM_LENGTH} characters long once normalized.
+     * @param limit The largest number of documents to return.
+     * @return The IDs of the matching documents in ascending order, or null if more than {@code limit} match.
+     */
+    public int[] search(String term, int limit) {
+        String normalized = normalize(term);
+        if (normalized.length() < MIN_TERM_LENGTH) {
+            throw new IllegalArgumentException("Search terms must have at least " + MIN_TERM_LENGTH
+                    + " characters, got '" + term + "'");
+        }
+        Set<Long> termTrigrams = trigrams(normalized);
+        PostingList[] lists = new PostingList[termTrigrams.size()];
+        int i = 0;
+        for (long trigram : termTrigrams) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return NO_IDS;
+            }
+            lists[i++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        int[] matches = new int[Math.min(lists[0].size, limit + 1)];
+        int found = 0;
+        for (int c = 0; c < lists[0].size; c++) {
+            int id = lists[0].ids[c];
+            if (containsInAll(lists, id) && texts[id].contains(normalized)) {
+                if (found == limit) {
+                    return null;
+                }
+                matches[found++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, found);
+    }
+
+    private static boolean containsInAll(PostingList[] lists, int id) {
+        for (int l = 1; l < lists.length; l++) {
+            if (lists[l].indexOf(id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decomposes the text (NFD), drops the combining marks and lower-cases the rest, so that "José" and
+     * "JOSE" both become "jose".
+     *
+     * @param text The text to normalize.
+     * @return The text as it is indexed and searched.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The distinct trigrams of the text that do not span a field separator, each packed into a long.
+     */
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + MIN_TERM_LENGTH <= text.length(); i++) {
+            char first = text.charAt(i);
+            char second = text.charAt(i + 1);
+            char third = text.charAt(i + 2);
+            if (first != FIELD_SEPARATOR && second != FIELD_SEPARATOR && third != FIELD_SEPARATOR) {
+                trigrams.add(((long) first << 32) | ((long) second << 16) | third);
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Sorted, growable array of document IDs. Appending IDs in ascending order, as when loading
+     * documents by key, costs amortized constant time.
+     */
+    private static final class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) {
+                insertAt(size, id);
+                return;
+            }
+            int index = indexOf(id);
+            if (index < 0) {
+                insertAt(-index - 1, id);
+            }
+        }
+
+        void remove(int id) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        private void insertAt(int index, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import java.time.*;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offset transitions of a time zone flattened into primitive arrays, so that conversions between
+ * local and UTC epoch seconds are a binary search without allocating.
+ * <p>
+ * Transitions are precomputed from the zone rules up to {@link #LAST_YEAR}; instants outside
+ * that range fall back to {@link ZoneRules}. Local times in a DST gap or overlap resolve the same
+ * way as {@link LocalDateTime#atZone(ZoneId)}: both map to the instant given by the offset in
+ * effect before the transition.
+ */
+final class ZoneOffsetTable {
+    static final int LAST_YEAR = 2100;
+    private static final Instant RULES_FROM = Instant.parse("1900-01-01T00:00:00Z");
+
+    private final ZoneId zone;
+    private final long[] transitions;  // UTC epoch seconds of each transition
+    private final int[] offsetsBefore; // offset in seconds before each transition
+    private final int[] offsetsAfter;  // offset in seconds from each transition on
+    private final long[] localStarts;  // earliest local epoch second touched by each transition
+    private final long[] localEnds;    // first local epoch second unambiguously after each transition
+    private final long lastTransition;
+
+    private ZoneOffsetTable(ZoneId zone, List<ZoneOffsetTransition> zoneTransitions, int initialOffset,
+                            long lastTransition) {
+        this.zone = zone;
+        int size = zoneTransitions.size();
+        this.transitions = new long[size];
+        this.offsetsBefore = new int[Math.max(size, 1)];
+        this.offsetsAfter = new int[size];
+        this.localStarts = new long[size];
+        this.localEnds = new long[size];
+        this.lastTransition = lastTransition;
+        offsetsBefore[0] = initialOffset;
+        for (int i = 0; i < size; i++) {
+            ZoneOffsetTransition transition = zoneTransitions.get(i);
+            int before = transition.getOffsetBefore().getTotalSeconds();
+            int after = transition.getOffsetAfter().getTotalSeconds();
+            transitions[i] = transition.toEpochSecond();
+            offsetsBefore[i] = before;
+            offsetsAfter[i] = after;
+            localStarts[i] = transitions[i] + Math.min(before, after);
+            localEnds[i] = transitions[i] + Math.max(before, after);
+        }
+    }
+
+    /**
+     * Builds the table of a zone from its rules.
+     *
+     * @param zone The time zone.
+     * @return The offset table of the zone.
+     */
+    static ZoneOffsetTable of(ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        Instant end = LocalDate.of(LAST_YEAR + 1, 1, 1).atStartOfDay().toInstant(ZoneOffset.UTC);
+        List<ZoneOffsetTransition> zoneTransitions = new ArrayList<>(rules.getTransitions());
+        ZoneOffsetTransition transition = rules.nextTransition(zoneTransitions.isEmpty()
+                ? RULES_FROM
+                : zoneTransitions.get(zoneTransitions.size() - 1).getInstant());
+        while (transition != null && transition.getInstant().isBefore(end)) {
+            zoneTransitions.add(transition);
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        int initialOffset = zoneTransitions.isEmpty()
+                ? rules.getOffset(Instant.EPOCH).getTotalSeconds()
+                : zoneTransitions.get(0).getOffsetBefore().getTotalSeconds();
+        long lastTransition = transition == null ? Long.MAX_VALUE : end.getEpochSecond();
+        return new ZoneOffsetTable(zone, zoneTransitions, initialOffset, lastTransition);
+    }
+
+    /**
+     * Converts a UTC instant to local time in this zone.
+     *
+     * @param utcEpochSecond The instant, in UTC epoch seconds.
+     * @return The local date and time, in epoch seconds of the local time line.
+     */
+    long toLocalEpochSecond(long utcEpochSecond) {
+        if (utcEpochSecond >= lastTransition) {
+            return utcEpochSecond + zone.getRules().getOffset(Instant.ofEpochSecond(utcEpochSecond)).getTotalSeconds();
+        }
+        int index = lastAtOrBefore(transitions, utcEpochSecond);
+        int offset = index < 0 ? offsetsBefore[0] : offsetsAfter[index];
+        return utcEpochSecond + offset;
+    }
+
+    /**
+     * Converts a local time in this zone to a UTC instant.
+     *
+     * @param localEpochSecond The local date and time, in epoch seconds of the local time line.
+     * @return The instant, in UTC epoch seconds.
+     */
+    long toUtcEpochSecond(long localEpochSecond) {
+        if (localEpochSecond >= lastTransition) {
+            return LocalDateTime.ofEpochSecond(localEpochSecond, 0, ZoneOffset.UTC).atZone(zone).toEpochSecond();
+        }
+        int index = lastAtOrBefore(localStarts, localEpochSecond);
+        if (index < 0) {
+            return localEpochSecond - offsetsBefore[0];
+        }
+        if (localEpochSecond < localEnds[index]) {
+            return localEpochSecond - offsetsBefore[index]; // inside a gap or an overlap
+        }
+        return localEpochSecond - offsetsAfter[index];
+    }
+
+    /**
+     * Returns the index of the last element not greater than the key, or -1 if there is none.
+     */
+    private static int lastAtOrBefore(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+}
@@ -0,0 +1,13 @@
+-- Full-text index for the fulltext-search profile, which adds this location to Flyway.
+-- The ngram parser splits names into bigrams, so a quoted phrase matches any part of a name.
+-- Bigrams such as "an" or "in" are default stopwords and would make names containing them unsearchable.
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+SET @statement = (SELECT IF(COUNT(*) = 0,
+                            'CREATE FULLTEXT INDEX ft_patients_name ON patients(first_name, last_name) WITH PARSER ngram',
+                            'DO 0')
+                  FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'patients' AND index_name = 'ft_patients_name');
+PREPARE create_index FROM @statement;
+EXECUTE create_index;
+DEALLOCATE PREPARE create_index;
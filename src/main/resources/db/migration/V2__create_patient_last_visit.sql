@@ -0,0 +1,19 @@
+CREATE TABLE patient_last_visit (
+                                    patient_id BIGINT PRIMARY KEY,
+                                    doctor_id BIGINT NOT NULL,
+                                    start_date_time DATETIME NOT NULL,
+                                    end_date_time DATETIME NOT NULL,
+                                    CONSTRAINT fk_last_visit_patient FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE,
+                                    CONSTRAINT fk_last_visit_doctor FOREIGN KEY (doctor_id) REFERENCES doctors(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_last_visit_doctor_id ON patient_last_visit(doctor_id);
+
+INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+SELECT patient_id, doctor_id, start_date_time, end_date_time
+FROM (
+         SELECT v.patient_id, v.doctor_id, v.start_date_time, v.end_date_time,
+                ROW_NUMBER() OVER (PARTITION BY v.patient_id ORDER BY v.start_date_time DESC, v.id DESC) AS rn
+         FROM visits v
+     ) ranked
+WHERE rn = 1;
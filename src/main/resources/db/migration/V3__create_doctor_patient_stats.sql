@@ -0,0 +1,22 @@
+CREATE TABLE doctor_patients (
+                                 doctor_id BIGINT NOT NULL,
+                                 patient_id BIGINT NOT NULL,
+                                 PRIMARY KEY (doctor_id, patient_id),
+                                 CONSTRAINT fk_doctor_patients_doctor FOREIGN KEY (doctor_id) REFERENCES doctors(id) ON DELETE CASCADE,
+                                 CONSTRAINT fk_doctor_patients_patient FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE
+);
+
+CREATE TABLE doctor_patient_stats (
+                                      doctor_id BIGINT PRIMARY KEY,
+                                      total_patients INT NOT NULL DEFAULT 0,
+                                      CONSTRAINT fk_doctor_patient_stats_doctor FOREIGN KEY (doctor_id) REFERENCES doctors(id) ON DELETE CASCADE
+);
+
+INSERT INTO doctor_patients (doctor_id, patient_id)
+SELECT DISTINCT doctor_id, patient_id
+FROM visits;
+
+INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+SELECT doctor_id, COUNT(*)
+FROM doctor_patients
+GROUP BY doctor_id;
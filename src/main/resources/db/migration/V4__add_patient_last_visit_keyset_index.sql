@@ -0,0 +1 @@
+CREATE INDEX idx_last_visit_start_patient ON patient_last_visit(start_date_time, patient_id);
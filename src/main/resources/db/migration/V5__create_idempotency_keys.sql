@@ -0,0 +1,8 @@
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(128) NOT NULL PRIMARY KEY,
+    request_fingerprint VARCHAR(255) NOT NULL,
+    status_code INT NOT NULL,
+    response_body VARCHAR(1000),
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_idempotency_keys_created_at (created_at)
+);
@@ -0,0 +1,22 @@
+-- Covers the per-doctor conflict check and interval reads: the range on start_date_time is read from
+-- the index and end_date_time is checked there too, without visiting the table rows.
+CREATE INDEX idx_visits_doctor_start_end ON visits(doctor_id, start_date_time, end_date_time);
+
+-- No query reads visits by patient, as the patient list reads patient_last_visit, so the patient foreign
+-- key keeps only the index MySQL created for it.
+
+-- Superseded by the index above; no query filters visits by time without a doctor.
+-- Databases restored from the dump lack some of them, so each one is dropped only if present.
+SET @statement = (SELECT IF(COUNT(*) > 0, 'DROP INDEX idx_doctor_id ON visits', 'DO 0')
+                  FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'visits' AND index_name = 'idx_doctor_id');
+PREPARE drop_index FROM @statement;
+EXECUTE drop_index;
+DEALLOCATE PREPARE drop_index;
+
+SET @statement = (SELECT IF(COUNT(*) > 0, 'DROP INDEX idx_start_end_time ON visits', 'DO 0')
+                  FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'visits' AND index_name = 'idx_start_end_time');
+PREPARE drop_index FROM @statement;
+EXECUTE drop_index;
+DEALLOCATE PREPARE drop_index;
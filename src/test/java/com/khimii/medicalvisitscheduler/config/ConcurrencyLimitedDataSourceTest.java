@@ -0,0 +1,63 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitedDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    @Test
+    void shouldTimeOutWhenAllPermitsAreTaken() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(10));
+
+        dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageStartingWith("All 1 database connections are in use");
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    void shouldReleasePermitOnceWhenConnectionIsClosed() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 2, Duration.ofMillis(10));
+
+        Connection borrowed = dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+
+        borrowed.close();
+        borrowed.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void shouldReleasePermitWhenPoolFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("Pool exhausted"));
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(10));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("Pool exhausted");
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
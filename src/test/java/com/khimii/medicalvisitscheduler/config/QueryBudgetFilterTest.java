@@ -0,0 +1,93 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBudgetFilterTest {
+
+    private final QueryCounter queryCounter = new QueryCounter();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SchedulerProperties.QueryBudget settings = new SchedulerProperties.QueryBudget();
+
+    @Test
+    void shouldRecordStatementsOfRequest() throws Exception {
+        QueryBudgetFilter filter = new QueryBudgetFilter(settings, meterRegistry);
+
+        filter.doFilter(request("GET", "/api/v1/patients"), new MockHttpServletResponse(), preparing(3));
+
+        assertThat(meterRegistry.get("scheduler.request.statements").tag("uri", "/api/v1/patients")
+                .summary().totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.find("scheduler.request.query.budget.exceeded").counter()).isNull();
+    }
+
+    @Test
+    void shouldCountRequestOverEndpointBudget() throws Exception {
+        settings.getEndpoints().put("GET /api/v1/patients", 2);
+        QueryBudgetFilter filter = new QueryBudgetFilter(settings, meterRegistry);
+
+        filter.doFilter(request("GET", "/api/v1/patients"), new MockHttpServletResponse(), preparing(3));
+
+        assertThat(meterRegistry.get("scheduler.request.query.budget.exceeded").tag("uri", "/api/v1/patients")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFailRequestOverBudgetWhenConfigured() {
+        settings.setMaxStatements(5);
+        settings.setFailOnExceeded(true);
+        QueryBudgetFilter filter = new QueryBudgetFilter(settings, meterRegistry);
+
+        assertThatThrownBy(() -> filter.doFilter(request("POST", "/api/v1/visits"), new MockHttpServletResponse(),
+                preparing(6)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("POST /api/v1/visits prepared 6 SQL statements, more than its budget of 5");
+    }
+
+    @Test
+    void shouldNotCheckEndpointWithoutBudget() throws Exception {
+        settings.setMaxStatements(1);
+        settings.setFailOnExceeded(true);
+        settings.getEndpoints().put("POST /api/v1/visits/batch", 0);
+        QueryBudgetFilter filter = new QueryBudgetFilter(settings, meterRegistry);
+
+        filter.doFilter(request("POST", "/api/v1/visits/batch"), new MockHttpServletResponse(), preparing(100));
+
+        assertThat(meterRegistry.find("scheduler.request.query.budget.exceeded").counter()).isNull();
+    }
+
+    @Test
+    void shouldCountNestedScopesTogether() {
+        try (QueryCounter.Scope outer = QueryCounter.open()) {
+            queryCounter.inspect("select 1");
+            try (QueryCounter.Scope inner = QueryCounter.open()) {
+                queryCounter.inspect("select 2");
+
+                assertThat(inner.getStatements()).isEqualTo(1);
+            }
+            queryCounter.inspect("select 3");
+
+            assertThat(outer.getStatements()).isEqualTo(3);
+        }
+    }
+
+    private FilterChain preparing(int statements) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                    ((MockHttpServletRequest) request).getRequestURI());
+            for (int i = 0; i < statements; i++) {
+                queryCounter.inspect("select " + i);
+            }
+        };
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        return new MockHttpServletRequest(method, uri);
+    }
+}
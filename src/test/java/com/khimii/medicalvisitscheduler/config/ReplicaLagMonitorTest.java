@@ -0,0 +1,111 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaLagMonitorTest {
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet status;
+
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(replica.getConnection()).thenReturn(connection);
+        lenient().when(connection.createStatement()).thenReturn(statement);
+        lenient().when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(status);
+        monitor = new ReplicaLagMonitor(replica, Duration.ofSeconds(5), Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldBeUnavailableBeforeFirstCheck() {
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(monitor.getLagSeconds()).isNaN();
+    }
+
+    @Test
+    void shouldBeAvailableWhileLagIsWithinLimit() throws SQLException {
+        reportLag(5);
+
+        monitor.refresh();
+
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(monitor.getLagSeconds()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldBeUnavailableWhenLaggingBehind() throws SQLException {
+        reportLag(0);
+        monitor.refresh();
+        reportLag(6);
+
+        monitor.refresh();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(monitor.getLagSeconds()).isEqualTo(6);
+    }
+
+    @Test
+    void shouldBeUnavailableWhenReplicationIsStopped() throws SQLException {
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(0L);
+        when(status.wasNull()).thenReturn(true);
+
+        monitor.refresh();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(monitor.getLagSeconds()).isNaN();
+    }
+
+    @Test
+    void shouldBeUnavailableWhenServerIsNotReplica() throws SQLException {
+        when(status.next()).thenReturn(false);
+
+        monitor.refresh();
+
+        assertThat(monitor.isAvailable()).isFalse();
+    }
+
+    @Test
+    void shouldBeUnavailableWhenReplicaCannotBeReached() throws SQLException {
+        reportLag(0);
+        monitor.refresh();
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("Connection is not available"));
+
+        monitor.refresh();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        verify(connection, times(1)).close();
+    }
+
+    private void reportLag(long seconds) throws SQLException {
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(seconds);
+        when(status.wasNull()).thenReturn(false);
+    }
+}
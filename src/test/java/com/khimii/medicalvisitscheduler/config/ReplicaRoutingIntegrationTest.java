@@ -0,0 +1,165 @@
+package com.khimii.medicalvisitscheduler.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the application against a MySQL primary and a replica replicating from it with GTIDs.
+ * The lag monitor only checks the replica when the tests ask it to.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"scheduler.replica.enabled=true", "scheduler.replica.lag-check-interval=1h"})
+@AutoConfigureMockMvc
+@Sql(scripts = "/V1__initial_migration_test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ReplicaRoutingIntegrationTest {
+
+    private static final Network NETWORK = Network.newNetwork();
+
+    @Container
+    private static final MySQLContainer<?> PRIMARY = replicationNode(1).withNetworkAliases("primary");
+
+    @Container
+    private static final MySQLContainer<?> REPLICA = replicationNode(2);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @DynamicPropertySource
+    static void configureTestDatabases(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", PRIMARY::getJdbcUrl);
+        registry.add("spring.datasource.username", PRIMARY::getUsername);
+        registry.add("spring.datasource.password", PRIMARY::getPassword);
+        registry.add("scheduler.replica.datasource.jdbc-url", REPLICA::getJdbcUrl);
+        registry.add("scheduler.replica.datasource.username", REPLICA::getUsername);
+        registry.add("scheduler.replica.datasource.password", REPLICA::getPassword);
+    }
+
+    @BeforeAll
+    static void startReplication() throws SQLException {
+        try (Connection primary = connect(PRIMARY); Connection replica = connect(REPLICA)) {
+            String executed = queryString(primary, "SELECT @@GLOBAL.gtid_executed");
+            execute(replica, "RESET MASTER");
+            execute(replica, "SET GLOBAL gtid_purged = '" + executed + "'");
+            execute(replica, """
+                    CHANGE REPLICATION SOURCE TO SOURCE_HOST = 'primary', SOURCE_PORT = 3306,
+                        SOURCE_USER = 'root', SOURCE_PASSWORD = 'root',
+                        SOURCE_AUTO_POSITION = 1, GET_SOURCE_PUBLIC_KEY = 1
+                    """);
+            execute(replica, "START REPLICA");
+        }
+    }
+
+    @BeforeEach
+    void waitForReplica() throws SQLException {
+        try (Connection primary = connect(PRIMARY); Connection replica = connect(REPLICA)) {
+            String executed = queryString(primary, "SELECT @@GLOBAL.gtid_executed");
+            assertThat(queryString(replica, "SELECT WAIT_FOR_EXECUTED_GTID_SET('" + executed + "', 30)"))
+                    .isEqualTo("0");
+        }
+        replicaLagMonitor.refresh();
+        assertThat(replicaLagMonitor.isAvailable()).isTrue();
+    }
+
+    @AfterEach
+    void resumeReplication() throws SQLException {
+        try (Connection replica = connect(REPLICA)) {
+            execute(replica, "START REPLICA");
+        }
+    }
+
+    @Test
+    void shouldReadPatientsFromReplica() throws Exception {
+        try (Connection replica = connect(REPLICA)) {
+            execute(replica, "STOP REPLICA SQL_THREAD");
+        }
+        addPatientOnPrimary("Zoe");
+
+        mockMvc.perform(get("/api/v1/patients")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .param("search", "Zoe"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReadPatientsFromPrimaryWhenReplicationStops() throws Exception {
+        try (Connection replica = connect(REPLICA)) {
+            execute(replica, "STOP REPLICA SQL_THREAD");
+        }
+        addPatientOnPrimary("Zoe");
+        replicaLagMonitor.refresh();
+
+        assertThat(replicaLagMonitor.isAvailable()).isFalse();
+        mockMvc.perform(get("/api/v1/patients")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .param("search", "Zoe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].firstName").value("Zoe"));
+    }
+
+    private static void addPatientOnPrimary(String firstName) throws SQLException {
+        try (Connection primary = connect(PRIMARY)) {
+            execute(primary, "INSERT INTO patients (first_name, last_name) VALUES ('" + firstName + "', 'Young')");
+            execute(primary, """
+                    INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+                    SELECT MAX(id), 1, '2025-01-10 10:00:00', '2025-01-10 10:30:00' FROM patients
+                    """);
+        }
+    }
+
+    private static MySQLContainer<?> replicationNode(int serverId) {
+        return new MySQLContainer<>("mysql:8.0")
+                .withDatabaseName("medical_visits")
+                .withUsername("root")
+                .withPassword("root")
+                .withNetwork(NETWORK)
+                .withCommand("--server-id=" + serverId, "--log-bin=mysql-bin",
+                        "--gtid-mode=ON", "--enforce-gtid-consistency=ON");
+    }
+
+    private static Connection connect(MySQLContainer<?> container) throws SQLException {
+        return DriverManager.getConnection(container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String queryString(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getString(1);
+        }
+    }
+}
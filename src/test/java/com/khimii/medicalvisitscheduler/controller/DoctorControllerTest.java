@@ -0,0 +1,105 @@
+package com.khimii.medicalvisitscheduler.controller;
+
+import com.khimii.medicalvisitscheduler.model.dto.AvailabilitySlot;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorAvailabilityResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorPatientEstimateResponse;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableResponse;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableSlot;
+import com.khimii.medicalvisitscheduler.service.DoctorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private DoctorService doctorService;
+
+    @InjectMocks
+    private DoctorController doctorController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(doctorController).build();
+    }
+
+    @Test
+    void shouldReturnAvailability() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 10, 8, 0);
+        when(doctorService.getAvailability(1L, from, from.plusDays(5), 45)).thenReturn(Optional.of(
+                new DoctorAvailabilityResponse(1L, "Europe/Berlin",
+                        List.of(new AvailabilitySlot("2025-03-10T08:00", "2025-03-10T12:00")))));
+
+        mockMvc.perform(get("/api/v1/doctors/1/availability")
+                        .param("from", "2025-03-10T08:00")
+                        .param("to", "2025-03-15T08:00")
+                        .param("duration", "45"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timezone").value("Europe/Berlin"))
+                .andExpect(jsonPath("$.slots[0].start").value("2025-03-10T08:00"))
+                .andExpect(jsonPath("$.slots[0].end").value("2025-03-10T12:00"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownDoctor() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 10, 8, 0);
+        when(doctorService.getAvailability(99L, from, from.plusDays(1), 30)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/doctors/99/availability")
+                        .param("from", "2025-03-10T08:00")
+                        .param("to", "2025-03-11T08:00"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnApproximateTotalPatients() throws Exception {
+        when(doctorService.estimateTotalPatients(1L)).thenReturn(Optional.of(new DoctorPatientEstimateResponse(1L, 42L)));
+
+        mockMvc.perform(get("/api/v1/doctors/1/patients/approximate-count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.doctorId").value(1))
+                .andExpect(jsonPath("$.approximateTotalPatients").value(42));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenNoEstimateIsAvailable() throws Exception {
+        when(doctorService.estimateTotalPatients(1L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/doctors/1/patients/approximate-count"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnFirstAvailableSlots() throws Exception {
+        OffsetDateTime from = OffsetDateTime.of(2025, 3, 10, 8, 0, 0, 0, ZoneOffset.UTC);
+        when(doctorService.findFirstAvailable(List.of(1L, 2L), from, 30, 10)).thenReturn(new FirstAvailableResponse(
+                List.of(new FirstAvailableSlot(2L, "Europe/Berlin", "2025-03-10T08:00", "2025-03-10T09:00",
+                        "2025-03-10T09:30"))));
+
+        mockMvc.perform(get("/api/v1/doctors/first-available")
+                        .param("doctorIds", "1", "2")
+                        .param("from", "2025-03-10T08:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.slots[0].doctorId").value(2))
+                .andExpect(jsonPath("$.slots[0].start").value("2025-03-10T09:00"));
+    }
+}
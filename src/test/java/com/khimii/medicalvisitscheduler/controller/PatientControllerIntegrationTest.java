@@ -1,6 +1,7 @@
 
 package com.khimii.medicalvisitscheduler.controller;
 
+import com.khimii.medicalvisitscheduler.config.QueryCounter;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -13,12 +14,14 @@ import org.testcontainers.containers.MySQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Testcontainers
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "scheduler.query-budget.fail-on-exceeded=true")
 @AutoConfigureMockMvc
 @Sql(scripts = "/V1__initial_migration_test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 class PatientControllerIntegrationTest {
@@ -99,4 +102,29 @@ class PatientControllerIntegrationTest {
                 .andExpect(jsonPath("$.data.length()").value(5))
                 .andExpect(jsonPath("$.count").value(5));
     }
+
+    @Test
+    void shouldListPatientsWithoutQueryingPerPatient() throws Exception {
+        try (QueryCounter.Scope scope = QueryCounter.open()) {
+            mockMvc.perform(get("/api/v1/patients")
+                            .param("page", "0")
+                            .param("size", "2")
+                            .param("doctorIds", "1,2,3"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.length()").value(2));
+
+            assertThat(scope.getStatements()).isLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldExportPatientsAsCsv() throws Exception {
+        String csv = mockMvc.perform(get("/api/v1/patients/export")
+                        .param("format", "csv"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(csv.lines()).hasSize(6);
+        assertThat(csv).startsWith("patient_id,first_name,last_name,");
+    }
 }
@@ -1,7 +1,11 @@
 package com.khimii.medicalvisitscheduler.controller;
 
-import com.khimii.medicalvisitscheduler.model.dto.PatientListResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khimii.medicalvisitscheduler.config.RenderedPatientListConverter;
+import com.khimii.medicalvisitscheduler.exception.GlobalExceptionHandler;
 import com.khimii.medicalvisitscheduler.model.dto.PatientResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.service.PatientExportService;
 import com.khimii.medicalvisitscheduler.service.PatientService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,14 +13,22 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,22 +41,23 @@ class PatientControllerTest {
     @Mock
     private PatientService patientService;
 
+    @Mock
+    private PatientExportService patientExportService;
+
     @InjectMocks
     private PatientController patientController;
 
     @Test
     void shouldReturnPatientsWithVisits() throws Exception {
-        mockMvc = MockMvcBuilders.standaloneSetup(patientController).build();
+        mockMvc = listMockMvc();
 
         PatientResponse patientResponse = new PatientResponse();
         patientResponse.setFirstName("Alice");
         patientResponse.setLastName("Smith");
         patientResponse.setLastVisits(Collections.emptyList());
 
-        PatientListResponse patientListResponse = new PatientListResponse(List.of(patientResponse), 1);
-
         when(patientService.getPatients(anyInt(), anyInt(), anyString(), anyList()))
-                .thenReturn(Optional.of(patientListResponse));
+                .thenReturn(Optional.of(render(patientResponse, 1, null)));
 
         mockMvc.perform(get("/api/v1/patients")
                         .param("page", "0")
@@ -80,4 +93,139 @@ class PatientControllerTest {
                         .param("size", "0"))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldUseCursorPaginationWhenCursorGiven() throws Exception {
+        mockMvc = listMockMvc();
+
+        PatientResponse patientResponse = new PatientResponse();
+        patientResponse.setFirstName("Alice");
+        patientResponse.setLastName("Smith");
+        patientResponse.setLastVisits(Collections.emptyList());
+
+        when(patientService.getPatientsAfter(eq("abc"), eq(10), nullable(String.class), nullable(List.class), eq(false)))
+                .thenReturn(Optional.of(render(patientResponse, null, "next")));
+
+        mockMvc.perform(get("/api/v1/patients")
+                        .param("after", "abc")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].firstName").value("Alice"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.count").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenETagMatches() throws Exception {
+        mockMvc = listMockMvc();
+
+        PatientResponse patientResponse = new PatientResponse();
+        patientResponse.setFirstName("Alice");
+        patientResponse.setLastName("Smith");
+        patientResponse.setLastVisits(Collections.emptyList());
+
+        when(patientService.getPatients(anyInt(), anyInt(), nullable(String.class), nullable(List.class)))
+                .thenReturn(Optional.of(render(patientResponse, 1, null)));
+
+        String etag = mockMvc.perform(get("/api/v1/patients"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Content-Length"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/patients").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        patientResponse.setLastName("Smyth");
+        when(patientService.getPatients(anyInt(), anyInt(), nullable(String.class), nullable(List.class)))
+                .thenReturn(Optional.of(render(patientResponse, 1, null)));
+
+        mockMvc.perform(get("/api/v1/patients").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].lastName").value("Smyth"));
+    }
+
+    @Test
+    void shouldExportPatientsAsGzippedCsvWhenAccepted() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(patientController).build();
+
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write("patient_id\n1\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(patientExportService).export(eq("Al"), eq(List.of(1L)), eq(PatientExportService.Format.CSV), any());
+
+        byte[] body = mockMvc.perform(get("/api/v1/patients/export")
+                        .param("format", "csv")
+                        .param("search", "Al")
+                        .param("doctorIds", "1")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"patients.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream uncompressed = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(uncompressed.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("patient_id\n1\n");
+        }
+    }
+
+    @Test
+    void shouldExportUncompressedNdjsonByDefault() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(patientController).build();
+
+        mockMvc.perform(get("/api/v1/patients/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(header().doesNotExist("Content-Encoding"));
+    }
+
+    @Test
+    void shouldNotCompressExportWhenGzipIsRefused() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(patientController).build();
+
+        for (String acceptEncoding : List.of("gzip;q=0", "deflate, GZIP; q=0.0", "identity", "*;q=0", "gzip;q=x")) {
+            mockMvc.perform(get("/api/v1/patients/export")
+                            .header("Accept-Encoding", acceptEncoding))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Content-Encoding"));
+        }
+    }
+
+    @Test
+    void shouldCompressExportWhenGzipIsAcceptedWithAQuality() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(patientController).build();
+
+        for (String acceptEncoding : List.of("br;q=1.0, gzip;q=0.5", "*;q=0.5", "x-gzip")) {
+            mockMvc.perform(get("/api/v1/patients/export")
+                            .header("Accept-Encoding", acceptEncoding))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Encoding", "gzip"));
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownExportFormat() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(patientController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        mockMvc.perform(get("/api/v1/patients/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(patientExportService);
+    }
+
+    private MockMvc listMockMvc() {
+        return MockMvcBuilders.standaloneSetup(patientController)
+                .setMessageConverters(new RenderedPatientListConverter(), new MappingJackson2HttpMessageConverter())
+                .build();
+    }
+
+    private static RenderedPatientList render(PatientResponse patientResponse, Integer count, String nextCursor)
+            throws Exception {
+        return new RenderedPatientList(List.of(RenderedPatientList.Patient.of(
+                new ObjectMapper().writeValueAsBytes(patientResponse))), count, nextCursor);
+    }
+}
@@ -2,7 +2,13 @@ package com.khimii.medicalvisitscheduler.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.khimii.medicalvisitscheduler.model.dto.BookingStatusResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchItemResult;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
 import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.service.BookingPipeline;
+import com.khimii.medicalvisitscheduler.service.BookingTracker;
+import com.khimii.medicalvisitscheduler.service.IdempotencyStore;
 import com.khimii.medicalvisitscheduler.service.VisitService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,15 +18,30 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +52,15 @@ class VisitControllerTest {
     @Mock
     private VisitService visitService;
 
+    @Mock
+    private BookingPipeline bookingPipeline;
+
+    @Mock
+    private BookingTracker bookingTracker;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
     @InjectMocks
     private VisitController visitController;
 
@@ -52,9 +82,7 @@ class VisitControllerTest {
 
         doNothing().when(visitService).createVisit(any(VisitRequest.class));
 
-        mockMvc.perform(post("/api/v1/visits")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        performCreateVisit(request)
                 .andExpect(status().isOk())
                 .andExpect(content().string("Visit created successfully"));
     }
@@ -73,9 +101,7 @@ class VisitControllerTest {
         doThrow(new RuntimeException("Doctor with ID 999 not found"))
                 .when(visitService).createVisit(any(VisitRequest.class));
 
-        mockMvc.perform(post("/api/v1/visits")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        performCreateVisit(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Doctor with ID 999 not found"));
     }
@@ -93,9 +119,7 @@ class VisitControllerTest {
         doThrow(new RuntimeException("Patient with ID 999 not found"))
                 .when(visitService).createVisit(any(VisitRequest.class));
 
-        mockMvc.perform(post("/api/v1/visits")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        performCreateVisit(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Patient with ID 999 not found"));
     }
@@ -113,9 +137,7 @@ class VisitControllerTest {
         doThrow(new RuntimeException("Doctor is not available at this time"))
                 .when(visitService).createVisit(any(VisitRequest.class));
 
-        mockMvc.perform(post("/api/v1/visits")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        performCreateVisit(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Doctor is not available at this time"));
     }
@@ -133,10 +155,143 @@ class VisitControllerTest {
         doThrow(new RuntimeException("Concurrent modification detected. Please try again."))
                 .when(visitService).createVisit(any(VisitRequest.class));
 
-        mockMvc.perform(post("/api/v1/visits")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        performCreateVisit(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Concurrent modification detected. Please try again."));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnPerVisitResultsForBatch() throws Exception {
+        VisitRequest request = new VisitRequest();
+        request.setPatientId(1L);
+        request.setDoctorId(1L);
+        request.setStart(LocalDateTime.of(2023, 10, 10, 10, 0));
+        request.setEnd(LocalDateTime.of(2023, 10, 10, 11, 0));
+
+        when(visitService.createVisits(anyList())).thenReturn(new VisitBatchResponse(1, 1, List.of(
+                VisitBatchItemResult.created(0, 42L),
+                VisitBatchItemResult.rejected(1, "Doctor is not available at this time"))));
+
+        mockMvc.perform(post("/api/v1/visits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(request, request))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.results[0].visitId").value(42))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$.results[1].error").value("Doctor is not available at this time"));
+    }
+
+    @Test
+    void shouldBookThroughPipelineWhenEnabled() throws Exception {
+        VisitRequest request = new VisitRequest();
+        request.setPatientId(1L);
+        request.setDoctorId(1L);
+        request.setStart(LocalDateTime.of(2023, 10, 10, 10, 0));
+        request.setEnd(LocalDateTime.of(2023, 10, 10, 11, 0));
+
+        when(bookingPipeline.isEnabled()).thenReturn(true);
+        when(bookingPipeline.submit(any(VisitRequest.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        performCreateVisit(request)
+                .andExpect(status().isOk())
+                .andExpect(content().string("Visit created successfully"));
+        verify(visitService, never()).createVisit(any(VisitRequest.class));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPipelineRejectsVisit() throws Exception {
+        VisitRequest request = new VisitRequest();
+        request.setPatientId(1L);
+        request.setDoctorId(1L);
+        request.setStart(LocalDateTime.of(2023, 10, 10, 10, 0));
+        request.setEnd(LocalDateTime.of(2023, 10, 10, 11, 0));
+
+        when(bookingPipeline.isEnabled()).thenReturn(true);
+        when(bookingPipeline.submit(any(VisitRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Doctor is not available at this time")));
+
+        performCreateVisit(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Doctor is not available at this time"));
+    }
+
+    @Test
+    void shouldReplayStoredResponseForIdempotencyKey() throws Exception {
+        VisitRequest request = new VisitRequest();
+        request.setPatientId(1L);
+        request.setDoctorId(1L);
+        request.setStart(LocalDateTime.of(2023, 10, 10, 10, 0));
+        request.setEnd(LocalDateTime.of(2023, 10, 10, 11, 0));
+
+        when(idempotencyStore.execute(eq("retry-1"), eq(IdempotencyStore.Operation.BOOK), any(VisitRequest.class), any())).thenReturn(CompletableFuture.completedFuture(
+                new IdempotencyStore.StoredResponse(200, "Visit created successfully", true)));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/visits")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().string("Visit created successfully"));
+        verify(visitService, never()).createVisit(any(VisitRequest.class));
+    }
+
+    @Test
+    void shouldAcceptAsyncBookingWithStatusLocation() throws Exception {
+        VisitRequest request = new VisitRequest();
+        request.setPatientId(1L);
+        request.setDoctorId(1L);
+        request.setStart(LocalDateTime.of(2023, 10, 10, 10, 0));
+        request.setEnd(LocalDateTime.of(2023, 10, 10, 11, 0));
+
+        when(bookingTracker.submit(any(VisitRequest.class), eq("retry-1")))
+                .thenReturn(new BookingStatusResponse("b-1", BookingStatusResponse.Status.PENDING, null));
+
+        mockMvc.perform(post("/api/v1/visits/async")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/visits/bookings/b-1"))
+                .andExpect(jsonPath("$.bookingId").value("b-1"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andExpect(jsonPath("$.error").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBookingStatus() throws Exception {
+        when(bookingTracker.findStatus("b-1")).thenReturn(Optional.of(
+                new BookingStatusResponse("b-1", BookingStatusResponse.Status.REJECTED, "Doctor is not available at this time")));
+
+        mockMvc.perform(get("/api/v1/visits/bookings/b-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("REJECTED"))
+                .andExpect(jsonPath("$.error").value("Doctor is not available at this time"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownBooking() throws Exception {
+        when(bookingTracker.findStatus("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/visits/bookings/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Posts a single visit and dispatches the asynchronous result.
+     */
+    private ResultActions performCreateVisit(VisitRequest visitRequest) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/visits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(visitRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,68 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientExportRepositoryTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+    }
+
+    @Test
+    void shouldCancelExportThatOutlastsTheTimeout() throws Exception {
+        when(resultSet.getStatement()).thenReturn(statement);
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getExport().setTimeout(Duration.ofMillis(100));
+        PatientExportRepository repository = new PatientExportRepository(dataSource, properties);
+        AtomicInteger rows = new AtomicInteger();
+
+        assertThatThrownBy(() -> repository.forEachPatientWithLastVisit(null, null, 0, null, patient -> {
+            rows.incrementAndGet();
+            try {
+                Thread.sleep(40); // a slow client
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })).isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(rows.get()).isBetween(1, 4);
+        verify(statement).setQueryTimeout(1);
+        verify(statement).cancel();
+        verify(resultSet).close();
+    }
+}
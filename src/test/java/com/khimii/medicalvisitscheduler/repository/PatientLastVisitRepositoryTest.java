@@ -0,0 +1,185 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.config.TestDatabaseConfig;
+import com.khimii.medicalvisitscheduler.model.Doctor;
+import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.model.PatientLastVisit;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestDatabaseConfig.class)
+class PatientLastVisitRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PatientLastVisitRepository patientLastVisitRepository;
+
+    @Autowired
+    private DoctorPatientStatsRepository doctorPatientStatsRepository;
+
+    @Test
+    void shouldKeepLatestVisitOnUpsert() {
+        Doctor doctor = persistDoctor();
+        Patient patient = persistPatient("Zoe");
+        LocalDateTime start = LocalDateTime.now().minusDays(10).withNano(0);
+
+        patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), start, start.plusMinutes(30));
+        patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), start.minusDays(5), start.minusDays(5).plusMinutes(30));
+        entityManager.clear();
+
+        PatientLastVisit lastVisit = patientLastVisitRepository.findById(patient.getId()).orElseThrow();
+        assertThat(lastVisit.getStartDateTime()).isEqualTo(start);
+        assertThat(lastVisit.getEndDateTime()).isEqualTo(start.plusMinutes(30));
+    }
+
+    @Test
+    void shouldReplaceVisitWhenNewVisitStartsLater() {
+        Doctor doctor = persistDoctor();
+        Doctor otherDoctor = persistDoctor();
+        Patient patient = persistPatient("Zoe");
+        LocalDateTime start = LocalDateTime.now().minusDays(10).withNano(0);
+
+        patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), start, start.plusMinutes(30));
+        patientLastVisitRepository.upsertIfLater(patient.getId(), otherDoctor.getId(), start.plusDays(1), start.plusDays(1).plusMinutes(30));
+        entityManager.clear();
+
+        PatientLastVisit lastVisit = patientLastVisitRepository.findById(patient.getId()).orElseThrow();
+        assertThat(lastVisit.getStartDateTime()).isEqualTo(start.plusDays(1));
+        assertThat(lastVisit.getDoctor().getId()).isEqualTo(otherDoctor.getId());
+    }
+
+    @Test
+    void shouldFindOnlyPatientsWithCompletedLastVisit() {
+        Doctor doctor = persistDoctor();
+        Patient completed = persistPatient("Zoe");
+        Patient upcoming = persistPatient("Zara");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+        LocalDateTime future = LocalDateTime.now().plusDays(3).withNano(0);
+
+        patientLastVisitRepository.upsertIfLater(completed.getId(), doctor.getId(), past, past.plusMinutes(30));
+        patientLastVisitRepository.upsertIfLater(upcoming.getId(), doctor.getId(), future, future.plusMinutes(30));
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository
+                .findPatientsWithLastVisits(null, List.of(), 0, List.of(doctor.getId()), PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent().get(0).getFirstName()).isEqualTo("Zoe");
+    }
+
+    @Test
+    void shouldFindLastCompletedVisitOfEachPatient() {
+        Doctor doctor = persistDoctor();
+        Doctor otherDoctor = persistDoctor();
+        Patient alice = persistPatient("Alice");
+        Patient bob = persistPatient("Bob");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+
+        patientLastVisitRepository.upsertIfLater(alice.getId(), otherDoctor.getId(), past.minusDays(1), past.minusDays(1).plusMinutes(30));
+        patientLastVisitRepository.upsertIfLater(alice.getId(), doctor.getId(), past, past.plusMinutes(30));
+        patientLastVisitRepository.upsertIfLater(bob.getId(), doctor.getId(), past.minusDays(2), past.minusDays(2).plusMinutes(30));
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0,
+                List.of(doctor.getId(), otherDoctor.getId()), PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).extracting(PatientVisitResponse::getFirstName).containsExactly("Alice", "Bob");
+        assertThat(result.getContent().get(0).getVisitStart()).isEqualTo(past);
+        assertThat(result.getContent().get(0).getDoctorId()).isEqualTo(doctor.getId());
+    }
+
+    @Test
+    void shouldFilterPatientsByName() {
+        Doctor doctor = persistDoctor();
+        Patient alice = persistPatient("Alice");
+        Patient bob = persistPatient("Bob");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+        for (Patient patient : List.of(alice, bob)) {
+            patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), past, past.plusMinutes(30));
+        }
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository.findPatientsWithLastVisits("Alice", List.of(), 0,
+                List.of(doctor.getId()), PageRequest.of(0, 10));
+
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent().get(0).getFirstName()).isEqualTo("Alice");
+    }
+
+    @Test
+    void shouldReturnEmptyIfNoPatientsMatch() {
+        Doctor doctor = persistDoctor();
+        Patient patient = persistPatient("Alice");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+        patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), past, past.plusMinutes(30));
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository.findPatientsWithLastVisits("NonExistentName",
+                List.of(), 0, List.of(doctor.getId()), PageRequest.of(0, 10));
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldReadTotalPatientsOfDoctorFromCounter() {
+        Doctor doctor = persistDoctor();
+        Patient patient = persistPatient("Alice");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+        patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), past, past.plusMinutes(30));
+        doctorPatientStatsRepository.incrementTotalPatients(doctor.getId());
+        doctorPatientStatsRepository.incrementTotalPatients(doctor.getId());
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0,
+                List.of(doctor.getId()), PageRequest.of(0, 10));
+
+        assertThat(result.getContent().get(0).getTotalPatients()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldMatchIndexedPatientsByIdAndLaterPatientsByName() {
+        Doctor doctor = persistDoctor();
+        Patient indexed = persistPatient("Zoe");
+        Patient notMatchedByIndex = persistPatient("Zoe");
+        Patient addedAfterIndexing = persistPatient("Chloe");
+        Patient otherName = persistPatient("Zara");
+        LocalDateTime past = LocalDateTime.now().minusDays(3).withNano(0);
+        for (Patient patient : List.of(indexed, notMatchedByIndex, addedAfterIndexing, otherName)) {
+            patientLastVisitRepository.upsertIfLater(patient.getId(), doctor.getId(), past, past.plusMinutes(30));
+        }
+
+        Page<PatientVisitResponse> result = patientLastVisitRepository.findPatientsWithLastVisits("oe",
+                List.of(indexed.getId()), notMatchedByIndex.getId(), null, PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).extracting(PatientVisitResponse::getPatientId)
+                .containsExactly(indexed.getId(), addedAfterIndexing.getId());
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    private Doctor persistDoctor() {
+        Doctor doctor = new Doctor();
+        doctor.setFirstName("John");
+        doctor.setLastName("Doe");
+        doctor.setTimezone("UTC");
+        return entityManager.persistAndFlush(doctor);
+    }
+
+    private Patient persistPatient(String firstName) {
+        Patient patient = new Patient();
+        patient.setFirstName(firstName);
+        patient.setLastName("Smith");
+        return entityManager.persistAndFlush(patient);
+    }
+}
@@ -1,18 +1,17 @@
 package com.khimii.medicalvisitscheduler.repository;
 
 import com.khimii.medicalvisitscheduler.config.TestDatabaseConfig;
-import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 
-import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -28,46 +27,30 @@ class PatientRepositoryTest {
     private PatientRepository patientRepository;
 
     @Test
-    void shouldFindPatientsWithLastCompletedVisit() {
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<PatientVisitResponse> result = patientRepository.findPatientsWithVisits(null, null, pageable);
+    void shouldReadSnapshotsFollowingTheGivenIdInOrder() {
+        Patient alice = persistPatient("Alice");
+        Patient bob = persistPatient("Bob");
+        Patient eve = persistPatient("Eve");
 
-        assertThat(result).isNotEmpty();
-        assertThat(result.getTotalElements()).isEqualTo(5);
-        assertThat(result.getContent().get(0).getFirstName()).isEqualTo("Alice");
-        assertThat(result.getContent().get(0).getVisitStart()).isBefore(LocalDateTime.now());
-    }
-
-    @Test
-    void shouldFilterPatientsByName() {
-        String searchQuery = "Alice";
-
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<PatientVisitResponse> result = patientRepository.findPatientsWithVisits(searchQuery, null, pageable);
+        List<PatientSnapshot> first = patientRepository.findSnapshotsAfter(alice.getId() - 1, PageRequest.of(0, 2));
+        List<PatientSnapshot> next = patientRepository.findSnapshotsAfter(bob.getId(), PageRequest.of(0, 2));
 
-        assertThat(result).isNotEmpty();
-        assertThat(result.getTotalElements()).isEqualTo(1);
-        assertThat(result.getContent().get(0).getFirstName()).isEqualTo("Alice");
+        assertThat(first).extracting(PatientSnapshot::getId).containsExactly(alice.getId(), bob.getId());
+        assertThat(first.get(0).getFirstName()).isEqualTo("Alice");
+        assertThat(next).extracting(PatientSnapshot::getId).containsExactly(eve.getId());
     }
 
     @Test
-    void shouldReturnEmptyIfNoPatientsMatch() {
-        String searchQuery = "NonExistentName";
+    void shouldReturnNoSnapshotsAfterTheLastPatient() {
+        Patient patient = persistPatient("Alice");
 
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<PatientVisitResponse> result = patientRepository.findPatientsWithVisits(searchQuery, null, pageable);
-
-        assertThat(result).isEmpty();
+        assertThat(patientRepository.findSnapshotsAfter(patient.getId(), PageRequest.of(0, 10))).isEmpty();
     }
 
-    @Test
-    void shouldCorrectlyCalculateTotalPatientsPerDoctor() {
-        Pageable pageable = PageRequest.of(0, 10);
-        Page<PatientVisitResponse> result = patientRepository.findPatientsWithVisits(null, null, pageable);
-
-        assertThat(result).isNotEmpty();
-
-        PatientVisitResponse firstPatient = result.getContent().get(0);
-        assertThat(firstPatient.getTotalPatients()).isGreaterThan(0);
+    private Patient persistPatient(String firstName) {
+        Patient patient = new Patient();
+        patient.setFirstName(firstName);
+        patient.setLastName("Smith");
+        return entityManager.persistAndFlush(patient);
     }
 }
@@ -0,0 +1,296 @@
+package com.khimii.medicalvisitscheduler.repository;
+
+import com.khimii.medicalvisitscheduler.config.TestDatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks with {@code EXPLAIN} that the hot queries on {@code visits} and {@code patient_last_visit} read them
+ * through an index.
+ * <p>
+ * The schema comes from the Flyway migrations, and the tables are filled with enough rows that the
+ * optimizer prefers a full scan when no suitable index exists. Each test calls a repository method and
+ * explains the statements Hibernate sent for it, with the parameters it bound.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TestDatabaseConfig.class, VisitQueryPlanRepositoryTest.StatementCaptureConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // ANALYZE TABLE commits implicitly
+class VisitQueryPlanRepositoryTest {
+
+    private static final String MARKER = "QueryPlan";
+    private static final LocalDateTime SEEK_START = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CapturingDataSource capturingDataSource;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private PatientLastVisitRepository patientLastVisitRepository;
+
+    private long doctorId;
+    private long patientId;
+
+    @BeforeEach
+    void seedVisits() {
+        jdbcTemplate.execute("SET SESSION cte_max_recursion_depth = 100000");
+        jdbcTemplate.update("""
+                INSERT INTO doctors (first_name, last_name, timezone)
+                WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 200)
+                SELECT CONCAT('Doctor', n), ?, 'UTC' FROM seq
+                """, MARKER);
+        jdbcTemplate.update("""
+                INSERT INTO patients (first_name, last_name)
+                WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 2000)
+                SELECT CONCAT('Patient', n), ? FROM seq
+                """, MARKER);
+        doctorId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM doctors WHERE last_name = ?", Long.class, MARKER);
+        patientId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM patients WHERE last_name = ?", Long.class, MARKER);
+        jdbcTemplate.update("""
+                INSERT INTO visits (start_date_time, end_date_time, patient_id, doctor_id)
+                WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 20000)
+                SELECT TIMESTAMP('2024-01-01') + INTERVAL n * 30 MINUTE,
+                       TIMESTAMP('2024-01-01') + INTERVAL n * 30 + 30 MINUTE,
+                       ? + n % 2000, ? + n % 200
+                FROM seq
+                """, patientId, doctorId);
+        jdbcTemplate.update("""
+                INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+                SELECT v.patient_id, v.doctor_id, v.start_date_time, v.end_date_time
+                FROM visits v
+                JOIN patients p ON p.id = v.patient_id
+                WHERE p.last_name = ?
+                  AND v.start_date_time = (SELECT MAX(v2.start_date_time) FROM visits v2 WHERE v2.patient_id = v.patient_id)
+                """, MARKER);
+        jdbcTemplate.execute("ANALYZE TABLE visits, patient_last_visit");
+    }
+
+    @AfterEach
+    void deleteVisits() {
+        // Visits and latest visits are removed by the ON DELETE CASCADE foreign keys
+        jdbcTemplate.update("DELETE FROM doctors WHERE last_name = ?", MARKER);
+        jdbcTemplate.update("DELETE FROM patients WHERE last_name = ?", MARKER);
+    }
+
+    @Test
+    void shouldCheckConflictsFromCoveringIndex() {
+        List<CapturedStatement> statements = capture(() -> visitRepository.existsConflictingVisit(doctorId,
+                LocalDateTime.of(2024, 3, 1, 10, 0), LocalDateTime.of(2024, 3, 1, 10, 30)));
+
+        List<Map<String, Object>> plan = explain(single(statements));
+        assertIndexed(plan, "idx_visits_doctor_start_end");
+        assertThat(plan.get(0).get("Extra").toString()).contains("Using index");
+    }
+
+    @Test
+    void shouldReadDoctorIntervalsFromCoveringIndex() {
+        assertIndexed(explain(single(capture(() -> visitRepository.findIntervalsByDoctorIdEndingAfter(doctorId,
+                LocalDateTime.of(2024, 3, 1, 0, 0))))),
+                "idx_visits_doctor_start_end");
+        assertIndexed(explain(single(capture(() -> visitRepository.findIntervalsByDoctorIdBetween(doctorId,
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0))))),
+                "idx_visits_doctor_start_end");
+    }
+
+    @Test
+    void shouldPagePatientsByIdWithoutSortingOrJoinScans() {
+        List<CapturedStatement> statements = capture(() -> patientLastVisitRepository.findPatientsWithLastVisits(
+                null, List.of(), 0, null, PageRequest.of(0, 10)));
+
+        assertThat(statements).as("list and count query").hasSize(2);
+        CapturedStatement list = statements.get(0);
+        assertThat(rowOf(explain(list), lastVisitAlias(list)).get("Extra").toString())
+                .as("patient_last_visit read in patient ID order")
+                .doesNotContain("Using filesort");
+        assertJoinsIndexed(explain(list));
+        assertJoinsIndexed(explain(statements.get(1)));
+    }
+
+    @Test
+    void shouldCountPatientsOfDoctorsFromIndex() {
+        List<CapturedStatement> statements = capture(() -> patientLastVisitRepository.findPatientsWithLastVisits(
+                null, List.of(), 0, List.of(doctorId, doctorId + 1), PageRequest.of(0, 5)));
+
+        assertThat(statements).as("list and count query").hasSize(2);
+        CapturedStatement count = statements.get(1);
+        List<Map<String, Object>> plan = explain(count);
+        Map<String, Object> lastVisits = rowOf(plan, lastVisitAlias(count));
+        assertThat(lastVisits.get("type")).as("access type").isNotIn("ALL", "index");
+        assertThat(lastVisits.get("key")).as("chosen index").isEqualTo("idx_last_visit_doctor_id");
+        assertJoinsIndexed(plan);
+    }
+
+    @Test
+    void shouldSeekKeysetPagesFromIndex() {
+        long afterPatientId = patientId + 1000;
+        CapturedStatement first = single(capture(() -> patientLastVisitRepository.findFirstPatientsByLastVisit(
+                null, List.of(), 0, null, PageRequest.of(0, 10))));
+        CapturedStatement next = single(capture(() -> patientLastVisitRepository.findPatientsByLastVisitAfter(
+                null, List.of(), 0, null, SEEK_START, afterPatientId, PageRequest.of(0, 10))));
+
+        for (CapturedStatement statement : List.of(first, next)) {
+            List<Map<String, Object>> plan = explain(statement);
+            Map<String, Object> lastVisits = rowOf(plan, lastVisitAlias(statement));
+            assertThat(lastVisits.get("key")).as("chosen index").isEqualTo("idx_last_visit_start_patient");
+            assertThat(lastVisits.get("Extra").toString()).doesNotContain("Using filesort");
+            assertJoinsIndexed(plan);
+        }
+    }
+
+    private List<CapturedStatement> capture(Runnable query) {
+        capturingDataSource.statements.clear();
+        query.run();
+        List<CapturedStatement> statements = List.copyOf(capturingDataSource.statements);
+        capturingDataSource.statements.clear();
+        return statements;
+    }
+
+    private List<Map<String, Object>> explain(CapturedStatement statement) {
+        return jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), statement.parameters().toArray());
+    }
+
+    private static CapturedStatement single(List<CapturedStatement> statements) {
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private static String lastVisitAlias(CapturedStatement statement) {
+        Matcher matcher = Pattern.compile("patient_last_visit\\s+(?:as\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE)
+                .matcher(statement.sql());
+        assertThat(matcher.find()).as("patient_last_visit in %s", statement.sql()).isTrue();
+        return matcher.group(1);
+    }
+
+    private static Map<String, Object> rowOf(List<Map<String, Object>> plan, String alias) {
+        return plan.stream().filter(row -> alias.equals(row.get("table"))).findFirst().orElseThrow();
+    }
+
+    private static void assertIndexed(List<Map<String, Object>> plan, String expectedKey) {
+        assertThat(plan).hasSize(1);
+        Map<String, Object> row = plan.get(0);
+        assertThat(row.get("type")).as("access type").isNotIn("ALL", "index");
+        assertThat(row.get("key")).as("chosen index").isEqualTo(expectedKey);
+    }
+
+    /**
+     * Only the table driving the join may be scanned; the others must be looked up through an index.
+     */
+    private static void assertJoinsIndexed(List<Map<String, Object>> plan) {
+        assertThat(plan.subList(1, plan.size()))
+                .allSatisfy(row -> assertThat(row.get("type")).as("access type of %s", row.get("table"))
+                        .isNotIn("ALL", "index"));
+        assertThat(plan).noneSatisfy(row -> assertThat(String.valueOf(row.get("Extra"))).contains("join buffer"));
+    }
+
+    /**
+     * A statement executed through the data source, with the parameters bound to it in order.
+     */
+    record CapturedStatement(String sql, List<Object> parameters) {
+    }
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        @Bean
+        static BeanPostProcessor capturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CapturingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Records the prepared statements executed as queries, so that the SQL Hibernate generates can be explained.
+     */
+    static class CapturingDataSource extends DelegatingDataSource {
+
+        private final List<CapturedStatement> statements = new CopyOnWriteArrayList<>();
+
+        CapturingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return capture(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return capture(super.getConnection(username, password));
+        }
+
+        private Connection capture(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        return method.getName().equals("prepareStatement")
+                                ? capture((PreparedStatement) result, (String) args[0])
+                                : result;
+                    });
+        }
+
+        private PreparedStatement capture(PreparedStatement statement, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                            parameters.put(index, name.equals("setNull") ? null : args[1]);
+                        } else if (name.equals("clearParameters")) {
+                            parameters.clear();
+                        } else if (name.equals("executeQuery")) {
+                            statements.add(new CapturedStatement(sql, new ArrayList<>(parameters.values())));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
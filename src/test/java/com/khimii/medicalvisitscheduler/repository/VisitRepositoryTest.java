@@ -16,13 +16,14 @@ import org.testcontainers.containers.MySQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
-@Import(TestDatabaseConfig.class)
+@Import({TestDatabaseConfig.class, VisitBatchRepository.class})
 class VisitRepositoryTest {
     @Container
     private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
@@ -36,6 +37,9 @@ class VisitRepositoryTest {
     @Autowired
     private VisitRepository visitRepository;
 
+    @Autowired
+    private VisitBatchRepository visitBatchRepository;
+
     @BeforeAll
     static void setup() {
         mysql.start();
@@ -135,5 +139,30 @@ class VisitRepositoryTest {
         assertThat(lockedVisit).isPresent();
         assertThat(lockedVisit.get().getVersion()).isNotNull();
     }
-}
 
+    @Test
+    void shouldInsertBatchAndReturnGeneratedIdsInOrder() {
+        Doctor doctor = new Doctor();
+        doctor.setFirstName("John");
+        doctor.setLastName("Doe");
+        doctor.setTimezone("UTC");
+        entityManager.persist(doctor);
+
+        Patient patient = new Patient();
+        patient.setFirstName("Alice");
+        patient.setLastName("Smith");
+        entityManager.persist(patient);
+        entityManager.flush();
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        List<Visit> visits = List.of(
+                Visit.builder().startDateTime(start).endDateTime(start.plusHours(1)).doctor(doctor).patient(patient).build(),
+                Visit.builder().startDateTime(start.plusHours(2)).endDateTime(start.plusHours(3)).doctor(doctor).patient(patient).build());
+
+        List<Long> ids = visitBatchRepository.insertAll(visits);
+
+        assertThat(ids).hasSize(2);
+        assertThat(entityManager.find(Visit.class, ids.get(0)).getStartDateTime()).isEqualTo(start);
+        assertThat(entityManager.find(Visit.class, ids.get(1)).getStartDateTime()).isEqualTo(start.plusHours(2));
+    }
+}
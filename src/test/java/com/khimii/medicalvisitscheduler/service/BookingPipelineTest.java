@@ -0,0 +1,148 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchItemResult;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingPipelineTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2023, 10, 10, 10, 0);
+
+    @Mock
+    private VisitService visitService;
+
+    private BookingPipeline bookingPipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (bookingPipeline != null) {
+            bookingPipeline.stop();
+        }
+    }
+
+    @Test
+    void shouldStayDisabledByDefault() {
+        bookingPipeline = new BookingPipeline(visitService, new SchedulerProperties());
+        bookingPipeline.start();
+
+        assertThat(bookingPipeline.isEnabled()).isFalse();
+    }
+
+    @Test
+    void shouldStartWorkersOnFirstSubmitWhenDisabled() throws Exception {
+        when(visitService.createQueuedVisits(anyList()))
+                .thenReturn(new VisitBatchResponse(1, 0, List.of(VisitBatchItemResult.created(0, 1L))));
+        bookingPipeline = new BookingPipeline(visitService, new SchedulerProperties());
+        bookingPipeline.start();
+
+        bookingPipeline.submit(visitRequest(1L, 1L, TEN)).get(5, TimeUnit.SECONDS);
+
+        assertThat(bookingPipeline.isEnabled()).isFalse();
+    }
+
+    @Test
+    void shouldGroupCommitQueuedBookingsAndCompleteEachRequest() throws Exception {
+        CountDownLatch firstCommitStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+        when(visitService.createQueuedVisits(anyList())).thenAnswer(invocation -> {
+            List<VisitRequest> requests = invocation.getArgument(0);
+            batchSizes.add(requests.size());
+            firstCommitStarted.countDown();
+            releaseFirstCommit.await(5, TimeUnit.SECONDS);
+            List<VisitBatchItemResult> results = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(requests.get(i).getPatientId() == 99L
+                        ? VisitBatchItemResult.rejected(i, "Patient with ID 99 not found")
+                        : VisitBatchItemResult.created(i, 100L + i));
+            }
+            return new VisitBatchResponse(0, 0, results);
+        });
+        bookingPipeline = new BookingPipeline(visitService, properties(1));
+        bookingPipeline.start();
+
+        CompletableFuture<Void> first = bookingPipeline.submit(visitRequest(1L, 1L, TEN));
+        assertThat(firstCommitStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = bookingPipeline.submit(visitRequest(1L, 1L, TEN.plusHours(1)));
+        CompletableFuture<Void> third = bookingPipeline.submit(visitRequest(1L, 99L, TEN.plusHours(2)));
+        releaseFirstCommit.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(third).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(Exception.class)
+                .withMessageContaining("Patient with ID 99 not found");
+        assertThat(batchSizes).containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldBookOneByOneWhenGroupCommitFails() throws Exception {
+        when(visitService.createQueuedVisits(anyList()))
+                .thenThrow(new RuntimeException("Some visits were booked concurrently. Please try again."));
+        bookingPipeline = new BookingPipeline(visitService, properties(2));
+        bookingPipeline.start();
+
+        VisitRequest request = visitRequest(1L, 1L, TEN);
+        bookingPipeline.submit(request).get(5, TimeUnit.SECONDS);
+
+        verify(visitService).createVisit(request);
+    }
+
+    @Test
+    void shouldFailBookingSubmittedWhilePipelineStops() throws Exception {
+        CountDownLatch submitting = new CountDownLatch(1);
+        CountDownLatch stoppedLatch = new CountDownLatch(1);
+        VisitRequest request = spy(visitRequest(1L, 1L, TEN));
+        doAnswer(invocation -> {
+            submitting.countDown();
+            stoppedLatch.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(request).getDoctorId();
+        bookingPipeline = new BookingPipeline(visitService, properties(1));
+        bookingPipeline.start();
+
+        CompletableFuture<CompletableFuture<Void>> submitted = CompletableFuture.supplyAsync(() -> bookingPipeline.submit(request));
+        assertThat(submitting.await(5, TimeUnit.SECONDS)).isTrue();
+        bookingPipeline.stop();
+        stoppedLatch.countDown();
+
+        assertThat(submitted.get(5, TimeUnit.SECONDS)).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(Exception.class)
+                .withMessageContaining("shutting down");
+        verifyNoInteractions(visitService);
+    }
+
+    private static SchedulerProperties properties(int partitions) {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getPipeline().setEnabled(true);
+        properties.getPipeline().setPartitions(partitions);
+        return properties;
+    }
+
+    private static VisitRequest visitRequest(Long doctorId, Long patientId, LocalDateTime start) {
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(doctorId);
+        request.setPatientId(patientId);
+        request.setStart(start);
+        request.setEnd(start.plusHours(1));
+        return request;
+    }
+}
@@ -0,0 +1,125 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.BookingStatusResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingTrackerTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2023, 10, 10, 10, 0);
+
+    @Mock
+    private BookingPipeline bookingPipeline;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private IdempotencyStore idempotencyStore;
+    private BookingTracker bookingTracker;
+
+    @BeforeEach
+    void setUp() {
+        SchedulerProperties properties = new SchedulerProperties();
+        idempotencyStore = new IdempotencyStore(idempotencyKeyRepository, properties);
+        bookingTracker = new BookingTracker(bookingPipeline, idempotencyStore, properties);
+    }
+
+    @Test
+    void shouldReportPendingUntilPipelineCompletes() {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        when(bookingPipeline.submit(any(VisitRequest.class))).thenReturn(stored);
+
+        BookingStatusResponse accepted = bookingTracker.submit(visitRequest(1L, TEN), null);
+
+        assertThat(accepted.getStatus()).isEqualTo(BookingStatusResponse.Status.PENDING);
+        assertThat(bookingTracker.findStatus(accepted.getBookingId()))
+                .hasValueSatisfying(status -> assertThat(status.getStatus()).isEqualTo(BookingStatusResponse.Status.PENDING));
+
+        stored.complete(null);
+
+        assertThat(bookingTracker.findStatus(accepted.getBookingId()))
+                .hasValueSatisfying(status -> {
+                    assertThat(status.getStatus()).isEqualTo(BookingStatusResponse.Status.CREATED);
+                    assertThat(status.getError()).isNull();
+                });
+    }
+
+    @Test
+    void shouldReportRejectionReason() {
+        when(bookingPipeline.submit(any(VisitRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Doctor is not available at this time")));
+
+        BookingStatusResponse accepted = bookingTracker.submit(visitRequest(1L, TEN), null);
+
+        assertThat(bookingTracker.findStatus(accepted.getBookingId()))
+                .hasValueSatisfying(status -> {
+                    assertThat(status.getStatus()).isEqualTo(BookingStatusResponse.Status.REJECTED);
+                    assertThat(status.getError()).isEqualTo("Doctor is not available at this time");
+                });
+    }
+
+    @Test
+    void shouldCoalesceRetriesWithSameIdempotencyKey() {
+        when(bookingPipeline.submit(any(VisitRequest.class))).thenReturn(new CompletableFuture<>());
+
+        BookingStatusResponse first = bookingTracker.submit(visitRequest(1L, TEN), "retry-1");
+        BookingStatusResponse retry = bookingTracker.submit(visitRequest(1L, TEN), "retry-1");
+
+        assertThat(retry.getBookingId()).isEqualTo(first.getBookingId());
+        verify(bookingPipeline, times(1)).submit(any(VisitRequest.class));
+    }
+
+    @Test
+    void shouldRejectIdempotencyKeyReusedForDifferentVisit() {
+        when(bookingPipeline.submit(any(VisitRequest.class))).thenReturn(new CompletableFuture<>());
+        bookingTracker.submit(visitRequest(1L, TEN), "retry-1");
+
+        assertThatThrownBy(() -> bookingTracker.submit(visitRequest(1L, TEN.plusHours(1)), "retry-1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Idempotency key retry-1 was already used for a different visit");
+        verify(bookingPipeline, times(1)).submit(any(VisitRequest.class));
+    }
+
+    @Test
+    void shouldShareIdempotencyKeysWithSynchronousBookings() {
+        idempotencyStore.execute("retry-1", IdempotencyStore.Operation.BOOK, visitRequest(1L, TEN),
+                () -> CompletableFuture.completedFuture(new IdempotencyStore.StoredResponse(200, "Visit created successfully", false)));
+
+        assertThatThrownBy(() -> bookingTracker.submit(visitRequest(1L, TEN), "retry-1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Idempotency key retry-1 was already used for a different visit");
+        verify(bookingPipeline, never()).submit(any(VisitRequest.class));
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownBooking() {
+        assertThat(bookingTracker.findStatus("unknown")).isEmpty();
+    }
+
+    private static VisitRequest visitRequest(Long doctorId, LocalDateTime start) {
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(doctorId);
+        request.setPatientId(1L);
+        request.setStart(start);
+        request.setEnd(start.plusHours(1));
+        return request;
+    }
+}
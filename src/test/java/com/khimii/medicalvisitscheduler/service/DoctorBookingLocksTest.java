@@ -0,0 +1,95 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorBookingLocksTest {
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Test
+    void shouldHoldLockWhileBookingRuns() {
+        DoctorBookingLocks locks = new DoctorBookingLocks(doctorRepository, properties(false));
+
+        locks.callWithLocks(List.of(1L), () -> {
+            assertThat(tryLockFromOtherThread(locks, 1L)).isFalse();
+            assertThat(tryLockFromOtherThread(locks, 2L)).isTrue();
+            return null;
+        });
+
+        assertThat(tryLockFromOtherThread(locks, 1L)).isTrue();
+    }
+
+    @Test
+    void shouldReleaseLockWhenBookingFails() {
+        DoctorBookingLocks locks = new DoctorBookingLocks(doctorRepository, properties(false));
+
+        assertThatThrownBy(() -> locks.callWithLocks(List.of(1L), () -> {
+            throw new RuntimeException("Doctor is not available at this time");
+        })).hasMessage("Doctor is not available at this time");
+
+        assertThat(tryLockFromOtherThread(locks, 1L)).isTrue();
+    }
+
+    @Test
+    void shouldEndLockWaitAlsoWhenLockTimesOut() {
+        DoctorBookingLocks locks = new DoctorBookingLocks(doctorRepository, properties(false));
+        AtomicInteger waits = new AtomicInteger();
+
+        locks.callWithLocks(List.of(1L), () -> {
+            assertThatThrownBy(() -> CompletableFuture.runAsync(() -> locks.callWithLocks(List.of(1L),
+                    waits::incrementAndGet, () -> null)).join())
+                    .hasRootCauseMessage("Doctor is busy with another booking. Please try again.");
+            return null;
+        });
+        locks.callWithLocks(List.of(1L), waits::incrementAndGet, () -> null);
+
+        assertThat(waits).hasValue(2);
+    }
+
+    @Test
+    void shouldLockDoctorRowsOnlyWhenDatabaseLockIsEnabled() {
+        new DoctorBookingLocks(doctorRepository, properties(false)).lockRows(List.of(1L));
+        verifyNoInteractions(doctorRepository);
+
+        new DoctorBookingLocks(doctorRepository, properties(true)).lockRows(List.of(3L, 1L));
+        verify(doctorRepository).lockForBooking(List.of(3L, 1L));
+    }
+
+    private static SchedulerProperties properties(boolean databaseLock) {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getBooking().setLockTimeout(Duration.ofMillis(50));
+        properties.getBooking().setDatabaseLock(databaseLock);
+        return properties;
+    }
+
+    /**
+     * Runs an empty booking of the doctor on another thread.
+     *
+     * @return Whether the doctor's lock could be taken.
+     */
+    private static boolean tryLockFromOtherThread(DoctorBookingLocks locks, Long doctorId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return locks.callWithLocks(List.of(doctorId), () -> true);
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }).join();
+    }
+}
@@ -0,0 +1,142 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorCalendarIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+    private static final LocalDateTime EIGHT = TODAY.plusDays(1).atTime(8, 0);
+    private static final long HALF_HOUR = 30 * 60;
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    private DoctorCalendarIndex doctorCalendarIndex;
+
+    @BeforeEach
+    void setUp() {
+        doctorCalendarIndex = new DoctorCalendarIndex(visitRepository, new SchedulerProperties());
+    }
+
+    @Test
+    void shouldReturnWindowsBetweenVisits() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay())).thenReturn(List.of(
+                new VisitInterval(EIGHT.plusHours(1), EIGHT.plusHours(2)),
+                new VisitInterval(EIGHT.plusHours(3), EIGHT.plusHours(3).plusMinutes(30))
+        ));
+
+        List<VisitInterval> windows = doctorCalendarIndex.findFreeWindows(1L, EIGHT, EIGHT.plusHours(5), HALF_HOUR);
+
+        assertThat(windows).extracting(VisitInterval::getStartDateTime, VisitInterval::getEndDateTime).containsExactly(
+                tuple(EIGHT, EIGHT.plusHours(1)),
+                tuple(EIGHT.plusHours(2), EIGHT.plusHours(3)),
+                tuple(EIGHT.plusHours(3).plusMinutes(30), EIGHT.plusHours(5)));
+    }
+
+    @Test
+    void shouldSkipWindowsShorterThanDuration() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay())).thenReturn(List.of(
+                new VisitInterval(EIGHT, EIGHT.plusMinutes(30)),
+                new VisitInterval(EIGHT.plusMinutes(50), EIGHT.plusHours(2))
+        ));
+
+        List<VisitInterval> windows = doctorCalendarIndex.findFreeWindows(1L, EIGHT, EIGHT.plusHours(3), HALF_HOUR);
+
+        assertThat(windows).extracting(VisitInterval::getStartDateTime).containsExactly(EIGHT.plusHours(2));
+    }
+
+    @Test
+    void shouldBlockWholeSlotsForUnalignedVisitsAndAlignRange() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay())).thenReturn(List.of(
+                new VisitInterval(EIGHT.plusMinutes(7), EIGHT.plusMinutes(21))
+        ));
+
+        List<VisitInterval> windows = doctorCalendarIndex.findFreeWindows(1L, EIGHT.plusMinutes(1), EIGHT.plusMinutes(59), 300);
+
+        assertThat(windows).extracting(VisitInterval::getStartDateTime, VisitInterval::getEndDateTime).containsExactly(
+                tuple(EIGHT.plusMinutes(25), EIGHT.plusMinutes(55)));
+    }
+
+    @Test
+    void shouldJoinFreeTimeAcrossDays() {
+        LocalDateTime midnight = EIGHT.toLocalDate().plusDays(1).atStartOfDay();
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay())).thenReturn(List.of(
+                new VisitInterval(midnight.minusHours(1), midnight.minusMinutes(5)),
+                new VisitInterval(midnight.plusDays(2), midnight.plusDays(2).plusHours(1))
+        ));
+
+        List<VisitInterval> windows = doctorCalendarIndex.findFreeWindows(1L, midnight.minusHours(2),
+                midnight.plusDays(3), HALF_HOUR);
+
+        assertThat(windows).extracting(VisitInterval::getStartDateTime, VisitInterval::getEndDateTime).containsExactly(
+                tuple(midnight.minusHours(2), midnight.minusHours(1)),
+                tuple(midnight.minusMinutes(5), midnight.plusDays(2)),
+                tuple(midnight.plusDays(2).plusHours(1), midnight.plusDays(3)));
+    }
+
+    @Test
+    void shouldIncludeRecordedVisitsAndLoadOnlyOnce() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay())).thenReturn(List.of());
+
+        assertThat(doctorCalendarIndex.findFreeWindows(1L, EIGHT, EIGHT.plusHours(1), HALF_HOUR)).hasSize(1);
+
+        doctorCalendarIndex.recordVisit(1L, EIGHT.plusMinutes(15), EIGHT.plusMinutes(45));
+
+        assertThat(doctorCalendarIndex.findFreeWindows(1L, EIGHT, EIGHT.plusHours(1), 15 * 60))
+                .extracting(VisitInterval::getStartDateTime)
+                .containsExactly(EIGHT, EIGHT.plusMinutes(45));
+        verify(visitRepository, times(1)).findIntervalsByDoctorIdEndingAfter(1L, TODAY.atStartOfDay());
+    }
+
+    @Test
+    void shouldReadRangesStartingBeforeTodayFromDatabase() {
+        LocalDateTime yesterday = TODAY.minusDays(1).atTime(8, 0);
+        when(visitRepository.findIntervalsByDoctorIdBetween(1L, yesterday, yesterday.plusHours(2))).thenReturn(List.of(
+                new VisitInterval(yesterday.plusMinutes(30), yesterday.plusHours(1))));
+
+        List<VisitInterval> windows = doctorCalendarIndex.findFreeWindows(1L, yesterday, yesterday.plusHours(2), HALF_HOUR);
+
+        assertThat(windows).extracting(VisitInterval::getStartDateTime).containsExactly(yesterday, yesterday.plusHours(1));
+        verify(visitRepository, never()).findIntervalsByDoctorIdEndingAfter(anyLong(), any());
+    }
+
+    @Test
+    void shouldForgetDaysThatHavePassed() {
+        long today = TODAY.toEpochDay();
+        long yesterdaySlot = (today - 1) * DoctorCalendar.SLOTS_PER_DAY;
+        long todaySlot = today * DoctorCalendar.SLOTS_PER_DAY;
+        DoctorCalendar calendar = new DoctorCalendar();
+        calendar.load(List.of(new VisitInterval(TODAY.minusDays(1).atTime(8, 0), TODAY.atTime(9, 0))));
+
+        calendar.dropDaysBefore(today);
+        calendar.markBusy(epoch(TODAY.minusDays(1).atTime(20, 0)), epoch(TODAY.minusDays(1).atTime(21, 0)));
+
+        assertThat(calendar.nextBusy(yesterdaySlot, todaySlot)).isEqualTo(todaySlot);
+        assertThat(calendar.nextFree(todaySlot, todaySlot + DoctorCalendar.SLOTS_PER_DAY))
+                .isEqualTo(epoch(TODAY.atTime(9, 0)) / DoctorCalendar.SLOT_SECONDS);
+    }
+
+    private static long epoch(LocalDateTime utc) {
+        return utc.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static org.assertj.core.groups.Tuple tuple(Object... values) {
+        return org.assertj.core.groups.Tuple.tuple(values);
+    }
+}
@@ -0,0 +1,67 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.repository.DoctorPatientStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorPatientStatsServiceTest {
+
+    @Mock
+    private DoctorPatientStatsRepository doctorPatientStatsRepository;
+
+    private final SchedulerProperties schedulerProperties = new SchedulerProperties();
+
+    private DoctorPatientStatsService doctorPatientStatsService;
+
+    @BeforeEach
+    void setUp() {
+        doctorPatientStatsService = new DoctorPatientStatsService(doctorPatientStatsRepository, schedulerProperties);
+    }
+
+    @Test
+    void shouldIncrementCounterForNewPair() {
+        when(doctorPatientStatsRepository.insertPairIfAbsent(1L, 2L)).thenReturn(1);
+
+        doctorPatientStatsService.recordVisit(1L, 2L);
+
+        verify(doctorPatientStatsRepository).incrementTotalPatients(1L);
+    }
+
+    @Test
+    void shouldNotIncrementCounterForKnownPair() {
+        when(doctorPatientStatsRepository.insertPairIfAbsent(1L, 2L)).thenReturn(0);
+
+        doctorPatientStatsService.recordVisit(1L, 2L);
+
+        verify(doctorPatientStatsRepository, never()).incrementTotalPatients(anyLong());
+    }
+
+    @Test
+    void shouldEstimateUniquePatientsWhenHyperLogLogEnabled() {
+        schedulerProperties.getDoctorStats().setHyperLogLogEnabled(true);
+        when(doctorPatientStatsRepository.findPatientIdsByDoctorId(1L)).thenReturn(List.of(10L, 11L, 12L));
+
+        doctorPatientStatsService.recordVisit(1L, 12L);
+        doctorPatientStatsService.recordVisit(1L, 13L);
+
+        assertThat(doctorPatientStatsService.approximateTotalPatients(1L)).isEqualTo(4L);
+        verify(doctorPatientStatsRepository, times(1)).findPatientIdsByDoctorId(1L);
+    }
+
+    @Test
+    void shouldRejectApproximationWhenHyperLogLogDisabled() {
+        assertThatThrownBy(() -> doctorPatientStatsService.approximateTotalPatients(1L))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,104 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorScheduleIndexTest {
+
+    private static final LocalDateTime TODAY = LocalDate.now(ZoneOffset.UTC).atStartOfDay();
+    private static final LocalDateTime TEN = TODAY.plusDays(1).withHour(10);
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @BeforeEach
+    void setUp() {
+        doctorScheduleIndex = new DoctorScheduleIndex(visitRepository, new SchedulerProperties());
+    }
+
+    @Test
+    void shouldDetectOverlappingVisit() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY)).thenReturn(List.of(
+                new VisitInterval(TEN, TEN.plusMinutes(30)),
+                new VisitInterval(TEN.plusHours(2), TEN.plusHours(3))
+        ));
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusMinutes(15), TEN.plusMinutes(45))).isTrue();
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusHours(1), TEN.plusHours(4))).isTrue();
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.minusHours(1), TEN.plusHours(5))).isTrue();
+    }
+
+    @Test
+    void shouldAllowAdjacentVisits() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY)).thenReturn(List.of(
+                new VisitInterval(TEN, TEN.plusMinutes(30)),
+                new VisitInterval(TEN.plusHours(1), TEN.plusHours(2))
+        ));
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.minusMinutes(30), TEN)).isFalse();
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusMinutes(30), TEN.plusHours(1))).isFalse();
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusHours(2), TEN.plusHours(3))).isFalse();
+    }
+
+    @Test
+    void shouldDetectConflictWithLongHistoricalOverlap() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY)).thenReturn(List.of(
+                new VisitInterval(TEN, TEN.plusHours(8)),
+                new VisitInterval(TEN.plusHours(1), TEN.plusHours(2))
+        ));
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusHours(4), TEN.plusHours(5))).isTrue();
+    }
+
+    @Test
+    void shouldIncludeRecordedVisitsAndLoadOnlyOnce() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY)).thenReturn(List.of());
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN, TEN.plusMinutes(30))).isFalse();
+
+        doctorScheduleIndex.recordVisit(1L, TEN, TEN.plusMinutes(30));
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN.plusMinutes(10), TEN.plusMinutes(20))).isTrue();
+        verify(visitRepository, times(1)).findIntervalsByDoctorIdEndingAfter(1L, TODAY);
+    }
+
+    @Test
+    void shouldReloadScheduleAfterEviction() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(1L, TODAY))
+                .thenReturn(List.of(new VisitInterval(TEN, TEN.plusMinutes(30))))
+                .thenReturn(List.of());
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN, TEN.plusMinutes(30))).isTrue();
+
+        doctorScheduleIndex.evict(1L);
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, TEN, TEN.plusMinutes(30))).isFalse();
+        verify(visitRepository, times(2)).findIntervalsByDoctorIdEndingAfter(1L, TODAY);
+    }
+
+    @Test
+    void shouldCheckRangesStartingBeforeTodayInDatabase() {
+        LocalDateTime yesterday = TODAY.minusDays(1).withHour(10);
+        when(visitRepository.existsConflictingVisit(1L, yesterday, yesterday.plusMinutes(30))).thenReturn(true);
+
+        assertThat(doctorScheduleIndex.hasConflict(1L, yesterday, yesterday.plusMinutes(30))).isTrue();
+        verify(visitRepository, never()).findIntervalsByDoctorIdEndingAfter(any(), any());
+    }
+}
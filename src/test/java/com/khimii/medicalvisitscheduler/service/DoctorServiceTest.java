@@ -0,0 +1,134 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.AvailabilitySlot;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorAvailabilityResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorPatientEstimateResponse;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableResponse;
+import com.khimii.medicalvisitscheduler.model.dto.FirstAvailableSlot;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorServiceTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    @InjectMocks
+    private DoctorService doctorService;
+
+    @Mock
+    private ReferenceDataService referenceDataService;
+
+    @Mock
+    private DoctorCalendarIndex doctorCalendarIndex;
+
+    @Mock
+    private FirstAvailableSearch firstAvailableSearch;
+
+    @Mock
+    private DoctorPatientStatsService doctorPatientStatsService;
+
+    @Spy
+    private SchedulerProperties schedulerProperties = new SchedulerProperties();
+
+    @Test
+    void shouldReturnFreeWindowsInDoctorTimezone() {
+        when(referenceDataService.findDoctor(1L))
+                .thenReturn(Optional.of(new DoctorSnapshot(1L, "John", "Doe", "America/New_York")));
+        LocalDateTime utcFrom = MONDAY.plusHours(4);
+        when(doctorCalendarIndex.findFreeWindows(1L, utcFrom, utcFrom.plusHours(10), 1800))
+                .thenReturn(List.of(new VisitInterval(utcFrom, utcFrom.plusHours(1))));
+
+        Optional<DoctorAvailabilityResponse> response = doctorService.getAvailability(1L, MONDAY, MONDAY.plusHours(10), 30);
+
+        assertThat(response).isPresent();
+        assertThat(response.get().getTimezone()).isEqualTo("America/New_York");
+        assertThat(response.get().getSlots()).extracting(AvailabilitySlot::getStart, AvailabilitySlot::getEnd)
+                .containsExactly(org.assertj.core.groups.Tuple.tuple("2025-03-10T08:00", "2025-03-10T09:00"));
+    }
+
+    @Test
+    void shouldReturnEmptyWhenDoctorNotFound() {
+        when(referenceDataService.findDoctor(99L)).thenReturn(Optional.empty());
+
+        assertThat(doctorService.getAvailability(99L, MONDAY, MONDAY.plusDays(1), 30)).isEmpty();
+        verifyNoInteractions(doctorCalendarIndex);
+    }
+
+    @Test
+    void shouldRejectRangeLongerThanLimit() {
+        assertThatThrownBy(() -> doctorService.getAvailability(1L, MONDAY, MONDAY.plusDays(32), 30))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The range must not be longer than 31 days");
+    }
+
+    @Test
+    void shouldReturnFirstAvailableSlotsOfKnownDoctorsInTheirTimezones() {
+        when(referenceDataService.findDoctors(List.of(1L, 2L, 3L))).thenReturn(Map.of(
+                1L, new DoctorSnapshot(1L, "John", "Doe", "America/New_York"),
+                2L, new DoctorSnapshot(2L, "Jane", "Roe", "Europe/Berlin")));
+        LocalDateTime utcFrom = MONDAY.plusHours(4);
+        long start = utcFrom.plusHours(1).toEpochSecond(ZoneOffset.UTC);
+        when(firstAvailableSearch.findFirstSlots(List.of(1L, 2L), utcFrom, utcFrom.plusDays(31), 1800, 2))
+                .thenReturn(List.of(new FirstAvailableSearch.DoctorSlot(2L, start),
+                        new FirstAvailableSearch.DoctorSlot(1L, start)));
+
+        FirstAvailableResponse response = doctorService.findFirstAvailable(List.of(1L, 2L, 3L),
+                OffsetDateTime.of(MONDAY, ZoneOffset.ofHours(-4)), 30, 2);
+
+        assertThat(response.getSlots())
+                .extracting(FirstAvailableSlot::getDoctorId, FirstAvailableSlot::getStartUtc,
+                        FirstAvailableSlot::getStart, FirstAvailableSlot::getEnd)
+                .containsExactly(
+                        org.assertj.core.groups.Tuple.tuple(2L, "2025-03-10T13:00", "2025-03-10T14:00", "2025-03-10T14:30"),
+                        org.assertj.core.groups.Tuple.tuple(1L, "2025-03-10T13:00", "2025-03-10T09:00", "2025-03-10T09:30"));
+    }
+
+    @Test
+    void shouldRejectSearchOverTooManyDoctors() {
+        schedulerProperties.getAvailability().setMaxSearchDoctors(2);
+
+        assertThatThrownBy(() -> doctorService.findFirstAvailable(List.of(1L, 2L, 3L), null, 30, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Search covers 3 doctors, the limit is 2");
+        verifyNoInteractions(firstAvailableSearch);
+    }
+
+    @Test
+    void shouldEstimateTotalPatientsOfKnownDoctor() {
+        when(doctorPatientStatsService.isApproximationEnabled()).thenReturn(true);
+        when(referenceDataService.findDoctor(1L))
+                .thenReturn(Optional.of(new DoctorSnapshot(1L, "John", "Doe", "UTC")));
+        when(doctorPatientStatsService.approximateTotalPatients(1L)).thenReturn(42L);
+
+        Optional<DoctorPatientEstimateResponse> response = doctorService.estimateTotalPatients(1L);
+
+        assertThat(response).isPresent();
+        assertThat(response.get().getApproximateTotalPatients()).isEqualTo(42L);
+    }
+
+    @Test
+    void shouldNotEstimateTotalPatientsWhenDisabled() {
+        assertThat(doctorService.estimateTotalPatients(1L)).isEmpty();
+        verifyNoInteractions(referenceDataService);
+        verify(doctorPatientStatsService, never()).approximateTotalPatients(any());
+    }
+}
@@ -0,0 +1,125 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
+import com.khimii.medicalvisitscheduler.repository.VisitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FirstAvailableSearchTest {
+
+    private static final LocalDateTime EIGHT = LocalDate.now(ZoneOffset.UTC).plusDays(1).atTime(8, 0);
+    private static final long HALF_HOUR = 30 * 60;
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    private DoctorCalendarIndex doctorCalendarIndex;
+    private FirstAvailableSearch firstAvailableSearch;
+
+    @BeforeEach
+    void setUp() {
+        SchedulerProperties properties = new SchedulerProperties();
+        doctorCalendarIndex = new DoctorCalendarIndex(visitRepository, properties);
+        properties.getAvailability().setSearchParallelism(4);
+        firstAvailableSearch = new FirstAvailableSearch(doctorCalendarIndex, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstAvailableSearch.shutdown();
+    }
+
+    @Test
+    void shouldMergeSlotsOfDoctorsByStartAndDoctorId() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(eq(1L), any())).thenReturn(List.of(
+                new VisitInterval(EIGHT, EIGHT.plusHours(1))));
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(eq(2L), any())).thenReturn(List.of(
+                new VisitInterval(EIGHT.plusMinutes(30), EIGHT.plusHours(2))));
+
+        List<FirstAvailableSearch.DoctorSlot> slots = firstAvailableSearch.findFirstSlots(List.of(2L, 1L),
+                EIGHT, EIGHT.plusHours(4), HALF_HOUR, 4);
+
+        assertThat(slots).containsExactly(
+                new FirstAvailableSearch.DoctorSlot(2L, epoch(EIGHT)),
+                new FirstAvailableSearch.DoctorSlot(1L, epoch(EIGHT.plusHours(1))),
+                new FirstAvailableSearch.DoctorSlot(1L, epoch(EIGHT.plusMinutes(90))),
+                new FirstAvailableSearch.DoctorSlot(1L, epoch(EIGHT.plusHours(2))));
+    }
+
+    @Test
+    void shouldSkipWindowsShorterThanDuration() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(eq(1L), any())).thenReturn(List.of(
+                new VisitInterval(EIGHT.plusMinutes(20), EIGHT.plusHours(1))));
+
+        List<FirstAvailableSearch.DoctorSlot> slots = firstAvailableSearch.findFirstSlots(List.of(1L),
+                EIGHT, EIGHT.plusHours(2), HALF_HOUR, 5);
+
+        assertThat(slots).extracting(FirstAvailableSearch.DoctorSlot::startEpoch)
+                .containsExactly(epoch(EIGHT.plusHours(1)), epoch(EIGHT.plusMinutes(90)));
+    }
+
+    @Test
+    void shouldMatchExhaustiveSearchAcrossManyDoctors() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(anyLong(), any())).thenAnswer(invocation -> {
+            long doctorId = invocation.getArgument(0);
+            List<VisitInterval> visits = new ArrayList<>();
+            for (int hour = 0; hour < 48; hour++) {
+                if ((hour * 7 + doctorId * 13) % 5 != 0) {
+                    LocalDateTime start = EIGHT.plusHours(hour).plusMinutes(doctorId % 6 * 5);
+                    visits.add(new VisitInterval(start, start.plusMinutes(50)));
+                }
+            }
+            return visits;
+        });
+        List<Long> doctorIds = LongStream.rangeClosed(1, 200).boxed().toList();
+
+        List<FirstAvailableSearch.DoctorSlot> expected = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            for (long start : doctorCalendarIndex.findSlotStarts(doctorId, EIGHT, EIGHT.plusDays(3), HALF_HOUR, 1000,
+                    () -> Long.MAX_VALUE)) {
+                expected.add(new FirstAvailableSearch.DoctorSlot(doctorId, start));
+            }
+        }
+        expected.sort(Comparator.comparingLong(FirstAvailableSearch.DoctorSlot::startEpoch)
+                .thenComparing(FirstAvailableSearch.DoctorSlot::doctorId));
+
+        List<FirstAvailableSearch.DoctorSlot> slots = firstAvailableSearch.findFirstSlots(doctorIds,
+                EIGHT, EIGHT.plusDays(3), HALF_HOUR, 50);
+
+        assertThat(slots).containsExactlyElementsOf(expected.subList(0, 50));
+    }
+
+    @Test
+    void shouldStopCollectingSlotsPastLatestStart() {
+        when(visitRepository.findIntervalsByDoctorIdEndingAfter(eq(1L), any())).thenReturn(List.of());
+
+        long[] starts = doctorCalendarIndex.findSlotStarts(1L, EIGHT, EIGHT.plusDays(1), HALF_HOUR, 10,
+                () -> epoch(EIGHT.plusHours(1)));
+
+        assertThat(starts).containsExactly(epoch(EIGHT), epoch(EIGHT.plusMinutes(30)), epoch(EIGHT.plusHours(1)));
+    }
+
+    private static long epoch(LocalDateTime utc) {
+        return utc.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,211 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.exception.IdempotencyKeyInUseException;
+import com.khimii.medicalvisitscheduler.model.IdempotencyKey;
+import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
+import com.khimii.medicalvisitscheduler.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2023, 10, 10, 10, 0);
+    private static final IdempotencyStore.StoredResponse CREATED =
+            new IdempotencyStore.StoredResponse(200, "Visit created successfully", false);
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void shouldReplayResponseWithoutBookingAgain() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        AtomicInteger bookings = new AtomicInteger();
+
+        IdempotencyStore.StoredResponse first = store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+        IdempotencyStore.StoredResponse retry = store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+
+        assertThat(bookings).hasValue(1);
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.body()).isEqualTo("Visit created successfully");
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    void shouldCoalesceRetryWithRequestInFlight() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        CompletableFuture<IdempotencyStore.StoredResponse> booking = new CompletableFuture<>();
+        AtomicInteger bookings = new AtomicInteger();
+
+        CompletableFuture<IdempotencyStore.StoredResponse> first = store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> {
+            bookings.incrementAndGet();
+            return booking;
+        });
+        CompletableFuture<IdempotencyStore.StoredResponse> retry =
+                store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED));
+        assertThat(retry).isNotDone();
+
+        booking.complete(CREATED);
+
+        assertThat(bookings).hasValue(1);
+        assertThat(first.join().replayed()).isFalse();
+        assertThat(retry.join().replayed()).isTrue();
+    }
+
+    @Test
+    void shouldForgetRejectedRequests() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        AtomicInteger bookings = new AtomicInteger();
+        IdempotencyStore.StoredResponse rejected =
+                new IdempotencyStore.StoredResponse(400, "Doctor is not available at this time", false);
+
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, rejected)).join();
+        IdempotencyStore.StoredResponse retry = store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+
+        assertThat(bookings).hasValue(2);
+        assertThat(retry.replayed()).isFalse();
+        assertThat(retry.status()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldRejectKeyReusedForDifferentVisit() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        AtomicInteger bookings = new AtomicInteger();
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+
+        assertThatThrownBy(() -> store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN.plusHours(1)), () -> book(bookings, CREATED)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Idempotency key k1 was already used for a different visit");
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void shouldRejectKeyTooLongToStore() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        AtomicInteger bookings = new AtomicInteger();
+
+        assertThatThrownBy(() -> store.execute("k".repeat(129), IdempotencyStore.Operation.BOOK, visitRequest(TEN),
+                () -> book(bookings, CREATED)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Idempotency key must be at most 128 characters");
+        assertThat(bookings).hasValue(0);
+    }
+
+    @Test
+    void shouldRejectKeyReusedWithAnotherEndpoint() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, new SchedulerProperties());
+        AtomicInteger bookings = new AtomicInteger();
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+
+        assertThatThrownBy(() -> store.execute("k1", IdempotencyStore.Operation.BOOK_ASYNC, visitRequest(TEN),
+                () -> book(bookings, CREATED)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void shouldReserveKeyBeforeBookingAndStoreResponseWhenPersistent() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getIdempotency().setPersistent(true);
+        AtomicInteger bookings = new AtomicInteger();
+
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, properties);
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> {
+            verify(idempotencyKeyRepository).reserve(eq("k1"), any(), any());
+            return book(bookings, CREATED);
+        }).join();
+
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<LocalDateTime> reservedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(idempotencyKeyRepository).reserve(eq("k1"), fingerprint.capture(), reservedAt.capture());
+        verify(idempotencyKeyRepository).complete("k1", reservedAt.getValue(), 200, "Visit created successfully");
+
+        // A fresh instance, as after a restart or on another node, finds the key in the table
+        doThrow(new DataIntegrityViolationException("Duplicate entry 'k1'"))
+                .when(idempotencyKeyRepository).reserve(eq("k1"), any(), any());
+        when(idempotencyKeyRepository.findById("k1")).thenReturn(Optional.of(new IdempotencyKey("k1",
+                fingerprint.getValue(), 200, "Visit created successfully", reservedAt.getValue())));
+        IdempotencyStore restarted = new IdempotencyStore(idempotencyKeyRepository, properties);
+        IdempotencyStore.StoredResponse retry =
+                restarted.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+
+        assertThat(bookings).hasValue(1);
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.body()).isEqualTo("Visit created successfully");
+    }
+
+    @Test
+    void shouldNotBookWhileAnotherInstanceHoldsTheKey() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getIdempotency().setPersistent(true);
+        AtomicInteger bookings = new AtomicInteger();
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, properties);
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(bookings, CREATED)).join();
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyKeyRepository).reserve(eq("k1"), fingerprint.capture(), any());
+
+        doThrow(new DataIntegrityViolationException("Duplicate entry 'k1'"))
+                .when(idempotencyKeyRepository).reserve(eq("k1"), any(), any());
+        when(idempotencyKeyRepository.findById("k1")).thenReturn(Optional.of(new IdempotencyKey("k1",
+                fingerprint.getValue(), IdempotencyKey.PENDING, null, LocalDateTime.now())));
+        IdempotencyStore otherInstance = new IdempotencyStore(idempotencyKeyRepository, properties);
+
+        assertThatThrownBy(() -> otherInstance.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN),
+                () -> book(bookings, CREATED)))
+                .isInstanceOf(IdempotencyKeyInUseException.class);
+        assertThat(bookings).hasValue(1);
+    }
+
+    @Test
+    void shouldReleaseReservationOfRejectedRequestWhenPersistent() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.getIdempotency().setPersistent(true);
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, properties);
+        IdempotencyStore.StoredResponse rejected =
+                new IdempotencyStore.StoredResponse(400, "Doctor is not available at this time", false);
+
+        store.execute("k1", IdempotencyStore.Operation.BOOK, visitRequest(TEN), () -> book(new AtomicInteger(), rejected)).join();
+
+        ArgumentCaptor<LocalDateTime> reservedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(idempotencyKeyRepository).reserve(eq("k1"), any(), reservedAt.capture());
+        verify(idempotencyKeyRepository).release("k1", reservedAt.getValue());
+        verify(idempotencyKeyRepository, never()).complete(any(), any(), anyInt(), any());
+    }
+
+    private static CompletableFuture<IdempotencyStore.StoredResponse> book(AtomicInteger bookings,
+                                                                           IdempotencyStore.StoredResponse response) {
+        bookings.incrementAndGet();
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static VisitRequest visitRequest(LocalDateTime start) {
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(1L);
+        request.setPatientId(1L);
+        request.setStart(start);
+        request.setEnd(start.plusHours(1));
+        return request;
+    }
+}
@@ -0,0 +1,102 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.repository.PatientExportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class PatientExportServiceTest {
+
+    @Mock
+    private PatientExportRepository patientExportRepository;
+
+    @Mock
+    private PatientNameSearch patientNameSearch;
+
+    private PatientExportService patientExportService;
+
+    @BeforeEach
+    void setUp() {
+        patientExportService = new PatientExportService(patientExportRepository, patientNameSearch, new ObjectMapper());
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        doAnswer(invocation -> {
+            Consumer<PatientVisitResponse> action = invocation.getArgument(4);
+            action.accept(new PatientVisitResponse(1L, "Alice", "Smith", start, start.plusMinutes(30),
+                    2L, "John", "Doe", 5L));
+            action.accept(new PatientVisitResponse(2L, "Bob \"Bobby\"", "Jones, Jr.", start, start.plusHours(1),
+                    3L, "Emily", "Lee", 7L));
+            return null;
+        }).when(patientExportRepository).forEachPatientWithLastVisit(eq(null), eq(List.of()), eq(0L),
+                eq(List.of(2L, 3L)), any());
+    }
+
+    @Test
+    void shouldWriteOneJsonObjectPerLine() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = patientExportService.export(null, List.of(2L, 3L), PatientExportService.Format.NDJSON, output);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                {"patientId":1,"firstName":"Alice","lastName":"Smith","visitStart":"2024-03-01T09:00",\
+                "visitEnd":"2024-03-01T09:30","doctorId":2,"doctorFirstName":"John","doctorLastName":"Doe",\
+                "doctorTotalPatients":5}
+                {"patientId":2,"firstName":"Bob \\"Bobby\\"","lastName":"Jones, Jr.","visitStart":"2024-03-01T09:00",\
+                "visitEnd":"2024-03-01T10:00","doctorId":3,"doctorFirstName":"Emily","doctorLastName":"Lee",\
+                "doctorTotalPatients":7}
+                """);
+    }
+
+    @Test
+    void shouldWriteCsvWithHeaderAndQuoteOnlyWhereNeeded() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        patientExportService.export(null, List.of(2L, 3L), PatientExportService.Format.CSV, output);
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                patient_id,first_name,last_name,visit_start,visit_end,doctor_id,doctor_first_name,doctor_last_name,\
+                doctor_total_patients
+                1,Alice,Smith,2024-03-01T09:00,2024-03-01T09:30,2,John,Doe,5
+                2,"Bob ""Bobby\"\"\","Jones, Jr.",2024-03-01T09:00,2024-03-01T10:00,3,Emily,Lee,7
+                """);
+    }
+
+    @Test
+    void shouldPropagateWriteFailure() {
+        OutputStream closedByClient = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> patientExportService.export(null, List.of(2L, 3L),
+                PatientExportService.Format.CSV, closedByClient))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+    }
+}
@@ -0,0 +1,111 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientListResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.model.dto.VisitResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PatientJsonRendererTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 10, 10, 10, 0);
+
+    private ObjectWriter patientWriter;
+    private PatientJsonRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = spy(new ObjectMapper());
+        patientWriter = spy(objectMapper.writerFor(PatientResponse.class));
+        doReturn(patientWriter).when(objectMapper).writerFor(PatientResponse.class);
+        renderer = new PatientJsonRenderer(objectMapper, new SchedulerProperties());
+    }
+
+    @Test
+    void shouldRenderTheSameJsonAsJackson() throws IOException {
+        RenderedPatientList page = renderer.render(List.of(
+                row(1L, "Alice", "Smith", 5L), row(2L, "Zoë \"Z\"", "Brown", 7L)), null, "next\"cursor");
+
+        PatientListResponse expected = new PatientListResponse(List.of(
+                patient("Alice", "Smith", 5), patient("Zoë \"Z\"", "Brown", 7)), null, "next\"cursor");
+        byte[] json = write(page);
+        assertThat(new String(json, StandardCharsets.UTF_8)).isEqualTo(new ObjectMapper().writeValueAsString(expected));
+        assertThat(page.getContentLength()).isEqualTo(json.length);
+        assertThat(page.getSize()).isEqualTo(2);
+
+        PatientListResponse counted = new PatientListResponse(List.of(), 0);
+        assertThat(new String(write(renderer.render(List.of(), 0, null)), StandardCharsets.UTF_8))
+                .isEqualTo(new ObjectMapper().writeValueAsString(counted));
+    }
+
+    @Test
+    void shouldReuseJsonOfUnchangedPatientsAndRenderChangedOnesAgain() throws IOException {
+        RenderedPatientList first = renderer.render(List.of(row(1L, "Alice", "Smith", 5L), row(2L, "Bob", "Brown", 5L)),
+                2, null);
+        RenderedPatientList second = renderer.render(List.of(row(1L, "Alice", "Smith", 5L), row(2L, "Bob", "Brown", 5L)),
+                2, null);
+
+        verify(patientWriter, times(2)).writeValueAsBytes(any());
+        assertThat(write(second)).isEqualTo(write(first));
+        assertThat(second.getEntityTag()).isEqualTo(first.getEntityTag());
+
+        RenderedPatientList changed = renderer.render(List.of(row(1L, "Alice", "Smith", 6L), row(2L, "Bob", "Brown", 5L)),
+                2, null);
+
+        verify(patientWriter, times(3)).writeValueAsBytes(any());
+        assertThat(new String(write(changed), StandardCharsets.UTF_8)).contains("\"totalPatients\":6");
+        assertThat(changed.getEntityTag()).isNotEqualTo(first.getEntityTag());
+    }
+
+    @Test
+    void shouldLeaveOutPatientsWhoseVisitHasNotEnded() {
+        PatientVisitResponse upcoming = new PatientVisitResponse(3L, "Eve", "Miller",
+                LocalDateTime.now().minusMinutes(5), LocalDateTime.now().plusMinutes(25), 1L, "John", "Doe", 5L);
+
+        RenderedPatientList page = renderer.render(List.of(row(1L, "Alice", "Smith", 5L), upcoming), 2, null);
+
+        assertThat(page.getSize()).isEqualTo(1);
+    }
+
+    private static byte[] write(RenderedPatientList page) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        page.writeTo(output);
+        return output.toByteArray();
+    }
+
+    private static PatientVisitResponse row(Long patientId, String firstName, String lastName, Long totalPatients) {
+        return new PatientVisitResponse(patientId, firstName, lastName, START, START.plusHours(1),
+                1L, "John", "Doe", totalPatients);
+    }
+
+    private static PatientResponse patient(String firstName, String lastName, int totalPatients) {
+        DoctorResponse doctor = new DoctorResponse();
+        doctor.setFirstName("John");
+        doctor.setLastName("Doe");
+        doctor.setTotalPatients(totalPatients);
+        VisitResponse visit = new VisitResponse();
+        visit.setStart(START.toString());
+        visit.setEnd(START.plusHours(1).toString());
+        visit.setDoctor(doctor);
+        return new PatientResponse(firstName, lastName, List.of(visit));
+    }
+}
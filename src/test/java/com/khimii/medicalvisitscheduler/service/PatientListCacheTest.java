@@ -0,0 +1,175 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientListCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 10, 10, 10, 0);
+
+    private SchedulerProperties properties;
+    private PatientListCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SchedulerProperties();
+        cache = new PatientListCache(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldShareEntriesBetweenRequestsSelectingTheSamePatients() {
+        RenderedPatientList response = cachePage(PatientListCache.Key.of(0, 10, "Alice", List.of(3L, 1L, 3L)),
+                row(1L, "Alice", "Smith", 1L));
+
+        assertThat(cache.get(PatientListCache.Key.of(0, 10, "ALICE", List.of(1L, 3L)))).isSameAs(response);
+        assertThat(cache.get(PatientListCache.Key.of(1, 10, "alice", List.of(1L, 3L)))).isNull();
+        assertThat(cache.get(PatientListCache.Key.of(0, 10, "alice", null))).isNull();
+    }
+
+    @Test
+    void shouldEvictPagesShowingTheDoctorOrPatientOfAVisit() {
+        PatientListCache.Key smith = PatientListCache.Key.of(0, 10, "smith", List.of(1L));
+        PatientListCache.Key brown = PatientListCache.Key.of(0, 10, "brown", List.of(2L));
+        cachePage(smith, row(1L, "Alice", "Smith", 1L));
+        cachePage(brown, row(2L, "Bob", "Brown", 2L));
+
+        cache.recordVisit(2L, null, new PatientSnapshot(1L, "Alice", "Smith"));
+
+        assertThat(cache.get(smith)).isNull();
+        assertThat(cache.get(brown)).isNull();
+    }
+
+    @Test
+    void shouldEvictPagesWhoseFiltersTheNewVisitMatches() {
+        PatientListCache.Key all = PatientListCache.Key.of(0, 10, null, null);
+        PatientListCache.Key byName = PatientListCache.Key.of(0, 10, "EVE", null);
+        PatientListCache.Key byDoctor = PatientListCache.Key.of(0, 10, null, List.of(5L, 6L));
+        PatientListCache.Key otherName = PatientListCache.Key.of(0, 10, "bob", null);
+        PatientListCache.Key otherDoctor = PatientListCache.Key.of(0, 10, "eve", List.of(6L));
+        for (PatientListCache.Key key : List.of(all, byName, byDoctor, otherName, otherDoctor)) {
+            cachePage(key, row(1L, "Alice", "Smith", 1L));
+        }
+
+        cache.recordVisit(5L, null, new PatientSnapshot(9L, "Evelyn", "Jones"));
+
+        assertThat(cache.get(all)).isNull();
+        assertThat(cache.get(byName)).isNull();
+        assertThat(cache.get(byDoctor)).isNull();
+        assertThat(cache.get(otherName)).isNotNull();
+        assertThat(cache.get(otherDoctor)).isNotNull();
+    }
+
+    @Test
+    void shouldEvictPagesOfThePreviousDoctorWhenTheLatestVisitMovesToAnotherDoctor() {
+        PatientListCache.Key previousDoctorLaterPage = PatientListCache.Key.of(1, 10, null, List.of(1L));
+        PatientListCache.Key previousDoctorByName = PatientListCache.Key.of(0, 10, "jones", List.of(1L, 3L));
+        PatientListCache.Key unrelatedDoctor = PatientListCache.Key.of(0, 10, null, List.of(3L));
+        cachePage(previousDoctorLaterPage, row(20L, "Alice", "Smith", 1L));
+        cachePage(previousDoctorByName, row(21L, "Bob", "Jones", 3L));
+        cachePage(unrelatedDoctor, row(22L, "Carol", "White", 3L));
+
+        cache.recordVisit(2L, 1L, new PatientSnapshot(9L, "Evelyn", "Jones"));
+
+        assertThat(cache.get(previousDoctorLaterPage)).isNull();
+        assertThat(cache.get(previousDoctorByName)).isNull();
+        assertThat(cache.get(unrelatedDoctor)).isNotNull();
+    }
+
+    @Test
+    void shouldTreatNonAsciiNamesAsMatching() {
+        PatientListCache.Key key = PatientListCache.Key.of(0, 10, "jose", null);
+        cachePage(key, row(1L, "Alice", "Smith", 1L));
+
+        cache.recordVisit(5L, null, new PatientSnapshot(9L, "José", "Núñez"));
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldTreatLikePatternsAsMatching() {
+        PatientListCache.Key key = PatientListCache.Key.of(0, 10, "li_e", null);
+        cachePage(key, row(1L, "Alice", "Smith", 1L));
+
+        cache.recordVisit(5L, null, new PatientSnapshot(9L, "Malice", "Lee"));
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldEvictOnlyAfterTheBookingCommits() {
+        PatientListCache.Key key = PatientListCache.Key.of(0, 10, null, null);
+        cachePage(key, row(1L, "Alice", "Smith", 1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.recordVisit(1L, null, new PatientSnapshot(1L, "Alice", "Smith"));
+            assertThat(cache.get(key)).isNotNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldNotKeepPageLoadedWhileAVisitWasBooked() {
+        PatientListCache.Key key = PatientListCache.Key.of(0, 10, "bob", null);
+        long version = cache.currentVersion();
+
+        cache.recordVisit(1L, null, new PatientSnapshot(1L, "Alice", "Smith"));
+        cache.put(key, version, new RenderedPatientList(List.of(), 1, null), List.of(row(2L, "Bob", "Brown", 2L)));
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldNotCacheWhenDisabled() {
+        properties.getPatientListCache().setEnabled(false);
+        cache = new PatientListCache(properties, new SimpleMeterRegistry());
+        PatientListCache.Key key = PatientListCache.Key.of(0, 10, null, null);
+
+        cachePage(key, row(1L, "Alice", "Smith", 1L));
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void shouldNotCachePagesReadWhileTheReplicaMayLagBehindABooking() {
+        properties.getReplica().setEnabled(true);
+        cache = new PatientListCache(properties, new SimpleMeterRegistry());
+        PatientListCache.Key before = PatientListCache.Key.of(0, 10, null, null);
+        PatientListCache.Key after = PatientListCache.Key.of(1, 10, null, null);
+        cachePage(before, row(1L, "Alice", "Smith", 1L));
+        assertThat(cache.get(before)).isNotNull();
+
+        cache.recordVisit(5L, null, new PatientSnapshot(9L, "Eve", "Clark"));
+        cachePage(after, row(2L, "Bob", "Brown", 2L));
+
+        assertThat(cache.get(before)).isNull();
+        assertThat(cache.get(after)).isNull();
+    }
+
+    private RenderedPatientList cachePage(PatientListCache.Key key, PatientVisitResponse row) {
+        RenderedPatientList response = new RenderedPatientList(List.of(), 1, null);
+        cache.put(key, cache.currentVersion(), response, List.of(row));
+        return response;
+    }
+
+    private static PatientVisitResponse row(Long patientId, String firstName, String lastName, Long doctorId) {
+        return new PatientVisitResponse(patientId, firstName, lastName, START, START.plusHours(1),
+                doctorId, "John", "Doe", 5L);
+    }
+}
@@ -0,0 +1,84 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.config.TestDatabaseConfig;
+import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the patient name index finds the same patients as {@code LIKE} on MySQL, whose collation
+ * ignores case and accents.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TestDatabaseConfig.class)
+class PatientNameSearchIntegrationTest {
+
+    private static final List<String> TERMS = List.of("jose", "JOSÉ", "garc", "cía", "zoë", "zoe", "bront",
+            "renee", "née", "nuñ", "NUNEZ", "lefev", "e_m", "nne%ar", "ne\\_m");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldFindSamePatientsAsLike() {
+        persistPatient("José", "García");
+        persistPatient("Jose", "Garcia");
+        persistPatient("JOSÉ", "Pérez");
+        persistPatient("Zoë", "Brontë");
+        persistPatient("Zoe", "Bronte");
+        persistPatient("Renée", "Lefèvre");
+        persistPatient("Anne_Marie", "Núñez");
+        persistPatient("Annemarie", "Nunez");
+        PatientNameSearch search = new PatientNameSearch(patientRepository, new SchedulerProperties());
+        search.rebuild();
+
+        for (String term : TERMS) {
+            List<Long> expected = jdbcTemplate.queryForList(
+                    "SELECT id FROM patients WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY id",
+                    Long.class, "%" + term + "%", "%" + term + "%");
+
+            assertThat(expected).as(term).isNotEmpty();
+            assertThat(search.find(term).equals(PatientNameSearch.Match.NOT_INDEXED)).as(term)
+                    .isEqualTo(term.matches(".*[%_\\\\].*"));
+            assertThat(find(search, term)).as(term).containsExactlyElementsOf(expected);
+        }
+    }
+
+    /**
+     * Combines the index lookup with {@code LIKE} as the patient queries do.
+     */
+    private TreeSet<Long> find(PatientNameSearch search, String term) {
+        PatientNameSearch.Match match = search.find(term);
+        TreeSet<Long> patientIds = new TreeSet<>(match.getPatientIds());
+        patientIds.addAll(jdbcTemplate.queryForList(
+                "SELECT id FROM patients WHERE id > ? AND (first_name LIKE ? OR last_name LIKE ?)",
+                Long.class, match.getIndexedUpTo(), "%" + term + "%", "%" + term + "%"));
+        return patientIds;
+    }
+
+    private void persistPatient(String firstName, String lastName) {
+        Patient patient = new Patient();
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        entityManager.persistAndFlush(patient);
+    }
+}
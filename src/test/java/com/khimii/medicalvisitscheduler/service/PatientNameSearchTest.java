@@ -0,0 +1,124 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties.PatientSearch.Backend;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PatientNameSearchTest {
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private SchedulerProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SchedulerProperties();
+        properties.getPatientSearch().setLoadBatchSize(2);
+        properties.getPatientSearch().setMaxCandidates(2);
+    }
+
+    @Test
+    void shouldLeaveSearchToLikeUntilIndexIsBuilt() {
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+
+        assertThat(search.find("Alice")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+    }
+
+    @Test
+    void shouldBuildIndexInBatchesAndAddNewPatientsOnRefresh() {
+        when(patientRepository.findSnapshotsAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(1L, "Alice", "Brown"), new PatientSnapshot(2L, "Bob", "Johnson")));
+        when(patientRepository.findSnapshotsAfter(2, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(4L, "Malice", "Stone")));
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+
+        search.rebuild();
+
+        assertThat(search.find("lice")).isEqualTo(new PatientNameSearch.Match(List.of(1L, 4L), 4));
+        assertThat(search.find("JOHN")).isEqualTo(new PatientNameSearch.Match(List.of(2L), 4));
+
+        when(patientRepository.findSnapshotsAfter(4, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(7L, "Eve", "Johnston")));
+        search.refresh();
+
+        assertThat(search.find("john")).isEqualTo(new PatientNameSearch.Match(List.of(2L, 7L), 7));
+    }
+
+    @Test
+    void shouldLeaveShortAndCommonTermsToLike() {
+        when(patientRepository.findSnapshotsAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(1L, "Anna", "Lee"), new PatientSnapshot(2L, "Hanna", "Smith")));
+        when(patientRepository.findSnapshotsAfter(2, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(3L, "Joanna", "Brown")));
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+        search.rebuild();
+
+        assertThat(search.find("an")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("anna")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("hanna")).isEqualTo(new PatientNameSearch.Match(List.of(2L), 3));
+    }
+
+    @Test
+    void shouldMatchNamesIgnoringAccents() {
+        when(patientRepository.findSnapshotsAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(1L, "José", "García"), new PatientSnapshot(2L, "Jose", "Garcia")));
+        when(patientRepository.findSnapshotsAfter(2, PageRequest.of(0, 2))).thenReturn(List.of());
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+        search.rebuild();
+
+        assertThat(search.find("jose")).isEqualTo(new PatientNameSearch.Match(List.of(1L, 2L), 2));
+        assertThat(search.find("GARCÍA")).isEqualTo(new PatientNameSearch.Match(List.of(1L, 2L), 2));
+    }
+
+    @Test
+    void shouldLeaveLikePatternsToLike() {
+        when(patientRepository.findSnapshotsAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(
+                new PatientSnapshot(1L, "Anne_Marie", "Lee")));
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+        search.rebuild();
+
+        assertThat(search.find("e_m")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("an%ie")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("e\\_m")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("e\u0301e")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+    }
+
+    @Test
+    void shouldAskFullTextIndexWithQuotedPhrase() {
+        properties.getPatientSearch().setBackend(Backend.FULLTEXT);
+        when(patientRepository.findIdsByNameFullText("\"lic\"", 3)).thenReturn(List.of(1L, 4L));
+        when(patientRepository.findIdsByNameFullText("\"son\"", 3)).thenReturn(List.of(2L, 5L, 9L));
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+
+        assertThat(search.find("lic")).isEqualTo(new PatientNameSearch.Match(List.of(1L, 4L), Long.MAX_VALUE));
+        assertThat(search.find("son")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        assertThat(search.find("a\"b")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+    }
+
+    @Test
+    void shouldNotSearchWithLikeBackend() {
+        properties.getPatientSearch().setBackend(Backend.LIKE);
+        PatientNameSearch search = new PatientNameSearch(patientRepository, properties);
+
+        assertThat(search.find("Alice")).isEqualTo(PatientNameSearch.Match.NOT_INDEXED);
+        verify(patientRepository, never()).findIdsByNameFullText(anyString(), anyInt());
+    }
+}
@@ -1,24 +1,40 @@
 package com.khimii.medicalvisitscheduler.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
 import com.khimii.medicalvisitscheduler.model.dto.PatientListResponse;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
 import com.khimii.medicalvisitscheduler.model.dto.PatientVisitResponse;
-import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import com.khimii.medicalvisitscheduler.model.dto.RenderedPatientList;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
+import com.khimii.medicalvisitscheduler.util.PatientCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,7 +44,26 @@ class PatientServiceTest {
     private PatientService patientService;
 
     @Mock
-    private PatientRepository patientRepository;
+    private PatientLastVisitRepository patientLastVisitRepository;
+
+    @Mock
+    private PatientNameSearch patientNameSearch;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private SchedulerMetrics schedulerMetrics = new SchedulerMetrics(meterRegistry);
+
+    @Spy
+    private PatientListCache patientListCache = new PatientListCache(new SchedulerProperties(), meterRegistry);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private PatientJsonRenderer patientJsonRenderer = new PatientJsonRenderer(objectMapper, new SchedulerProperties());
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @Test
     void shouldReturnPatientsWithVisits() {
@@ -40,9 +75,10 @@ class PatientServiceTest {
         );
 
         Page<PatientVisitResponse> patientPage = new PageImpl<>(List.of(patientVisitResponse));
-        when(patientRepository.findPatientsWithVisits(null, null, pageable)).thenReturn(patientPage);
+        when(patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0, null, pageable))
+                .thenReturn(patientPage);
 
-        Optional<PatientListResponse> response = patientService.getPatients(0, 10, null, null);
+        Optional<PatientListResponse> response = read(patientService.getPatients(0, 10, null, null));
 
         assertSoftly(softly -> {
             softly.assertThat(response).isPresent();
@@ -54,14 +90,40 @@ class PatientServiceTest {
         });
     }
 
+    @Test
+    void shouldServeRepeatedPagesFromCacheUntilAVisitChangesThem() {
+        Pageable pageable = PageRequest.of(0, 10);
+        PatientVisitResponse patientVisitResponse = new PatientVisitResponse(
+                1L, "Alice", "Smith",
+                LocalDateTime.now().minusDays(10), LocalDateTime.now().minusDays(9),
+                1L, "John", "Doe", 5L
+        );
+        when(patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0, null, pageable))
+                .thenReturn(new PageImpl<>(List.of(patientVisitResponse)));
+
+        RenderedPatientList first = patientService.getPatients(0, 10, null, null).orElseThrow();
+        RenderedPatientList second = patientService.getPatients(0, 10, null, null).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        verify(patientLastVisitRepository, times(1)).findPatientsWithLastVisits(null, List.of(), 0, null, pageable);
+
+        patientListCache.recordVisit(2L, null, new PatientSnapshot(7L, "Bob", "Brown"));
+        patientService.getPatients(0, 10, null, null);
+
+        verify(patientLastVisitRepository, times(2)).findPatientsWithLastVisits(null, List.of(), 0, null, pageable);
+    }
+
     @Test
     void shouldReturnEmptyWhenNoPatientsFound() {
         Pageable pageable = PageRequest.of(0, 10);
-        when(patientRepository.findPatientsWithVisits(null, null, pageable)).thenReturn(Page.empty());
+        when(patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0, null, pageable))
+                .thenReturn(Page.empty());
 
-        Optional<PatientListResponse> response = patientService.getPatients(0, 10, null, null);
+        Optional<PatientListResponse> response = read(patientService.getPatients(0, 10, null, null));
 
         assertThat(response).isEmpty();
+        assertThat(meterRegistry.get("scheduler.patients.not.found").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("scheduler.patients.stage").tag("stage", "query").timer().count()).isEqualTo(1);
     }
 
     @Test
@@ -74,9 +136,11 @@ class PatientServiceTest {
         );
 
         Page<PatientVisitResponse> patientPage = new PageImpl<>(List.of(patientVisitResponse));
-        when(patientRepository.findPatientsWithVisits("Alice", null, pageable)).thenReturn(patientPage);
+        when(patientNameSearch.find("Alice")).thenReturn(new PatientNameSearch.Match(List.of(1L), 10));
+        when(patientLastVisitRepository.findPatientsWithLastVisits("Alice", List.of(1L), 10, null, pageable))
+                .thenReturn(patientPage);
 
-        Optional<PatientListResponse> response = patientService.getPatients(0, 10, "Alice", null);
+        Optional<PatientListResponse> response = read(patientService.getPatients(0, 10, "Alice", null));
 
         assertThat(response).isPresent();
         assertThat(response.get().getData()).hasSize(1);
@@ -93,9 +157,10 @@ class PatientServiceTest {
         );
 
         Page<PatientVisitResponse> patientPage = new PageImpl<>(List.of(patientVisitResponse));
-        when(patientRepository.findPatientsWithVisits(null, List.of(1L), pageable)).thenReturn(patientPage);
+        when(patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0, List.of(1L), pageable))
+                .thenReturn(patientPage);
 
-        Optional<PatientListResponse> response = patientService.getPatients(0, 10, null, List.of(1L));
+        Optional<PatientListResponse> response = read(patientService.getPatients(0, 10, null, List.of(1L)));
 
         assertThat(response).isPresent();
         assertThat(response.get().getData()).hasSize(1);
@@ -115,12 +180,78 @@ class PatientServiceTest {
         );
 
         Page<PatientVisitResponse> patientPage = new PageImpl<>(List.of(futureVisit));
-        when(patientRepository.findPatientsWithVisits(null, null, pageable)).thenReturn(patientPage);
+        when(patientLastVisitRepository.findPatientsWithLastVisits(null, List.of(), 0, null, pageable))
+                .thenReturn(patientPage);
 
-        Optional<PatientListResponse> response = patientService.getPatients(0, 10, null, null);
+        Optional<PatientListResponse> response = read(patientService.getPatients(0, 10, null, null));
 
         assertThat(response).isPresent();
         assertThat(response.get().getData()).isEmpty();
     }
 
+    @Test
+    void shouldReturnFirstCursorPageWithNextCursorAndWithoutCount() {
+        Pageable pageable = PageRequest.of(0, 1);
+        LocalDateTime visitStart = LocalDateTime.of(2025, 2, 10, 14, 0);
+        PatientVisitResponse patientVisitResponse = new PatientVisitResponse(
+                7L, "Alice", "Smith",
+                visitStart, visitStart.plusMinutes(30),
+                1L, "John", "Doe", 5L
+        );
+
+        when(patientLastVisitRepository.findFirstPatientsByLastVisit(null, List.of(), 0, null, pageable))
+                .thenReturn(new SliceImpl<>(List.of(patientVisitResponse), pageable, true));
+
+        Optional<PatientListResponse> response = read(patientService.getPatientsAfter(null, 1, null, null, false));
+
+        assertThat(response).isPresent();
+        assertThat(response.get().getData()).hasSize(1);
+        assertThat(response.get().getCount()).isNull();
+        PatientCursor nextCursor = PatientCursor.decode(response.get().getNextCursor());
+        assertThat(nextCursor.getLastVisitStart()).isEqualTo(visitStart);
+        assertThat(nextCursor.getPatientId()).isEqualTo(7L);
+        verify(patientLastVisitRepository, never()).countPatientsWithLastVisits(null, List.of(), 0, null);
+    }
+
+    @Test
+    void shouldSeekAfterCursorAndCountWhenRequested() {
+        Pageable pageable = PageRequest.of(0, 10);
+        LocalDateTime cursorStart = LocalDateTime.of(2025, 2, 10, 14, 0);
+        String after = new PatientCursor(cursorStart, 7L).encode();
+        PatientVisitResponse patientVisitResponse = new PatientVisitResponse(
+                3L, "Bob", "Johnson",
+                cursorStart.minusDays(1), cursorStart.minusDays(1).plusMinutes(30),
+                1L, "John", "Doe", 5L
+        );
+
+        when(patientLastVisitRepository.findPatientsByLastVisitAfter(null, List.of(), 0, null, cursorStart, 7L, pageable))
+                .thenReturn(new SliceImpl<>(List.of(patientVisitResponse), pageable, false));
+        when(patientLastVisitRepository.countPatientsWithLastVisits(null, List.of(), 0, null)).thenReturn(8L);
+
+        Optional<PatientListResponse> response = read(patientService.getPatientsAfter(after, 10, null, null, true));
+
+        assertThat(response).isPresent();
+        assertThat(response.get().getData().get(0).getFirstName()).isEqualTo("Bob");
+        assertThat(response.get().getCount()).isEqualTo(8);
+        assertThat(response.get().getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> patientService.getPatientsAfter("not-a-cursor", 10, null, null, false))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid cursor");
+    }
+
+    private Optional<PatientListResponse> read(Optional<RenderedPatientList> page) {
+        return page.map(rendered -> {
+            try {
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                rendered.writeTo(json);
+                return objectMapper.readValue(json.toByteArray(), PatientListResponse.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
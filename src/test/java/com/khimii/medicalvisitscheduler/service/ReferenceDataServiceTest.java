@@ -0,0 +1,109 @@
+package com.khimii.medicalvisitscheduler.service;
+
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
+import com.khimii.medicalvisitscheduler.model.Doctor;
+import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataServiceTest {
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReferenceDataService referenceDataService;
+
+    @BeforeEach
+    void setUp() {
+        referenceDataService = new ReferenceDataService(doctorRepository, patientRepository, new SchedulerProperties(),
+                meterRegistry);
+    }
+
+    @Test
+    void shouldLoadDoctorOnceAndServeFromCache() {
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(new Doctor(1L, "John", "Doe", "UTC", 5)));
+
+        Optional<DoctorSnapshot> first = referenceDataService.findDoctor(1L);
+        Optional<DoctorSnapshot> second = referenceDataService.findDoctor(1L);
+
+        assertThat(first).map(DoctorSnapshot::getTimezone).contains("UTC");
+        assertThat(second).containsSame(first.orElseThrow());
+        verify(doctorRepository, times(1)).findById(1L);
+        assertThat(referenceDataService.doctorCacheStats().hitCount()).isEqualTo(1);
+        assertThat(referenceDataService.doctorCacheStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheUnknownPatient() {
+        when(patientRepository.findById(7L)).thenReturn(Optional.empty());
+
+        assertThat(referenceDataService.findPatient(7L)).isEmpty();
+        assertThat(referenceDataService.findPatient(7L)).isEmpty();
+
+        verify(patientRepository, times(2)).findById(7L);
+    }
+
+    @Test
+    void shouldReloadDoctorAfterEviction() {
+        when(doctorRepository.findById(1L))
+                .thenReturn(Optional.of(new Doctor(1L, "John", "Doe", "UTC", 5)))
+                .thenReturn(Optional.of(new Doctor(1L, "John", "Doe", "Europe/Berlin", 5)));
+
+        referenceDataService.findDoctor(1L);
+        referenceDataService.evictDoctor(1L);
+
+        assertThat(referenceDataService.findDoctor(1L)).map(DoctorSnapshot::getTimezone).contains("Europe/Berlin");
+        verify(doctorRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void shouldLoadOnlyMissingPatientsInOneQuery() {
+        when(patientRepository.findById(1L)).thenReturn(Optional.of(new Patient(1L, "Alice", "Smith")));
+        when(patientRepository.findAllById(List.of(2L))).thenReturn(List.of(new Patient(2L, "Bob", "Johnson")));
+
+        referenceDataService.findPatient(1L);
+        Map<Long, PatientSnapshot> patients = referenceDataService.findPatients(Set.of(1L, 2L));
+
+        assertThat(patients).containsOnlyKeys(1L, 2L);
+        verify(patientRepository, times(1)).findAllById(List.of(2L));
+    }
+
+    @Test
+    void shouldPublishCacheMetrics() {
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(new Doctor(1L, "John", "Doe", "UTC", 5)));
+        when(patientRepository.findById(2L)).thenReturn(Optional.empty());
+
+        referenceDataService.findDoctor(1L);
+        referenceDataService.findDoctor(1L);
+        referenceDataService.findPatient(2L);
+
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "reference_doctors", "result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "reference_doctors", "result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "reference_patients", "result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+}
@@ -1,22 +1,42 @@
 package com.khimii.medicalvisitscheduler.service;
 
+import com.khimii.medicalvisitscheduler.config.SchedulerProperties;
 import com.khimii.medicalvisitscheduler.model.Doctor;
 import com.khimii.medicalvisitscheduler.model.Patient;
+import com.khimii.medicalvisitscheduler.model.PatientLastVisit;
 import com.khimii.medicalvisitscheduler.model.Visit;
+import com.khimii.medicalvisitscheduler.model.dto.DoctorSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.PatientSnapshot;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchItemResult;
+import com.khimii.medicalvisitscheduler.model.dto.VisitBatchResponse;
+import com.khimii.medicalvisitscheduler.model.dto.VisitInterval;
 import com.khimii.medicalvisitscheduler.model.dto.VisitRequest;
 import com.khimii.medicalvisitscheduler.repository.DoctorRepository;
+import com.khimii.medicalvisitscheduler.repository.PatientLastVisitRepository;
 import com.khimii.medicalvisitscheduler.repository.PatientRepository;
+import com.khimii.medicalvisitscheduler.repository.VisitBatchRepository;
 import com.khimii.medicalvisitscheduler.repository.VisitRepository;
-import jakarta.persistence.OptimisticLockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
@@ -29,12 +49,60 @@ class VisitServiceTest {
     @Mock
     private VisitRepository visitRepository;
 
+    @Mock
+    private VisitBatchRepository visitBatchRepository;
+
     @Mock
     private PatientRepository patientRepository;
 
     @Mock
     private DoctorRepository doctorRepository;
 
+    @Mock
+    private PatientLastVisitRepository patientLastVisitRepository;
+
+    @Mock
+    private DoctorPatientStatsService doctorPatientStatsService;
+
+    @Mock
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @Mock
+    private DoctorCalendarIndex doctorCalendarIndex;
+
+    @Mock
+    private PatientListCache patientListCache;
+
+    @Mock
+    private DoctorBookingLocks doctorBookingLocks;
+
+    @Mock
+    private ReferenceDataService referenceDataService;
+
+    @Spy
+    private SchedulerProperties schedulerProperties = new SchedulerProperties();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private SchedulerMetrics schedulerMetrics = new SchedulerMetrics(meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(doctorBookingLocks.callWithLocks(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(doctorBookingLocks.callWithLocks(any(), any(Runnable.class), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(1).run();
+                    return invocation.<Supplier<?>>getArgument(2).get();
+                });
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
     @Test
     void shouldCreateVisitSuccessfully() {
         Long doctorId = 1L;
@@ -51,13 +119,49 @@ class VisitServiceTest {
         request.setStart(start);
         request.setEnd(end);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
-        when(visitRepository.existsConflictingVisit(doctorId, start, end)).thenReturn(false);
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.of(DoctorSnapshot.from(doctor)));
+        PatientSnapshot patientSnapshot = PatientSnapshot.from(patient);
+        when(referenceDataService.findPatient(patientId)).thenReturn(Optional.of(patientSnapshot));
+        when(doctorScheduleIndex.hasConflict(doctorId, start, end)).thenReturn(false);
+        when(patientListCache.isEnabled()).thenReturn(true);
+        Doctor previousDoctor = new Doctor(2L, "Jane", "Roe", "UTC", 3);
+        when(patientLastVisitRepository.findAllById(List.of(patientId)))
+                .thenReturn(List.of(new PatientLastVisit(patientId, patient, previousDoctor, start.minusDays(7), end.minusDays(7))));
 
         visitService.createVisit(request);
 
-        verify(visitRepository, times(1)).save(any(Visit.class));
+        verify(doctorBookingLocks).callWithLocks(eq(List.of(doctorId)), any(Runnable.class), any());
+        verify(doctorBookingLocks).lockRows(List.of(doctorId));
+        verify(visitRepository, times(1)).saveAndFlush(any(Visit.class));
+        verify(visitRepository, never()).existsConflictingVisit(any(), any(), any());
+        verify(patientLastVisitRepository).upsertIfLater(patientId, doctorId, start, end);
+        verify(doctorPatientStatsService).recordVisit(doctorId, patientId);
+        verify(doctorScheduleIndex).recordVisit(doctorId, start, end);
+        verify(doctorCalendarIndex).recordVisit(doctorId, start, end);
+        verify(patientListCache).recordVisit(doctorId, 2L, patientSnapshot);
+        verify(doctorRepository, never()).findById(any());
+        verify(patientRepository, never()).findById(any());
+        assertThat(meterRegistry.get("scheduler.visits.booked").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("scheduler.booking.stage").tag("stage", "insert").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("scheduler.booking.stage").tag("stage", "lock_wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTimeLockWaitWhenLockTimesOut() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 10, 10, 0);
+        when(referenceDataService.findDoctor(1L))
+                .thenReturn(Optional.of(DoctorSnapshot.from(new Doctor(1L, "John", "Doe", "UTC", 5))));
+        when(referenceDataService.findPatient(1L))
+                .thenReturn(Optional.of(PatientSnapshot.from(new Patient(1L, "Alice", "Smith"))));
+        when(doctorBookingLocks.callWithLocks(any(), any(Runnable.class), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            throw new RuntimeException("Doctor is busy with another booking. Please try again.");
+        });
+
+        assertThatThrownBy(() -> visitService.createVisit(visitRequest(1L, 1L, start, start.plusHours(1))))
+                .hasMessage("Doctor is busy with another booking. Please try again.");
+        assertThat(meterRegistry.get("scheduler.booking.stage").tag("stage", "lock_wait").timer().count()).isEqualTo(1);
+        verifyNoInteractions(transactionTemplate);
     }
 
     @Test
@@ -73,7 +177,7 @@ class VisitServiceTest {
         request.setStart(start);
         request.setEnd(end);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.empty());
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> visitService.createVisit(request))
                 .isInstanceOf(RuntimeException.class)
@@ -95,8 +199,8 @@ class VisitServiceTest {
         request.setStart(start);
         request.setEnd(end);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(patientRepository.findById(patientId)).thenReturn(Optional.empty());
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.of(DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatient(patientId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> visitService.createVisit(request))
                 .isInstanceOf(RuntimeException.class)
@@ -119,17 +223,21 @@ class VisitServiceTest {
         request.setStart(start);
         request.setEnd(end);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.of(DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatient(patientId)).thenReturn(Optional.of(PatientSnapshot.from(patient)));
+        when(doctorScheduleIndex.hasConflict(doctorId, start, end)).thenReturn(true);
         when(visitRepository.existsConflictingVisit(doctorId, start, end)).thenReturn(true);
 
         assertThatThrownBy(() -> visitService.createVisit(request))
                 .isInstanceOf(RuntimeException.class)
                 .hasMessage("Doctor is not available at this time");
+        assertThat(meterRegistry.get("scheduler.booking.rejections").tag("reason", "conflict").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("scheduler.visits.booked").counter().count()).isZero();
     }
 
     @Test
-    void shouldHandleOptimisticLockException() {
+    void shouldCreateVisitWhenDatabaseDoesNotConfirmIndexedConflict() {
         Long doctorId = 1L;
         Long patientId = 1L;
         LocalDateTime start = LocalDateTime.of(2023, 10, 10, 10, 0);
@@ -144,13 +252,191 @@ class VisitServiceTest {
         request.setStart(start);
         request.setEnd(end);
 
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(doctor));
-        when(patientRepository.findById(patientId)).thenReturn(Optional.of(patient));
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.of(DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatient(patientId)).thenReturn(Optional.of(PatientSnapshot.from(patient)));
+        when(doctorScheduleIndex.hasConflict(doctorId, start, end)).thenReturn(true);
         when(visitRepository.existsConflictingVisit(doctorId, start, end)).thenReturn(false);
-        when(visitRepository.save(any(Visit.class))).thenThrow(new OptimisticLockException("Concurrent modification"));
+
+        visitService.createVisit(request);
+
+        verify(doctorScheduleIndex).evict(doctorId);
+        verify(doctorCalendarIndex).evict(doctorId);
+        verify(visitRepository, times(1)).saveAndFlush(any(Visit.class));
+    }
+
+    @Test
+    void shouldCheckDatabaseWhenDoctorRowsAreLocked() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 10, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 10, 11, 0);
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(1L);
+        request.setPatientId(1L);
+        request.setStart(start);
+        request.setEnd(end);
+
+        when(referenceDataService.findDoctor(1L))
+                .thenReturn(Optional.of(DoctorSnapshot.from(new Doctor(1L, "John", "Doe", "UTC", 5))));
+        when(referenceDataService.findPatient(1L))
+                .thenReturn(Optional.of(PatientSnapshot.from(new Patient(1L, "Alice", "Smith"))));
+        when(doctorScheduleIndex.hasConflict(1L, start, end)).thenReturn(false);
+        when(doctorBookingLocks.isDatabaseLock()).thenReturn(true);
+        when(visitRepository.existsConflictingVisit(1L, start, end)).thenReturn(true);
+
+        assertThatThrownBy(() -> visitService.createVisit(request))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Doctor is not available at this time");
+        verify(visitRepository, never()).saveAndFlush(any(Visit.class));
+    }
+
+    @Test
+    void shouldRejectVisitBookedConcurrently() {
+        Long doctorId = 1L;
+        Long patientId = 1L;
+        LocalDateTime start = LocalDateTime.of(2023, 10, 10, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 10, 11, 0);
+
+        Doctor doctor = new Doctor(doctorId, "John", "Doe", "UTC", 5);
+        Patient patient = new Patient(patientId, "Alice", "Smith");
+
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(doctorId);
+        request.setPatientId(patientId);
+        request.setStart(start);
+        request.setEnd(end);
+
+        when(referenceDataService.findDoctor(doctorId)).thenReturn(Optional.of(DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatient(patientId)).thenReturn(Optional.of(PatientSnapshot.from(patient)));
+        when(doctorScheduleIndex.hasConflict(doctorId, start, end)).thenReturn(false);
+        when(visitRepository.saveAndFlush(any(Visit.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry for key 'unique_doctor_visit'"));
 
         assertThatThrownBy(() -> visitService.createVisit(request))
                 .isInstanceOf(RuntimeException.class)
-                .hasMessage("Concurrent modification detected. Please try again.");
+                .hasMessage("Doctor is not available at this time");
+        verify(doctorScheduleIndex, never()).recordVisit(any(), any(), any());
+    }
+
+    @Test
+    void shouldCreateBatchAndRejectInvalidAndConflictingVisits() {
+        LocalDateTime ten = LocalDateTime.of(2023, 10, 10, 10, 0);
+        Doctor doctor = new Doctor(1L, "John", "Doe", "UTC", 5);
+        Patient alice = new Patient(1L, "Alice", "Smith");
+        Patient bob = new Patient(2L, "Bob", "Johnson");
+
+        List<VisitRequest> requests = List.of(
+                visitRequest(1L, 1L, ten, ten.plusHours(1)),
+                visitRequest(99L, 1L, ten, ten.plusHours(1)),
+                visitRequest(1L, 2L, ten.plusMinutes(30), ten.plusMinutes(90)),
+                visitRequest(1L, 2L, ten.plusHours(3), ten.plusHours(4)),
+                visitRequest(1L, 2L, ten.plusHours(2), ten.plusHours(3)));
+
+        when(referenceDataService.findDoctors(Set.of(1L, 99L))).thenReturn(Map.of(1L, DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatients(Set.of(1L, 2L)))
+                .thenReturn(Map.of(1L, PatientSnapshot.from(alice), 2L, PatientSnapshot.from(bob)));
+        when(visitRepository.findIntervalsByDoctorIdBetween(1L, ten, ten.plusHours(4)))
+                .thenReturn(List.of(new VisitInterval(ten.plusHours(3), ten.plusHours(4))));
+        when(visitBatchRepository.insertAll(anyList())).thenReturn(List.of(100L, 101L));
+
+        VisitBatchResponse response = visitService.createVisits(requests);
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getRejected()).isEqualTo(3);
+        assertThat(response.getResults()).extracting(VisitBatchItemResult::getStatus).containsExactly(
+                VisitBatchItemResult.Status.CREATED,
+                VisitBatchItemResult.Status.REJECTED,
+                VisitBatchItemResult.Status.REJECTED,
+                VisitBatchItemResult.Status.REJECTED,
+                VisitBatchItemResult.Status.CREATED);
+        assertThat(response.getResults()).extracting(VisitBatchItemResult::getVisitId)
+                .containsExactly(100L, null, null, null, 101L);
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Doctor with ID 99 not found");
+        assertThat(response.getResults().get(2).getError()).isEqualTo("Doctor is not available at this time");
+        assertThat(response.getResults().get(3).getError()).isEqualTo("Doctor is not available at this time");
+        assertThat(meterRegistry.get("scheduler.booking.rejections").tag("reason", "conflict").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("scheduler.booking.rejections").tag("reason", "doctor_not_found").counter().count())
+                .isEqualTo(1);
+
+        verify(visitRepository, times(1)).findIntervalsByDoctorIdBetween(any(), any(), any());
+        verify(visitBatchRepository).insertAll(argThat(visits -> visits.size() == 2));
+        verify(patientLastVisitRepository).upsertIfLater(1L, 1L, ten, ten.plusHours(1));
+        verify(patientLastVisitRepository).upsertIfLater(2L, 1L, ten.plusHours(2), ten.plusHours(3));
+        verify(doctorPatientStatsService).recordVisit(1L, 1L);
+        verify(doctorPatientStatsService).recordVisit(1L, 2L);
+        verify(doctorScheduleIndex).recordVisit(1L, ten, ten.plusHours(1));
+        verify(doctorScheduleIndex).recordVisit(1L, ten.plusHours(2), ten.plusHours(3));
+        verify(patientListCache).recordVisit(eq(1L), isNull(), argThat(patient -> patient.getId() == 1L));
+        verify(patientListCache).recordVisit(eq(1L), isNull(), argThat(patient -> patient.getId() == 2L));
+        verify(patientLastVisitRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldCreateQueuedVisitsCheckingScheduleIndexInRequestOrder() {
+        LocalDateTime ten = LocalDateTime.of(2023, 10, 10, 10, 0);
+        Doctor doctor = new Doctor(1L, "John", "Doe", "UTC", 5);
+        Patient alice = new Patient(1L, "Alice", "Smith");
+
+        List<VisitRequest> requests = List.of(
+                visitRequest(1L, 1L, ten, ten.plusHours(1)),
+                visitRequest(1L, 1L, ten.plusMinutes(30), ten.plusMinutes(90)),
+                visitRequest(1L, 1L, ten.plusHours(2), ten.plusHours(3)));
+
+        when(referenceDataService.findDoctors(Set.of(1L))).thenReturn(Map.of(1L, DoctorSnapshot.from(doctor)));
+        when(referenceDataService.findPatients(Set.of(1L))).thenReturn(Map.of(1L, PatientSnapshot.from(alice)));
+        when(doctorScheduleIndex.hasConflict(1L, ten, ten.plusHours(1))).thenReturn(false);
+        when(doctorScheduleIndex.hasConflict(1L, ten.plusHours(2), ten.plusHours(3))).thenReturn(true);
+        when(visitRepository.existsConflictingVisit(1L, ten.plusHours(2), ten.plusHours(3))).thenReturn(true);
+        when(visitBatchRepository.insertAll(anyList())).thenReturn(List.of(100L));
+
+        VisitBatchResponse response = visitService.createQueuedVisits(requests);
+
+        assertThat(response.getResults()).extracting(VisitBatchItemResult::getStatus).containsExactly(
+                VisitBatchItemResult.Status.CREATED,
+                VisitBatchItemResult.Status.REJECTED,
+                VisitBatchItemResult.Status.REJECTED);
+        verify(doctorBookingLocks).callWithLocks(eq(Set.of(1L)), any());
+        verify(visitRepository, never()).findIntervalsByDoctorIdBetween(any(), any(), any());
+        verify(doctorScheduleIndex).recordVisit(1L, ten, ten.plusHours(1));
+    }
+
+    @Test
+    void shouldNotCountRejectionsOfRolledBackGroupCommit() {
+        LocalDateTime ten = LocalDateTime.of(2023, 10, 10, 10, 0);
+        List<VisitRequest> requests = List.of(
+                visitRequest(1L, 1L, ten, ten.plusHours(1)),
+                visitRequest(1L, 1L, ten.plusMinutes(30), ten.plusMinutes(90)),
+                visitRequest(99L, 1L, ten, ten.plusHours(1)));
+
+        when(referenceDataService.findDoctors(Set.of(1L, 99L)))
+                .thenReturn(Map.of(1L, DoctorSnapshot.from(new Doctor(1L, "John", "Doe", "UTC", 5))));
+        when(referenceDataService.findPatients(Set.of(1L)))
+                .thenReturn(Map.of(1L, PatientSnapshot.from(new Patient(1L, "Alice", "Smith"))));
+        when(visitBatchRepository.insertAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry for key 'unique_doctor_visit'"));
+
+        assertThatThrownBy(() -> visitService.createQueuedVisits(requests))
+                .hasMessage("Some visits were booked concurrently. Please try again.");
+        assertThat(meterRegistry.get("scheduler.booking.rejections").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+    }
+
+    @Test
+    void shouldRejectBatchAboveSizeLimit() {
+        schedulerProperties.getBatch().setMaxSize(2);
+        List<VisitRequest> requests = Collections.nCopies(3, new VisitRequest());
+
+        assertThatThrownBy(() -> visitService.createVisits(requests))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Batch contains 3 visits, the limit is 2");
+        verifyNoInteractions(visitRepository);
+    }
+
+    private VisitRequest visitRequest(Long doctorId, Long patientId, LocalDateTime start, LocalDateTime end) {
+        VisitRequest request = new VisitRequest();
+        request.setDoctorId(doctorId);
+        request.setPatientId(patientId);
+        request.setStart(start);
+        request.setEnd(end);
+        return request;
     }
 }
@@ -0,0 +1,95 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DateUtilTest {
+
+    @Test
+    void shouldConvertLocalTimeToUtc() {
+        assertThat(DateUtil.convertToUtcTime(LocalDateTime.of(2025, 1, 15, 9, 30), "America/New_York"))
+                .isEqualTo(LocalDateTime.of(2025, 1, 15, 14, 30));
+        assertThat(DateUtil.convertToUtcTime(LocalDateTime.of(2025, 7, 15, 9, 30), "Europe/Berlin"))
+                .isEqualTo(LocalDateTime.of(2025, 7, 15, 7, 30));
+        assertThat(DateUtil.convertToUtcTime(LocalDateTime.of(2025, 7, 15, 9, 30, 15, 500), "UTC"))
+                .isEqualTo(LocalDateTime.of(2025, 7, 15, 9, 30, 15, 500));
+    }
+
+    @Test
+    void shouldConvertUtcToDoctorTimezone() {
+        assertThat(DateUtil.convertUtcToDoctorTimezone(LocalDateTime.of(2025, 2, 10, 14, 0), "Asia/Tokyo"))
+                .isEqualTo("2025-02-10T23:00");
+        assertThat(DateUtil.convertUtcToLocalTime(LocalDateTime.of(2025, 6, 30, 23, 0), "Australia/Sydney"))
+                .isEqualTo(LocalDateTime.of(2025, 7, 1, 9, 0));
+    }
+
+    @Test
+    void shouldMoveTimeInDstGapForward() {
+        // 02:30 does not exist on 2025-03-09 in New York; it is read as 03:30 EDT
+        assertThat(DateUtil.convertToUtcTime(LocalDateTime.of(2025, 3, 9, 2, 30), "America/New_York"))
+                .isEqualTo(LocalDateTime.of(2025, 3, 9, 7, 30));
+    }
+
+    @Test
+    void shouldUseEarlierOffsetInDstOverlap() {
+        // 01:30 happens twice on 2025-11-02 in New York; the first one is at EDT (-04:00)
+        assertThat(DateUtil.convertToUtcTime(LocalDateTime.of(2025, 11, 2, 1, 30), "America/New_York"))
+                .isEqualTo(LocalDateTime.of(2025, 11, 2, 5, 30));
+    }
+
+    @Test
+    void shouldMatchJavaTimeAroundEveryTransitionOfEveryZone() {
+        Instant from = Instant.parse("1950-01-01T00:00:00Z");
+        Instant to = Instant.parse("2060-01-01T00:00:00Z");
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            ZoneId zone = ZoneId.of(id);
+            ZoneRules rules = zone.getRules();
+            ZoneOffsetTransition transition = rules.nextTransition(from);
+            while (transition != null && transition.getInstant().isBefore(to)) {
+                long utc = transition.toEpochSecond();
+                for (long delta = -7200; delta <= 7200; delta += 900) {
+                    assertMatchesJavaTime(zone, utc + delta);
+                }
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    void shouldMatchJavaTimeForRandomInstants() {
+        Random random = new Random(42);
+        String[] zones = ZoneId.getAvailableZoneIds().toArray(String[]::new);
+        long from = Instant.parse("1800-01-01T00:00:00Z").getEpochSecond();
+        long to = Instant.parse("2300-01-01T00:00:00Z").getEpochSecond();
+        for (int i = 0; i < 100_000; i++) {
+            ZoneId zone = ZoneId.of(zones[random.nextInt(zones.length)]);
+            assertMatchesJavaTime(zone, from + (long) (random.nextDouble() * (to - from)));
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownTimezone() {
+        assertThatThrownBy(() -> DateUtil.convertToUtcTime(LocalDateTime.of(2025, 1, 1, 0, 0), "Mars/Olympus"))
+                .isInstanceOf(java.time.DateTimeException.class);
+    }
+
+    private void assertMatchesJavaTime(ZoneId zone, long epochSecond) {
+        LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        assertThat(DateUtil.convertToUtcTime(time, zone.getId()))
+                .as("local %s in %s", time, zone)
+                .isEqualTo(time.atZone(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
+        assertThat(DateUtil.convertUtcToLocalTime(time, zone.getId()))
+                .as("UTC %s in %s", time, zone)
+                .isEqualTo(time.atZone(ZoneOffset.UTC).withZoneSameInstant(zone).toLocalDateTime());
+    }
+}
@@ -0,0 +1,42 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void shouldReturnZeroForEmptySketch() {
+        assertThat(new HyperLogLog(12).estimate()).isZero();
+    }
+
+    @Test
+    void shouldCountSmallCardinalitiesExactlyEnough() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+            sketch.add(id); // duplicates must not change the estimate
+        }
+
+        assertThat(sketch.estimate()).isCloseTo(100L, within(2L));
+    }
+
+    @Test
+    void shouldEstimateLargeCardinalityWithinExpectedError() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long id = 1; id <= 1_000_000; id++) {
+            sketch.add(id);
+        }
+
+        assertThat(sketch.estimate()).isCloseTo(1_000_000L, within(50_000L));
+    }
+
+    @Test
+    void shouldRejectUnsupportedPrecision() {
+        assertThatThrownBy(() -> new HyperLogLog(3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.khimii.medicalvisitscheduler.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrigramIndexTest {
+
+    @Test
+    void shouldFindSubstringsOfAnyFieldIgnoringCase() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Alice", "Brown");
+        index.put(2, "Bob", "Johnson");
+        index.put(3, "Charlie", "Davis");
+
+        assertThat(index.search("LIC", 10)).containsExactly(1);
+        assertThat(index.search("rown", 10)).containsExactly(1);
+        assertThat(index.search("son", 10)).containsExactly(2);
+        assertThat(index.search("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreAccents() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "José", "Núñez");
+        index.put(2, "Jose", "Nunez");
+        index.put(3, "Zoe\u0308", "Brontë");
+
+        assertThat(index.search("jose", 10)).containsExactly(1, 2);
+        assertThat(index.search("JOSÉ", 10)).containsExactly(1, 2);
+        assertThat(index.search("nuñ", 10)).containsExactly(1, 2);
+        assertThat(index.search("zoë", 10)).containsExactly(3);
+        assertThat(index.search("onte", 10)).containsExactly(3);
+    }
+
+    @Test
+    void shouldTreatWildcardsAsLiterals() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Anne_Marie");
+        index.put(2, "Annexmarie");
+
+        assertThat(index.search("e_m", 10)).containsExactly(1);
+        assertThat(index.search("n%e", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotMatchAcrossFields() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Eve", "Miller");
+
+        assertThat(index.search("evemil", 10)).isEmpty();
+        assertThat(index.search("vem", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectCandidatesContainingAllTrigramsButNotTheTerm() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Abcdxbcde");
+
+        assertThat(index.search("abcde", 10)).isEmpty();
+        assertThat(index.search("bcde", 10)).containsExactly(1);
+    }
+
+    @Test
+    void shouldReplaceAndRemoveDocuments() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(5, "Grace", "Harris");
+        index.put(5, "Grace", "Clark");
+
+        assertThat(index.search("harris", 10)).isEmpty();
+        assertThat(index.search("clark", 10)).containsExactly(5);
+
+        index.remove(5);
+        index.remove(6);
+
+        assertThat(index.search("grace", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void shouldReturnNullWhenMoreDocumentsMatchThanTheLimit() {
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 0; id < 5; id++) {
+            index.put(id, "Anna");
+        }
+
+        assertThat(index.search("ann", 5)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(index.search("ann", 4)).isNull();
+    }
+
+    @Test
+    void shouldMatchNaiveSearchOnRandomNames() {
+        Random random = new Random(42);
+        String[] names = new String[5_000];
+        TrigramIndex index = new TrigramIndex();
+        for (int id = names.length - 1; id >= 0; id--) {
+            names[id] = randomName(random);
+            index.put(id, names[id]);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String term = randomName(random).substring(0, 3 + random.nextInt(2));
+            int[] expected = IntStream.range(0, names.length)
+                    .filter(id -> names[id].contains(term))
+                    .toArray();
+            assertThat(index.search(term, names.length)).as(term).containsExactly(expected);
+        }
+    }
+
+    @Test
+    void shouldRejectShortTermsAndNegativeIds() {
+        TrigramIndex index = new TrigramIndex();
+
+        assertThatThrownBy(() -> index.search("ab", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("e\u0301e", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.put(-1, "Alice")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[5 + random.nextInt(4)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = "abcde".charAt(random.nextInt(5));
+        }
+        return new String(name);
+    }
+}
@@ -1,4 +1,7 @@
 SET FOREIGN_KEY_CHECKS = 0;
+TRUNCATE TABLE doctor_patient_stats;
+TRUNCATE TABLE doctor_patients;
+TRUNCATE TABLE patient_last_visit;
 TRUNCATE TABLE visits;
 TRUNCATE TABLE patients;
 TRUNCATE TABLE doctors;
@@ -43,4 +46,22 @@ VALUES
     ('2025-02-22 17:00:00', '2025-02-22 17:30:00', 8, 4),
     ('2025-02-23 18:00:00', '2025-02-23 18:30:00', 9, 5),
     ('2025-02-24 19:00:00', '2025-02-24 19:30:00', 10, 1),
-    ('2025-02-25 20:00:00', '2025-02-25 20:30:00', 10, 4);
\ No newline at end of file
+    ('2025-02-25 20:00:00', '2025-02-25 20:30:00', 10, 4);
+
+INSERT INTO patient_last_visit (patient_id, doctor_id, start_date_time, end_date_time)
+SELECT patient_id, doctor_id, start_date_time, end_date_time
+FROM (
+         SELECT v.patient_id, v.doctor_id, v.start_date_time, v.end_date_time,
+                ROW_NUMBER() OVER (PARTITION BY v.patient_id ORDER BY v.start_date_time DESC, v.id DESC) AS rn
+         FROM visits v
+     ) ranked
+WHERE rn = 1;
+
+INSERT INTO doctor_patients (doctor_id, patient_id)
+SELECT DISTINCT doctor_id, patient_id
+FROM visits;
+
+INSERT INTO doctor_patient_stats (doctor_id, total_patients)
+SELECT doctor_id, COUNT(*)
+FROM doctor_patients
+GROUP BY doctor_id;